@@ -0,0 +1,76 @@
+package com.bitsar.passwordlessauth.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Compares a JMH JSON result with the checked in baseline and prints the change of every benchmark. A benchmark is a
+ * regression when it got slower by more than the tolerance; the build fails on regressions only when asked to, since
+ * scores measured on another machine are only indicative.
+ * <p>
+ * Arguments: baseline file, result file, tolerance in percent, whether to fail on regressions.
+ */
+public class BaselineComparison {
+
+    public static void main(String[] args) throws IOException {
+        File baselineFile = new File(args[0]);
+        File resultFile = new File(args[1]);
+        double tolerancePercent = Double.parseDouble(args[2]);
+        boolean failOnRegression = Boolean.parseBoolean(args[3]);
+        if (!baselineFile.isFile()) {
+            System.out.println("No benchmark baseline at " + baselineFile + ", copy " + resultFile + " there to create one");
+            return;
+        }
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, JsonNode> baseline = scores(objectMapper.readTree(baselineFile));
+        Map<String, JsonNode> result = scores(objectMapper.readTree(resultFile));
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s%n", "Benchmark", "Baseline", "Result", "Change");
+        for (Map.Entry<String, JsonNode> entry : result.entrySet()) {
+            JsonNode baselineMetric = baseline.get(entry.getKey());
+            JsonNode resultMetric = entry.getValue().get("primaryMetric");
+            if (Objects.isNull(baselineMetric)) {
+                System.out.printf("%-90s %14s %14.3f %9s%n", entry.getKey(), "-", resultMetric.get("score").asDouble(), "new");
+                continue;
+            }
+            double before = baselineMetric.get("primaryMetric").get("score").asDouble();
+            double after = resultMetric.get("score").asDouble();
+            double changePercent = (after - before) / before * 100;
+            // Throughput improves upwards, every other mode measures time and improves downwards
+            double slowdownPercent = "thrpt".equals(entry.getValue().get("mode").asText()) ? -changePercent : changePercent;
+            boolean regression = slowdownPercent > tolerancePercent;
+            if (regression) regressions++;
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%%%s%n", entry.getKey(), before, after, changePercent, regression ? "  REGRESSION" : "");
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmarks are more than %.0f%% slower than the baseline%n", regressions, tolerancePercent);
+            if (failOnRegression) System.exit(1);
+        }
+    }
+
+    // Keyed by benchmark method and parameters
+    private static Map<String, JsonNode> scores(JsonNode results) {
+        Map<String, JsonNode> scores = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            StringBuilder key = new StringBuilder(result.get("benchmark").asText());
+            JsonNode params = result.get("params");
+            if (Objects.nonNull(params)) {
+                for (Iterator<Map.Entry<String, JsonNode>> fields = params.fields(); fields.hasNext(); ) {
+                    Map.Entry<String, JsonNode> param = fields.next();
+                    key.append(':').append(param.getKey()).append('=').append(param.getValue().asText());
+                }
+            }
+            scores.put(key.toString(), result);
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,34 @@
+package com.bitsar.passwordlessauth.benchmark;
+
+import com.bitsar.passwordlessauth.dto.ResponseWrap;
+import com.bitsar.passwordlessauth.exception.CustomRestExceptionHandler;
+import com.bitsar.passwordlessauth.exception.InvalidPhoneNumberFormatException;
+import com.bitsar.passwordlessauth.exception.SampledErrorLogger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A business exception going through {@link CustomRestExceptionHandler}: creating it, without a stack trace, and
+ * handling it, which counts it and logs the lines {@link SampledErrorLogger} lets through. The log goes to a file under
+ * target, see {@code logback-test.xml}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExceptionHandlingBenchmark {
+
+    private final CustomRestExceptionHandler exceptionHandler = new CustomRestExceptionHandler(new SampledErrorLogger(new SimpleMeterRegistry(), 10, 10000));
+
+    @Benchmark
+    public ResponseEntity<ResponseWrap<Object>> handleInvalidPhoneNumber() {
+        return exceptionHandler.handleAuthException(new InvalidPhoneNumberFormatException("Phone number is not valid"), null);
+    }
+}
@@ -0,0 +1,45 @@
+package com.bitsar.passwordlessauth.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.bitsar.passwordlessauth.util.JwtUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JwtUtil#getUsernameFromToken(String)} on an Authorization header carrying a Cognito shaped access token.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtUsernameBenchmark {
+
+    private String authorization;
+
+    @Setup
+    public void setUp() {
+        authorization = "Bearer " + JWT.create()
+                .withIssuer("https://cognito-idp.ap-south-1.amazonaws.com/ap-south-1_example")
+                .withSubject("5f0c1c8e-2b7a-4c1e-9d3b-0a2f6c4e8b11")
+                .withClaim("username", "5f0c1c8e-2b7a-4c1e-9d3b-0a2f6c4e8b11")
+                .withClaim("token_use", "access")
+                .withClaim("client_id", "client-id")
+                .withIssuedAt(Date.from(Instant.now()))
+                .withExpiresAt(Date.from(Instant.now().plusSeconds(3600)))
+                .sign(Algorithm.HMAC256("benchmark-secret"));
+    }
+
+    @Benchmark
+    public String usernameFromToken() {
+        return JwtUtil.getUsernameFromToken(authorization);
+    }
+}
@@ -0,0 +1,48 @@
+package com.bitsar.passwordlessauth.benchmark;
+
+import com.bitsar.passwordlessauth.phone.PhoneNumber;
+import com.bitsar.passwordlessauth.phone.PhoneNumberNormalizer;
+import com.bitsar.passwordlessauth.phone.PhoneNumberProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Phone number validation: {@code String.matches} against the ten digit pattern the service used before
+ * {@link PhoneNumberNormalizer}, which compiles the pattern on every call, next to a pattern compiled once and to the
+ * normalizer itself, which also builds the E.164 form.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PhoneNumberValidationBenchmark {
+
+    private static final String TEN_DIGIT_REGEX = "\\d{10}";
+    private static final Pattern TEN_DIGITS = Pattern.compile(TEN_DIGIT_REGEX);
+    private static final PhoneNumberNormalizer NORMALIZER = new PhoneNumberNormalizer(new PhoneNumberProperties());
+
+    @Param({"6625550144", "66255501x4"})
+    public String phoneNumber;
+
+    @Benchmark
+    public boolean stringMatches() {
+        return phoneNumber.matches(TEN_DIGIT_REGEX);
+    }
+
+    @Benchmark
+    public boolean compiledPattern() {
+        return TEN_DIGITS.matcher(phoneNumber).matches();
+    }
+
+    @Benchmark
+    public PhoneNumber normalizer() {
+        return NORMALIZER.normalize(phoneNumber);
+    }
+}
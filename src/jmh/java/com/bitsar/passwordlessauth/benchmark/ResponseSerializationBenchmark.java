@@ -0,0 +1,50 @@
+package com.bitsar.passwordlessauth.benchmark;
+
+import com.bitsar.passwordlessauth.dto.ResponseWrap;
+import com.bitsar.passwordlessauth.dto.response.ConfirmLoginResponseDto;
+import com.bitsar.passwordlessauth.util.ResponseBuilder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ResponseBuilder} wrapping a confirm login response in the {@link ResponseWrap} envelope, and the envelope
+ * serialised by Jackson as the message converter does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ResponseSerializationBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ConfirmLoginResponseDto confirmLoginResponse;
+
+    @Setup
+    public void setUp() {
+        confirmLoginResponse = ConfirmLoginResponseDto.builder()
+                .status("SUCCESS")
+                .accessToken("eyJraWQiOiJrZXktMSIsImFsZyI6IlJTMjU2In0." + "a".repeat(800) + "." + "b".repeat(342))
+                .firstName("Jane")
+                .lastName("Doe")
+                .build();
+    }
+
+    @Benchmark
+    public ResponseEntity<ResponseWrap<ConfirmLoginResponseDto>> buildEnvelope() {
+        return ResponseBuilder.getSuccessfulResponse(confirmLoginResponse);
+    }
+
+    @Benchmark
+    public byte[] buildAndSerialiseEnvelope() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ResponseBuilder.getSuccessfulResponse(confirmLoginResponse).getBody());
+    }
+}
@@ -0,0 +1,49 @@
+package com.bitsar.passwordlessauth.benchmark;
+
+import com.bitsar.passwordlessauth.helper.CognitoHelper;
+import com.bitsar.passwordlessauth.helper.SecretHashGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CognitoHelper#calculateSecretHash(String)} for a username whose hash is cached, and for usernames that are
+ * never cached, which computes the HMAC with a pooled Mac.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SecretHashBenchmark {
+
+    private static final int USERNAMES = 4096;
+
+    private CognitoHelper cachingCognitoHelper;
+    private CognitoHelper uncachedCognitoHelper;
+    private final String[] phoneNumbers = new String[USERNAMES];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        cachingCognitoHelper = new CognitoHelper(null, new SecretHashGenerator("client-id", "client-secret", 64, 10_000), null);
+        uncachedCognitoHelper = new CognitoHelper(null, new SecretHashGenerator("client-id", "client-secret", 64, 0), null);
+        for (int i = 0; i < USERNAMES; i++) phoneNumbers[i] = "+91" + (6_000_000_000L + i);
+        cachingCognitoHelper.calculateSecretHash(phoneNumbers[0]);
+    }
+
+    @Benchmark
+    public String cachedSecretHash() {
+        return cachingCognitoHelper.calculateSecretHash(phoneNumbers[0]);
+    }
+
+    @Benchmark
+    public String computedSecretHash() {
+        next = (next + 1) & (USERNAMES - 1);
+        return uncachedCognitoHelper.calculateSecretHash(phoneNumbers[next]);
+    }
+}
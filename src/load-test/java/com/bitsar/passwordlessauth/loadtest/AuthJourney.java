@@ -0,0 +1,146 @@
+package com.bitsar.passwordlessauth.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One user going through register, confirm register, login, confirm login, refresh and logout over HTTP. A share of
+ * users types a wrong OTP first, the way the service expects: the sign up is confirmed again with the resent code,
+ * the sign in with the new session the failure names. Latencies go to the report per endpoint, wrong OTP attempts
+ * under their own name.
+ */
+class AuthJourney {
+
+    static final String REGISTER = "register";
+    static final String CONFIRM_REGISTER = "confirm-register";
+    static final String LOGIN = "login";
+    static final String CONFIRM_LOGIN = "confirm-login";
+    static final String REFRESH = "refresh-token";
+    static final String LOGOUT = "logout";
+    static final String JOURNEY = "journey";
+
+    private static final String WRONG_OTP = " (wrong otp)";
+    // The description of a wrong sign in OTP ends with the session the service created in its place
+    private static final String NEW_SESSION_MARKER = "new session created : ";
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final LatencyReport report;
+
+    AuthJourney(HttpClient httpClient, ObjectMapper objectMapper, String baseUrl, LatencyReport report) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+        this.report = report;
+    }
+
+    /**
+     * Runs the journey of one user. Failures are counted in the report and end the journey.
+     *
+     * @param phoneNumber    the ten digit phone number of the user
+     * @param intendedStart  the nano time the journey was due, its latency counts from there so a late start is seen
+     * @param wrongSignUpOtp whether the user types a wrong OTP to confirm the sign up first
+     * @param wrongSignInOtp whether the user types a wrong OTP to confirm the sign in first
+     */
+    void run(String phoneNumber, long intendedStart, boolean wrongSignUpOtp, boolean wrongSignInOtp) {
+        try {
+            // The simulated Cognito expects the last six digits of the phone number
+            String otp = phoneNumber.substring(phoneNumber.length() - 6);
+
+            JsonNode registered = expectSuccess(REGISTER, post("/register", Map.of(
+                    "firstName", "Load", "lastName", "Test", "phoneNumber", phoneNumber), REGISTER));
+            String registerSessionId = registered.path("data").path("sessionId").asText();
+            if (wrongSignUpOtp) {
+                expectFailure(CONFIRM_REGISTER, post("/confirm-register", Map.of(
+                        "sessionId", registerSessionId, "confirmationCode", wrong(otp)), CONFIRM_REGISTER + WRONG_OTP));
+            }
+            expectSuccess(CONFIRM_REGISTER, post("/confirm-register", Map.of(
+                    "sessionId", registerSessionId, "confirmationCode", otp), CONFIRM_REGISTER));
+
+            JsonNode loggedIn = expectSuccess(LOGIN, get("/login?phoneNumber=" + phoneNumber, null, LOGIN));
+            String loginSessionId = loggedIn.path("data").path("sessionId").asText();
+            if (wrongSignInOtp) {
+                String description = expectFailure(CONFIRM_LOGIN, get("/confirm-login?sessionId=" + encode(loginSessionId) + "&otp=" + wrong(otp), null,
+                        CONFIRM_LOGIN + WRONG_OTP)).path("status").path("description").asText();
+                loginSessionId = description.substring(description.indexOf(NEW_SESSION_MARKER) + NEW_SESSION_MARKER.length());
+            }
+            JsonNode confirmed = expectSuccess(CONFIRM_LOGIN, get("/confirm-login?sessionId=" + encode(loginSessionId) + "&otp=" + otp, null, CONFIRM_LOGIN));
+            String authorization = "Bearer " + confirmed.path("data").path("accessToken").asText();
+
+            expectSuccess(REFRESH, get("/refresh-token", authorization, REFRESH));
+            expectSuccess(LOGOUT, get("/logout", authorization, LOGOUT));
+            report.recordEndpoint(JOURNEY, System.nanoTime() - intendedStart);
+        } catch (UnexpectedResponseException e) {
+            report.recordFailure(e.endpoint, e.getMessage());
+        } catch (IOException e) {
+            report.recordFailure(JOURNEY, e.getClass().getSimpleName());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private JsonNode post(String path, Map<String, String> body, String endpoint) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build(), endpoint);
+    }
+
+    private JsonNode get(String pathAndQuery, String authorization, String endpoint) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + pathAndQuery)).GET();
+        if (Objects.nonNull(authorization)) request.header("Authorization", authorization);
+        return send(request.build(), endpoint);
+    }
+
+    private JsonNode send(HttpRequest request, String endpoint) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        report.recordEndpoint(endpoint, System.nanoTime() - start);
+        if (response.statusCode() != 200) throw new UnexpectedResponseException(endpoint, "HTTP " + response.statusCode());
+        return objectMapper.readTree(response.body());
+    }
+
+    private static JsonNode expectSuccess(String endpoint, JsonNode response) {
+        if (!"SUCCESS".equals(response.path("status").path("status").asText())) {
+            throw new UnexpectedResponseException(endpoint, response.path("status").path("description").asText());
+        }
+        return response;
+    }
+
+    private static JsonNode expectFailure(String endpoint, JsonNode response) {
+        String description = response.path("status").path("description").asText();
+        if (!description.startsWith("Wrong OTP passed")) {
+            throw new UnexpectedResponseException(endpoint + WRONG_OTP, description.isEmpty() ? "accepted a wrong OTP" : description);
+        }
+        return response;
+    }
+
+    private static String wrong(String otp) {
+        return (char) ('0' + (otp.charAt(0) - '0' + 1) % 10) + otp.substring(1);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static class UnexpectedResponseException extends RuntimeException {
+
+        private final String endpoint;
+
+        UnexpectedResponseException(String endpoint, String reason) {
+            super(reason);
+            this.endpoint = endpoint;
+        }
+    }
+}
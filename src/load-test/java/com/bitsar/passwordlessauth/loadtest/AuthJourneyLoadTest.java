@@ -0,0 +1,152 @@
+package com.bitsar.passwordlessauth.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.bitsar.passwordlessauth.jfr.AuthFlowEvent;
+import com.bitsar.passwordlessauth.jfr.AuthStageEvent;
+import com.bitsar.passwordlessauth.jfr.CognitoCallEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ActiveProfilesResolver;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Drives register to logout journeys against the whole application over HTTP, with an in-process Mongo server and the
+ * simulated Cognito, so it runs on a laptop without network. Journeys arrive at a fixed rate whether or not earlier
+ * ones have finished (an open model), and a journey that starts late counts its delay, so a slow service shows up as
+ * latency rather than as fewer requests. Run with {@code mvn test -Pload-test}; the rate, durations, OTP failure
+ * ratios, session store and extra Spring profiles are {@code loadtest.*} properties of the profile, overridable with
+ * {@code -D}. {@code -Dloadtest.profiles=virtual} runs the same journeys on virtual threads, for a comparison with the
+ * Tomcat worker pool through the whole MVC stack.
+ * <p>
+ * Logs the percentiles per endpoint, and per flow, stage and Cognito operation from the flight recorder events of
+ * the service, and writes the full distributions and the recording to {@code target/load-test}.
+ */
+@Slf4j
+@Tag("load-test")
+@ActiveProfiles(resolver = AuthJourneyLoadTest.LoadTestProfiles.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "rate-limit.enabled=false",
+        "user-cache.change-stream.enabled=false",
+        "logging.level.com.bitsar.passwordlessauth=WARN",
+        "logging.level.com.bitsar.passwordlessauth.loadtest=INFO"
+})
+class AuthJourneyLoadTest {
+    private static final MongoServer MONGO_SERVER = new MongoServer(new MemoryBackend());
+
+    private final double arrivalRate = Double.parseDouble(System.getProperty("loadtest.arrival-rate", "20"));
+    private final long warmupSeconds = Long.getLong("loadtest.warmup-seconds", 10);
+    private final long durationSeconds = Long.getLong("loadtest.duration-seconds", 60);
+    private final double signUpOtpFailureRatio = Double.parseDouble(System.getProperty("loadtest.sign-up-otp-failure-ratio", "0.1"));
+    private final double signInOtpFailureRatio = Double.parseDouble(System.getProperty("loadtest.sign-in-otp-failure-ratio", "0.15"));
+    private final Path reportDirectory = Path.of(System.getProperty("loadtest.report-directory", "target/load-test"));
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        String connectionString = MONGO_SERVER.bindAndGetConnectionString();
+        registry.add("spring.data.mongodb.uri", () -> connectionString + "/passwordless-auth");
+        registry.add("session.store", () -> System.getProperty("loadtest.session-store", "mongo"));
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        MONGO_SERVER.shutdownNow();
+    }
+
+    /**
+     * Method under test: the register, confirm register, login, confirm login, refresh token and logout endpoints,
+     * under a fixed arrival rate of journeys.
+     */
+    @Test
+    void testAuthJourneysAtFixedArrivalRate() throws Exception {
+        // Arrange
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        ObjectMapper objectMapper = new ObjectMapper();
+        String baseUrl = "http://localhost:" + port + "/api/v1/auth";
+        LatencyReport report = new LatencyReport();
+        AuthJourney warmupJourney = new AuthJourney(httpClient, objectMapper, baseUrl, new LatencyReport());
+        AuthJourney measuredJourney = new AuthJourney(httpClient, objectMapper, baseUrl, report);
+        // Unbounded, arrivals never wait for a free thread
+        ExecutorService users = Executors.newCachedThreadPool();
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / arrivalRate);
+        long warmupJourneys = (long) (warmupSeconds * arrivalRate);
+        long journeys = warmupJourneys + (long) (durationSeconds * arrivalRate);
+        Recording recording = new Recording();
+        recording.enable(AuthFlowEvent.NAME).withThreshold(Duration.ZERO);
+        recording.enable(AuthStageEvent.NAME).withThreshold(Duration.ZERO);
+        recording.enable(CognitoCallEvent.NAME).withThreshold(Duration.ZERO);
+
+        // Act
+        long start = System.nanoTime();
+        for (long journey = 0; journey < journeys; journey++) {
+            long intendedStart = start + journey * intervalNanos;
+            LockSupport.parkNanos(intendedStart - System.nanoTime());
+            if (journey == warmupJourneys) recording.start();
+            AuthJourney authJourney = journey < warmupJourneys ? warmupJourney : measuredJourney;
+            String phoneNumber = String.valueOf(9_000_000_000L + journey);
+            boolean wrongSignUpOtp = ThreadLocalRandom.current().nextDouble() < signUpOtpFailureRatio;
+            boolean wrongSignInOtp = ThreadLocalRandom.current().nextDouble() < signInOtpFailureRatio;
+            users.execute(() -> authJourney.run(phoneNumber, intendedStart, wrongSignUpOtp, wrongSignInOtp));
+        }
+        users.shutdown();
+        boolean finished = users.awaitTermination(2, TimeUnit.MINUTES);
+        recording.stop();
+        Path recordingFile = reportDirectory.resolve("load-test.jfr");
+        reportDirectory.toFile().mkdirs();
+        recording.dump(recordingFile);
+        recording.close();
+
+        // Assert
+        report.recordStages(recordingFile);
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        report.write(new PrintStream(table, true, StandardCharsets.UTF_8), durationSeconds, reportDirectory);
+        log.info("{} journeys arriving at {} per second with profiles {}, {} s warm up, {} s measured{}",
+                journeys - warmupJourneys, arrivalRate, String.join(",", new LoadTestProfiles().resolve(getClass())),
+                warmupSeconds, durationSeconds, table.toString(StandardCharsets.UTF_8));
+        assertTrue(finished, "Journeys still running two minutes after the last arrival");
+        assertEquals(0, report.failureCount());
+        assertEquals(journeys - warmupJourneys, report.count(AuthJourney.JOURNEY));
+    }
+
+    /**
+     * Runs the service with the simulated Cognito and the profiles listed in {@code loadtest.profiles}.
+     */
+    static class LoadTestProfiles implements ActiveProfilesResolver {
+
+        @Override
+        public String[] resolve(Class<?> testClass) {
+            return Stream.concat(Stream.of("simulated"), Arrays.stream(System.getProperty("loadtest.profiles", "").split(",")))
+                    .map(String::trim)
+                    .filter(profile -> !profile.isEmpty())
+                    .distinct()
+                    .toArray(String[]::new);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.bitsar.passwordlessauth.loadtest;
+
+import com.bitsar.passwordlessauth.jfr.AuthFlowEvent;
+import com.bitsar.passwordlessauth.jfr.AuthStageEvent;
+import com.bitsar.passwordlessauth.jfr.CognitoCallEvent;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms of a load test, in microseconds: one per endpoint as the client saw it, and one per flow, stage
+ * and Cognito operation as the service recorded them in its flight recorder events. Counts the unexpected failures of
+ * each endpoint.
+ */
+class LatencyReport {
+
+    // Up to a minute, at three significant digits
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final Map<String, Histogram> endpoints = new ConcurrentSkipListMap<>();
+    private final Map<String, Histogram> stages = new ConcurrentSkipListMap<>();
+    private final Map<String, AtomicLong> failures = new ConcurrentSkipListMap<>();
+
+    void recordEndpoint(String endpoint, long nanos) {
+        record(endpoints, endpoint, nanos);
+    }
+
+    void recordFailure(String endpoint, String reason) {
+        failures.computeIfAbsent(endpoint + ": " + reason, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    long failureCount() {
+        return failures.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    long count(String endpoint) {
+        Histogram histogram = endpoints.get(endpoint);
+        return Objects.isNull(histogram) ? 0 : histogram.getTotalCount();
+    }
+
+    /**
+     * Adds the durations of the flow, stage and Cognito call events of a flight recording.
+     */
+    void recordStages(Path recording) throws IOException {
+        for (RecordedEvent event : RecordingFile.readAllEvents(recording)) {
+            long nanos = event.getDuration().toNanos();
+            switch (event.getEventType().getName()) {
+                case AuthFlowEvent.NAME -> record(stages, "flow " + event.getString("flow"), nanos);
+                case AuthStageEvent.NAME -> record(stages, "stage " + flowOf(event) + " " + event.getString("stage"), nanos);
+                case CognitoCallEvent.NAME -> record(stages, "cognito " + event.getString("operation"), nanos);
+                default -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints the percentiles of every histogram and the failures, and writes the full distribution of each histogram
+     * to a {@code .hgrm} file in the directory, in milliseconds, for the HdrHistogram plotter.
+     */
+    void write(PrintStream out, double seconds, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        out.printf("%n%-58s %8s %9s %9s %9s %9s %9s %9s%n", "Endpoint", "Count", "Per sec", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "Max ms");
+        for (Map.Entry<String, Histogram> endpoint : endpoints.entrySet()) {
+            print(out, endpoint.getKey(), endpoint.getValue(), seconds);
+            writeDistribution(directory.resolve("endpoint-" + fileName(endpoint.getKey()) + ".hgrm"), endpoint.getValue());
+        }
+        out.printf("%n%-58s %8s %9s %9s %9s %9s %9s %9s%n", "Flow, stage and Cognito call", "Count", "Per sec", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "Max ms");
+        for (Map.Entry<String, Histogram> stage : stages.entrySet()) {
+            print(out, stage.getKey(), stage.getValue(), seconds);
+            writeDistribution(directory.resolve(fileName(stage.getKey()) + ".hgrm"), stage.getValue());
+        }
+        if (!failures.isEmpty()) {
+            out.printf("%nUnexpected failures%n");
+            failures.forEach((failure, count) -> out.printf("%8d  %s%n", count.get(), failure));
+        }
+    }
+
+    private static void record(Map<String, Histogram> histograms, String name, long nanos) {
+        histograms.computeIfAbsent(name, key -> new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3))
+                .recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    private static void print(PrintStream out, String name, Histogram histogram, double seconds) {
+        out.printf("%-58s %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(90) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+                histogram.getMaxValue() / MICROS_PER_MILLI);
+    }
+
+    private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+
+    // User and session stages also run outside the auth flows, for introspection and the reaper
+    private static String flowOf(RecordedEvent event) {
+        String flow = event.getString("flow");
+        return Objects.isNull(flow) ? "-" : flow;
+    }
+
+    private static String fileName(String name) {
+        return name.replaceAll("[^A-Za-z0-9-]+", "-").replaceAll("-+$", "");
+    }
+}
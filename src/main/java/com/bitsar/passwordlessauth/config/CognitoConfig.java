@@ -1,18 +1,88 @@
 package com.bitsar.passwordlessauth.config;
 
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.regions.Regions;
+import com.amazonaws.retry.PredefinedRetryPolicies;
 import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProvider;
+import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProviderAsync;
+import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProviderAsyncClientBuilder;
 import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProviderClientBuilder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.concurrent.Executors;
 
 @Configuration
 public class CognitoConfig {
 
+    @Value("${cognito.transport.max-connections}")
+    private int maxConnections;
+    @Value("${cognito.transport.connection-timeout-ms}")
+    private int connectionTimeoutMs;
+    @Value("${cognito.transport.socket-timeout-ms}")
+    private int socketTimeoutMs;
+    @Value("${cognito.transport.request-timeout-ms}")
+    private int requestTimeoutMs;
+    @Value("${cognito.transport.client-execution-timeout-ms}")
+    private int clientExecutionTimeoutMs;
+    @Value("${cognito.transport.connection-ttl-ms}")
+    private long connectionTtlMs;
+    @Value("${cognito.transport.connection-max-idle-ms}")
+    private long connectionMaxIdleMs;
+    @Value("${cognito.transport.tcp-keep-alive}")
+    private boolean tcpKeepAlive;
+    @Value("${cognito.transport.max-error-retry}")
+    private int maxErrorRetry;
+    @Value("${cognito.transport.max-consecutive-retries-before-throttling}")
+    private int maxConsecutiveRetriesBeforeThrottling;
+
     @Bean
+    @Profile("!async & !reactive & !simulated")
     public AWSCognitoIdentityProvider cognitoClient() {
         return AWSCognitoIdentityProviderClientBuilder.standard()
                 .withRegion(Regions.US_EAST_1)
+                .withClientConfiguration(clientConfiguration())
                 .build();
     }
+
+    /**
+     * Async client used by the "async" and "reactive" profiles. It also implements the synchronous API, so it replaces
+     * {@link #cognitoClient()} for every consumer of {@link AWSCognitoIdentityProvider}.
+     *
+     * @param maxThreads the number of SDK threads completing Cognito calls
+     * @return the async Cognito client
+     */
+    @Bean
+    @Profile("(async | reactive) & !simulated")
+    public AWSCognitoIdentityProviderAsync cognitoAsyncClient(@Value("${cognito.async.max-threads}") int maxThreads) {
+        return AWSCognitoIdentityProviderAsyncClientBuilder.standard()
+                .withRegion(Regions.US_EAST_1)
+                .withClientConfiguration(clientConfiguration())
+                .withExecutorFactory(() -> Executors.newFixedThreadPool(maxThreads))
+                .build();
+    }
+
+    /**
+     * Builds the HTTP transport settings shared by the sync and async clients.
+     * Throttled retries give the client one retry budget: once it is spent, failing calls are no longer retried,
+     * so a Cognito brownout is not amplified by our own retries.
+     *
+     * @return the client configuration
+     */
+    private ClientConfiguration clientConfiguration() {
+        return new ClientConfiguration()
+                .withMaxConnections(maxConnections)
+                .withConnectionTimeout(connectionTimeoutMs)
+                .withSocketTimeout(socketTimeoutMs)
+                .withRequestTimeout(requestTimeoutMs)
+                .withClientExecutionTimeout(clientExecutionTimeoutMs)
+                .withConnectionTTL(connectionTtlMs)
+                .withConnectionMaxIdleMillis(connectionMaxIdleMs)
+                .withTcpKeepAlive(tcpKeepAlive)
+                .withRetryPolicy(PredefinedRetryPolicies.getDefaultRetryPolicyWithCustomMaxRetries(maxErrorRetry))
+                .withThrottledRetries(true)
+                .withMaxConsecutiveRetriesBeforeThrottling(maxConsecutiveRetriesBeforeThrottling);
+    }
 }
@@ -0,0 +1,22 @@
+package com.bitsar.passwordlessauth.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Records the methods of classes annotated with {@link io.micrometer.core.annotation.Timed}: the auth flows and the
+     * data access classes. Each method gets its own timer, tagged with the class, the method and the exception thrown.
+     *
+     * @param meterRegistry the registry the timers are recorded in
+     * @return the aspect
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
@@ -0,0 +1,36 @@
+package com.bitsar.passwordlessauth.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * The "reactive" profile runs the WebFlux stack. Tomcat is on the classpath for the servlet stack and Spring Boot
+ * prefers it over Netty, which would serve WebFlux through the servlet adapter, so Netty is declared explicitly.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+
+    @Value("${session.store:mongo}")
+    private String sessionStore;
+
+    /**
+     * The reactive auth service writes sessions through the reactive Mongo client, an in-memory session store would
+     * leave introspection reading sessions the auth endpoints never wrote.
+     */
+    @PostConstruct
+    public void requireMongoSessionStore() {
+        if (!"mongo".equals(sessionStore)) {
+            throw new IllegalStateException("The reactive profile needs session.store=mongo, configured " + sessionStore);
+        }
+    }
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,36 @@
+package com.bitsar.passwordlessauth.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * The "virtual" profile serves requests on virtual threads through {@code spring.threads.virtual.enabled}, so the
+ * blocking Mongo and Cognito calls of a request park a virtual thread instead of holding a Tomcat worker.
+ */
+@Slf4j
+@Configuration
+@Profile("virtual")
+public class VirtualThreadConfig {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    /**
+     * Spring Boot quietly keeps platform threads when virtual threads are requested on a JVM older than 21, the profile
+     * refuses to start instead so a deployment never runs in a mode it did not ask for.
+     */
+    @PostConstruct
+    public void requireVirtualThreads() {
+        int javaVersion = Runtime.version().feature();
+        if (javaVersion < 21) {
+            throw new IllegalStateException("The virtual profile needs Java 21 or newer, running on Java " + javaVersion);
+        }
+        if (!virtualThreadsEnabled) {
+            throw new IllegalStateException("The virtual profile needs spring.threads.virtual.enabled=true");
+        }
+        log.info("Serving requests on virtual threads");
+    }
+}
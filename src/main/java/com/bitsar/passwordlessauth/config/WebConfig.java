@@ -0,0 +1,30 @@
+package com.bitsar.passwordlessauth.config;
+
+import com.bitsar.passwordlessauth.helper.AdminApiKeyInterceptor;
+import com.bitsar.passwordlessauth.helper.RateLimitInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final RateLimitInterceptor rateLimitInterceptor;
+    private final AdminApiKeyInterceptor adminApiKeyInterceptor;
+
+    /**
+     * Rate limits the endpoints that can trigger an SMS: register and login, and the confirm endpoints, which send a new
+     * OTP when a wrong one is entered. The admin endpoints need the admin API key.
+     *
+     * @param registry the interceptor registry
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(rateLimitInterceptor)
+                .addPathPatterns("/api/v1/auth/register", "/api/v1/auth/confirm-register", "/api/v1/auth/login", "/api/v1/auth/confirm-login");
+        registry.addInterceptor(adminApiKeyInterceptor)
+                .addPathPatterns("/api/v1/admin/**");
+    }
+}
@@ -2,8 +2,6 @@ package com.bitsar.passwordlessauth.constants;
 
 
 public class AuthConstants {
-    public static final String TEN_DIGIT_REGEX = "\\d{10}";
-    public static final String INDIAN_COUNTRY_CODE = "+91";
     public static final String HMAC_SHA256_ALGORITHM = "HmacSHA256";
     public static final String SUCCESS_STATUS = "SUCCESS";
     public static final String SECRET_HASH_ATTRIBUTE = "SECRET_HASH";
@@ -0,0 +1,79 @@
+package com.bitsar.passwordlessauth.controller;
+
+import com.bitsar.passwordlessauth.dto.ResponseWrap;
+import com.bitsar.passwordlessauth.dto.request.BatchIntrospectRequestDto;
+import com.bitsar.passwordlessauth.dto.request.ConfirmRegisterRequestDto;
+import com.bitsar.passwordlessauth.dto.request.IntrospectRequestDto;
+import com.bitsar.passwordlessauth.dto.request.RegisterRequestDto;
+import com.bitsar.passwordlessauth.dto.response.*;
+import com.bitsar.passwordlessauth.helper.JwtVerifier;
+import com.bitsar.passwordlessauth.service.AuthService;
+import com.bitsar.passwordlessauth.service.IntrospectionService;
+import com.bitsar.passwordlessauth.util.JwtUtil;
+import com.bitsar.passwordlessauth.util.ResponseBuilder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Same endpoints as {@link AuthController}, active with the "async" profile. Handlers return deferred results so the
+ * servlet thread is released while Cognito is being called.
+ */
+@RestController
+@Profile("async & !reactive")
+@RequestMapping("/api/v1/auth")
+@RequiredArgsConstructor
+public class AsyncAuthController {
+
+    public final AuthService authService;
+    public final JwtVerifier jwtVerifier;
+    public final IntrospectionService introspectionService;
+
+    @PostMapping("/register")
+    public CompletableFuture<ResponseEntity<ResponseWrap<RegisterResponseDto>>> register(@RequestBody RegisterRequestDto registerRequestDto) {
+        return authService.signUpAsync(registerRequestDto).thenApply(ResponseBuilder::getSuccessfulResponse);
+    }
+
+    @PostMapping("/confirm-register")
+    public CompletableFuture<ResponseEntity<ResponseWrap<ConfirmRegisterResponseDto>>> confirmRegister(@RequestBody ConfirmRegisterRequestDto confirmRegisterRequestDto) {
+        return authService.confirmSignUpAsync(confirmRegisterRequestDto).thenApply(ResponseBuilder::getSuccessfulResponse);
+    }
+
+    @GetMapping("/login")
+    public CompletableFuture<ResponseEntity<ResponseWrap<LoginResponseDto>>> login(@RequestParam String phoneNumber) {
+        return authService.signInAsync(phoneNumber).thenApply(ResponseBuilder::getSuccessfulResponse);
+    }
+
+    @GetMapping("/confirm-login")
+    public CompletableFuture<ResponseEntity<ResponseWrap<ConfirmLoginResponseDto>>> confirmLogin(@RequestParam String sessionId, @RequestParam String otp) {
+        return authService.confirmSignInAsync(sessionId, otp).thenApply(ResponseBuilder::getSuccessfulResponse);
+    }
+
+    @GetMapping("/refresh-token")
+    public CompletableFuture<ResponseEntity<ResponseWrap<ConfirmLoginResponseDto>>> refreshToken(@RequestHeader("Authorization") String accessToken) {
+        String cognitoUserName = JwtUtil.getUsername(jwtVerifier.verifyForRefresh(accessToken));
+        return authService.refreshTokenAsync(cognitoUserName).thenApply(ResponseBuilder::getSuccessfulResponse);
+    }
+
+    @GetMapping("/logout")
+    public CompletableFuture<ResponseEntity<ResponseWrap<ConfirmLogoutResponseDto>>> logout(@RequestHeader("Authorization") String accessToken) {
+        return authService.logoutAsync(accessToken.replace("Bearer", "").trim(), JwtUtil.getUsername(jwtVerifier.verify(accessToken)))
+                .thenApply(ResponseBuilder::getSuccessfulResponse);
+    }
+
+    /**
+     * Introspection is answered from memory and does not call Cognito, so it is served synchronously.
+     */
+    @PostMapping("/introspect")
+    public ResponseEntity<ResponseWrap<IntrospectResponseDto>> introspect(@RequestBody IntrospectRequestDto introspectRequestDto) {
+        return ResponseBuilder.getSuccessfulResponse(introspectionService.introspect(introspectRequestDto.getToken()));
+    }
+
+    @PostMapping("/introspect/batch")
+    public ResponseEntity<ResponseWrap<BatchIntrospectResponseDto>> introspectBatch(@RequestBody BatchIntrospectRequestDto batchIntrospectRequestDto) {
+        return ResponseBuilder.getSuccessfulResponse(introspectionService.introspectBatch(batchIntrospectRequestDto));
+    }
+}
@@ -1,22 +1,30 @@
 package com.bitsar.passwordlessauth.controller;
 
 import com.bitsar.passwordlessauth.dto.ResponseWrap;
+import com.bitsar.passwordlessauth.dto.request.BatchIntrospectRequestDto;
 import com.bitsar.passwordlessauth.dto.request.ConfirmRegisterRequestDto;
+import com.bitsar.passwordlessauth.dto.request.IntrospectRequestDto;
 import com.bitsar.passwordlessauth.dto.request.RegisterRequestDto;
 import com.bitsar.passwordlessauth.dto.response.*;
+import com.bitsar.passwordlessauth.helper.JwtVerifier;
 import com.bitsar.passwordlessauth.service.AuthService;
+import com.bitsar.passwordlessauth.service.IntrospectionService;
 import com.bitsar.passwordlessauth.util.JwtUtil;
 import com.bitsar.passwordlessauth.util.ResponseBuilder;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
+@Profile("!async & !reactive")
 @RequestMapping("/api/v1/auth")
 @RequiredArgsConstructor
 public class AuthController {
 
     public final AuthService authService;
+    public final JwtVerifier jwtVerifier;
+    public final IntrospectionService introspectionService;
 
     @PostMapping("/register")
     public ResponseEntity<ResponseWrap<RegisterResponseDto>> register(@RequestBody RegisterRequestDto registerRequestDto) {
@@ -39,11 +47,21 @@ public class AuthController {
     }
     @GetMapping("/refresh-token")
     public ResponseEntity<ResponseWrap<ConfirmLoginResponseDto>> refreshToken(@RequestHeader("Authorization") String accessToken) {
-        String cognitoUserName = JwtUtil.getUsernameFromToken(accessToken);
+        String cognitoUserName = JwtUtil.getUsername(jwtVerifier.verifyForRefresh(accessToken));
         return ResponseBuilder.getSuccessfulResponse(authService.refreshToken(cognitoUserName));
     }
     @GetMapping("/logout")
     public ResponseEntity<ResponseWrap<ConfirmLogoutResponseDto>> logout(@RequestHeader("Authorization") String accessToken) {
-        return ResponseBuilder.getSuccessfulResponse(authService.logout(accessToken.replace("Bearer", "").trim(), JwtUtil.getUsernameFromToken(accessToken)));
+        return ResponseBuilder.getSuccessfulResponse(authService.logout(accessToken.replace("Bearer", "").trim(), JwtUtil.getUsername(jwtVerifier.verify(accessToken))));
+    }
+
+    @PostMapping("/introspect")
+    public ResponseEntity<ResponseWrap<IntrospectResponseDto>> introspect(@RequestBody IntrospectRequestDto introspectRequestDto) {
+        return ResponseBuilder.getSuccessfulResponse(introspectionService.introspect(introspectRequestDto.getToken()));
+    }
+
+    @PostMapping("/introspect/batch")
+    public ResponseEntity<ResponseWrap<BatchIntrospectResponseDto>> introspectBatch(@RequestBody BatchIntrospectRequestDto batchIntrospectRequestDto) {
+        return ResponseBuilder.getSuccessfulResponse(introspectionService.introspectBatch(batchIntrospectRequestDto));
     }
 }
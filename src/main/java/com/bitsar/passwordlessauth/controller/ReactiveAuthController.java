@@ -0,0 +1,113 @@
+package com.bitsar.passwordlessauth.controller;
+
+import com.bitsar.passwordlessauth.dto.ResponseWrap;
+import com.bitsar.passwordlessauth.dto.request.BatchIntrospectRequestDto;
+import com.bitsar.passwordlessauth.dto.request.ConfirmRegisterRequestDto;
+import com.bitsar.passwordlessauth.dto.request.IntrospectRequestDto;
+import com.bitsar.passwordlessauth.dto.request.RegisterRequestDto;
+import com.bitsar.passwordlessauth.dto.response.*;
+import com.bitsar.passwordlessauth.helper.JwtVerifier;
+import com.bitsar.passwordlessauth.helper.RequestRateLimiter;
+import com.bitsar.passwordlessauth.service.IntrospectionService;
+import com.bitsar.passwordlessauth.service.ReactiveAuthService;
+import com.bitsar.passwordlessauth.util.JwtUtil;
+import com.bitsar.passwordlessauth.util.ResponseBuilder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.InetSocketAddress;
+import java.util.Objects;
+
+/**
+ * Same endpoints as {@link AuthController} on WebFlux, active with the "reactive" profile. The SMS sending endpoints
+ * apply the per IP and global rate limits here, since the servlet interceptor does not run on WebFlux.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/v1/auth")
+@RequiredArgsConstructor
+public class ReactiveAuthController {
+
+    public final ReactiveAuthService reactiveAuthService;
+    public final JwtVerifier jwtVerifier;
+    public final IntrospectionService introspectionService;
+    public final RequestRateLimiter requestRateLimiter;
+
+    @PostMapping("/register")
+    public Mono<ResponseEntity<ResponseWrap<RegisterResponseDto>>> register(@RequestBody RegisterRequestDto registerRequestDto, ServerHttpRequest request) {
+        return checkClient(request)
+                .then(reactiveAuthService.signUp(registerRequestDto))
+                .map(ResponseBuilder::getSuccessfulResponse);
+    }
+
+    @PostMapping("/confirm-register")
+    public Mono<ResponseEntity<ResponseWrap<ConfirmRegisterResponseDto>>> confirmRegister(@RequestBody ConfirmRegisterRequestDto confirmRegisterRequestDto, ServerHttpRequest request) {
+        return checkClient(request)
+                .then(reactiveAuthService.confirmSignUp(confirmRegisterRequestDto))
+                .map(ResponseBuilder::getSuccessfulResponse);
+    }
+
+    @GetMapping("/login")
+    public Mono<ResponseEntity<ResponseWrap<LoginResponseDto>>> login(@RequestParam String phoneNumber, ServerHttpRequest request) {
+        return checkClient(request)
+                .then(reactiveAuthService.signIn(phoneNumber))
+                .map(ResponseBuilder::getSuccessfulResponse);
+    }
+
+    @GetMapping("/confirm-login")
+    public Mono<ResponseEntity<ResponseWrap<ConfirmLoginResponseDto>>> confirmLogin(@RequestParam String sessionId, @RequestParam String otp, ServerHttpRequest request) {
+        return checkClient(request)
+                .then(reactiveAuthService.confirmSignIn(sessionId, otp))
+                .map(ResponseBuilder::getSuccessfulResponse);
+    }
+
+    /**
+     * Verifying a token may wait for the JWKS to load, for the first token or an unknown key id, so it runs off the
+     * event loop.
+     */
+    @GetMapping("/refresh-token")
+    public Mono<ResponseEntity<ResponseWrap<ConfirmLoginResponseDto>>> refreshToken(@RequestHeader("Authorization") String accessToken) {
+        return Mono.fromCallable(() -> JwtUtil.getUsername(jwtVerifier.verifyForRefresh(accessToken)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(reactiveAuthService::refreshToken)
+                .map(ResponseBuilder::getSuccessfulResponse);
+    }
+
+    @GetMapping("/logout")
+    public Mono<ResponseEntity<ResponseWrap<ConfirmLogoutResponseDto>>> logout(@RequestHeader("Authorization") String accessToken) {
+        return Mono.fromCallable(() -> JwtUtil.getUsername(jwtVerifier.verify(accessToken)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(cognitoUserName -> reactiveAuthService.logout(accessToken.replace("Bearer", "").trim(), cognitoUserName))
+                .map(ResponseBuilder::getSuccessfulResponse);
+    }
+
+    /**
+     * Introspection reads the session store through the blocking DAOs on a cache miss, so it runs off the event loop.
+     */
+    @PostMapping("/introspect")
+    public Mono<ResponseEntity<ResponseWrap<IntrospectResponseDto>>> introspect(@RequestBody IntrospectRequestDto introspectRequestDto) {
+        return Mono.fromCallable(() -> introspectionService.introspect(introspectRequestDto.getToken()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(ResponseBuilder::getSuccessfulResponse);
+    }
+
+    @PostMapping("/introspect/batch")
+    public Mono<ResponseEntity<ResponseWrap<BatchIntrospectResponseDto>>> introspectBatch(@RequestBody BatchIntrospectRequestDto batchIntrospectRequestDto) {
+        return Mono.fromCallable(() -> introspectionService.introspectBatch(batchIntrospectRequestDto))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(ResponseBuilder::getSuccessfulResponse);
+    }
+
+    private Mono<Void> checkClient(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        String clientIp = Objects.isNull(remoteAddress) || Objects.isNull(remoteAddress.getAddress())
+                ? String.valueOf(remoteAddress)
+                : remoteAddress.getAddress().getHostAddress();
+        return requestRateLimiter.checkClientReactive(clientIp);
+    }
+}
@@ -0,0 +1,38 @@
+package com.bitsar.passwordlessauth.controller;
+
+import com.bitsar.passwordlessauth.dto.ResponseWrap;
+import com.bitsar.passwordlessauth.dto.response.UserImportJobResponseDto;
+import com.bitsar.passwordlessauth.service.UserImportService;
+import com.bitsar.passwordlessauth.util.ResponseBuilder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+
+/**
+ * Bulk user import for migrations. The request body is streamed to disk and imported in the background, progress is
+ * polled with the returned job id. The body is read as a blocking stream, so the endpoint is not served by the
+ * "reactive" profile.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/v1/admin/users/import")
+@RequiredArgsConstructor
+public class UserImportController {
+
+    public final UserImportService userImportService;
+
+    @PostMapping
+    public ResponseEntity<ResponseWrap<UserImportJobResponseDto>> importUsers(@RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+                                                                              InputStream body) {
+        return ResponseBuilder.getSuccessfulResponse(userImportService.submit(body, contentType));
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ResponseWrap<UserImportJobResponseDto>> importProgress(@PathVariable String jobId) {
+        return ResponseBuilder.getSuccessfulResponse(userImportService.getJob(jobId));
+    }
+}
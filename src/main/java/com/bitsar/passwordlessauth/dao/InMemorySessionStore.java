@@ -0,0 +1,220 @@
+package com.bitsar.passwordlessauth.dao;
+
+import com.bitsar.passwordlessauth.entity.User;
+import com.bitsar.passwordlessauth.entity.UserSession;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Sessions held in the instance, for single node deployments and benchmarks. Sessions are kept by session id in a
+ * {@link ConcurrentHashMap} with two key maps pointing at the session id, by phone number and by Cognito username. Writes of
+ * one phone number are serialised on the bin of its phone number key, so a login replacing a session and a logout
+ * deleting it cannot interleave; lookups take no lock. Expired sessions are purged on a fixed delay, the same way the
+ * TTL index purges them from Mongo. Sessions are lost on restart.
+ */
+@Slf4j
+@Component
+@Timed("auth.dao")
+@ConditionalOnProperty(name = "session.store", havingValue = "memory")
+public class InMemorySessionStore implements SessionStore {
+
+    private final ConcurrentMap<String, UserSession> sessionsBySessionId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> sessionIdsByPhoneNumber = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> sessionIdsByCognitoUserName = new ConcurrentHashMap<>();
+
+    @Override
+    public UserSession findAndUpdateAndSaveSession(UserSession userSession) {
+        String sessionId = sessionIdsByPhoneNumber.compute(userSession.getPhoneNumber(), (phoneNumber, existingSessionId) -> {
+            UserSession previous = Objects.isNull(existingSessionId) ? null : sessionsBySessionId.remove(existingSessionId);
+            String newSessionId = new ObjectId().toHexString();
+            // A new login keeps the id, gets a new session id and drops the tokens of the previous login
+            UserSession stored = UserSession.builder()
+                    .id(Objects.isNull(previous) ? new ObjectId().toHexString() : previous.getId())
+                    .sessionId(newSessionId)
+                    .session(userSession.getSession())
+                    .phoneNumber(phoneNumber)
+                    .cognitoUserName(userSession.getCognitoUserName())
+                    .firstName(userSession.getFirstName())
+                    .lastName(userSession.getLastName())
+                    .expiresAt(userSession.getExpiresAt())
+                    .build();
+            sessionsBySessionId.put(newSessionId, stored);
+            relinkCognitoUserName(previous, stored);
+            return newSessionId;
+        });
+        return findBySessionId(sessionId);
+    }
+
+    @Override
+    public UserSession findBySessionId(String sessionId) {
+        return Objects.isNull(sessionId) ? null : copy(sessionsBySessionId.get(sessionId));
+    }
+
+    @Override
+    public UserSession findByPhoneNumber(String phoneNumber) {
+        return findByKey(sessionIdsByPhoneNumber, phoneNumber);
+    }
+
+    @Override
+    public UserSession findByCognitoUserName(String cognitoUserName) {
+        return findByKey(sessionIdsByCognitoUserName, cognitoUserName);
+    }
+
+    @Override
+    public void updateSession(UserSession userSession) {
+        if (Objects.isNull(userSession.getSessionId())) return;
+        UserSession current = sessionsBySessionId.get(userSession.getSessionId());
+        if (Objects.isNull(current)) return;
+        sessionIdsByPhoneNumber.computeIfPresent(current.getPhoneNumber(), (phoneNumber, sessionId) -> {
+            // The session may have been deleted, or replaced by a new login, since it was read
+            UserSession previous = sessionsBySessionId.get(userSession.getSessionId());
+            if (!sessionId.equals(userSession.getSessionId()) || Objects.isNull(previous)) return sessionId;
+            UserSession updated = copy(previous);
+            if (Objects.nonNull(userSession.getAccessToken())) updated.setAccessToken(userSession.getAccessToken());
+            if (Objects.nonNull(userSession.getIdToken())) updated.setIdToken(userSession.getIdToken());
+            if (Objects.nonNull(userSession.getRefreshToken())) updated.setRefreshToken(userSession.getRefreshToken());
+            if (Objects.nonNull(userSession.getTimeStamp())) updated.setTimeStamp(userSession.getTimeStamp());
+            if (Objects.nonNull(userSession.getExpiresAt())) updated.setExpiresAt(userSession.getExpiresAt());
+            if (Objects.nonNull(userSession.getCognitoUserName())) updated.setCognitoUserName(userSession.getCognitoUserName());
+            if (Objects.nonNull(userSession.getFirstName())) updated.setFirstName(userSession.getFirstName());
+            if (Objects.nonNull(userSession.getLastName())) updated.setLastName(userSession.getLastName());
+            sessionsBySessionId.put(sessionId, updated);
+            relinkCognitoUserName(previous, updated);
+            return sessionId;
+        });
+    }
+
+    @Override
+    public void updateProfile(User user) {
+        sessionIdsByPhoneNumber.computeIfPresent(user.getPhoneNumber(), (phoneNumber, sessionId) -> {
+            UserSession previous = sessionsBySessionId.get(sessionId);
+            if (Objects.isNull(previous)) return sessionId;
+            UserSession updated = copy(previous);
+            updated.setCognitoUserName(user.getCognitoUserName());
+            updated.setFirstName(user.getFirstName());
+            updated.setLastName(user.getLastName());
+            sessionsBySessionId.put(sessionId, updated);
+            relinkCognitoUserName(previous, updated);
+            return sessionId;
+        });
+    }
+
+    @Override
+    public long deleteByPhoneNumber(String phoneNumber) {
+        long[] deleted = new long[1];
+        sessionIdsByPhoneNumber.computeIfPresent(phoneNumber, (key, sessionId) -> {
+            UserSession removed = sessionsBySessionId.remove(sessionId);
+            if (Objects.nonNull(removed)) {
+                deleted[0] = 1;
+                relinkCognitoUserName(removed, null);
+            }
+            return null;
+        });
+        return deleted[0];
+    }
+
+    @Override
+    public long deleteByCognitoUserName(String cognitoUserName) {
+        UserSession userSession = findByCognitoUserName(cognitoUserName);
+        if (Objects.isNull(userSession)) return 0;
+        long[] deleted = new long[1];
+        sessionIdsByPhoneNumber.computeIfPresent(userSession.getPhoneNumber(), (phoneNumber, sessionId) -> {
+            // Only delete the session that still belongs to the Cognito username
+            UserSession current = sessionsBySessionId.get(sessionId);
+            if (Objects.isNull(current) || !cognitoUserName.equals(current.getCognitoUserName())) return sessionId;
+            sessionsBySessionId.remove(sessionId);
+            relinkCognitoUserName(current, null);
+            deleted[0] = 1;
+            return null;
+        });
+        return deleted[0];
+    }
+
+    @Override
+    public long deleteExpired(Instant now, LocalDateTime idleBefore, int limit) {
+        long deleted = 0;
+        for (UserSession userSession : sessionsBySessionId.values()) {
+            if (deleted >= limit) break;
+            if (isExpired(userSession, now, idleBefore) && deleteIfExpired(userSession.getPhoneNumber(), now, idleBefore)) deleted++;
+        }
+        return deleted;
+    }
+
+    @Override
+    public long countActive(Instant now) {
+        return sessionsBySessionId.values().stream()
+                .filter(userSession -> Objects.nonNull(userSession.getExpiresAt()) && userSession.getExpiresAt().isAfter(now))
+                .count();
+    }
+
+    /**
+     * Purges sessions whose expiry instant has passed. Sessions without one are left to the reaper, like the TTL index
+     * leaves documents without the field.
+     */
+    @Scheduled(fixedDelayString = "${session.memory.purge-interval-ms:60000}", initialDelayString = "${session.memory.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long purged = deleteExpired(Instant.now(), LocalDateTime.MIN, Integer.MAX_VALUE);
+        if (purged > 0) log.debug("Purged {} expired sessions", purged);
+    }
+
+    private boolean deleteIfExpired(String phoneNumber, Instant now, LocalDateTime idleBefore) {
+        boolean[] deleted = new boolean[1];
+        sessionIdsByPhoneNumber.computeIfPresent(phoneNumber, (key, sessionId) -> {
+            // Checked again under the lock, the session may have been refreshed since it was read
+            UserSession current = sessionsBySessionId.get(sessionId);
+            if (Objects.isNull(current) || !isExpired(current, now, idleBefore)) return sessionId;
+            sessionsBySessionId.remove(sessionId);
+            relinkCognitoUserName(current, null);
+            deleted[0] = true;
+            return null;
+        });
+        return deleted[0];
+    }
+
+    private UserSession findByKey(ConcurrentMap<String, String> sessionIds, String key) {
+        return findBySessionId(sessionIds.get(key));
+    }
+
+    private void relinkCognitoUserName(UserSession previous, UserSession current) {
+        if (Objects.nonNull(previous) && Objects.nonNull(previous.getCognitoUserName())) {
+            sessionIdsByCognitoUserName.remove(previous.getCognitoUserName(), previous.getSessionId());
+        }
+        if (Objects.nonNull(current) && Objects.nonNull(current.getCognitoUserName())) {
+            sessionIdsByCognitoUserName.put(current.getCognitoUserName(), current.getSessionId());
+        }
+    }
+
+    private static boolean isExpired(UserSession userSession, Instant now, LocalDateTime idleBefore) {
+        if (Objects.nonNull(userSession.getExpiresAt())) return userSession.getExpiresAt().isBefore(now);
+        return Objects.nonNull(userSession.getTimeStamp()) && userSession.getTimeStamp().isBefore(idleBefore);
+    }
+
+    // Stored sessions are never handed out, callers change the sessions they read
+    private static UserSession copy(UserSession userSession) {
+        if (Objects.isNull(userSession)) return null;
+        return UserSession.builder()
+                .id(userSession.getId())
+                .sessionId(userSession.getSessionId())
+                .session(userSession.getSession())
+                .phoneNumber(userSession.getPhoneNumber())
+                .cognitoUserName(userSession.getCognitoUserName())
+                .firstName(userSession.getFirstName())
+                .lastName(userSession.getLastName())
+                .accessToken(userSession.getAccessToken())
+                .idToken(userSession.getIdToken())
+                .refreshToken(userSession.getRefreshToken())
+                .timeStamp(userSession.getTimeStamp())
+                .expiresAt(userSession.getExpiresAt())
+                .build();
+    }
+}
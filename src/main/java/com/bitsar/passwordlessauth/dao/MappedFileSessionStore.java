@@ -0,0 +1,629 @@
+package com.bitsar.passwordlessauth.dao;
+
+import com.bitsar.passwordlessauth.entity.User;
+import com.bitsar.passwordlessauth.entity.UserSession;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Sessions persisted in a memory-mapped file, for single node installs that run without a session database.
+ * <p>
+ * The file is an append-only log: every write appends the whole new state of a session, tokens included, and a delete
+ * appends a delete record. Each record is framed by its length and a CRC32 of its body. Three
+ * {@link OffHeapSessionIndex} tables, by phone number, session id and Cognito username, point at the latest record of
+ * each session. Probes compare the UTF-8 bytes of the key with the mapped record, so a lookup decodes only the record
+ * it returns and the index adds no heap objects however many sessions there are.
+ * <p>
+ * On startup the log is replayed to rebuild the indexes. Replay stops at the first record whose frame or checksum is
+ * wrong, which is where a crash interrupted a write, and the log continues from there. Once superseded records take
+ * more space than live ones, the live records are copied to a new file that atomically replaces the old one.
+ * <p>
+ * Writes are serialised by a lock, reads share it. Mapped writes survive a crash of the process; set
+ * {@code session.mapped.sync-writes} to also force each write to disk.
+ */
+@Slf4j
+@Component
+@Timed("auth.dao")
+@ConditionalOnProperty(name = "session.store", havingValue = "mapped")
+public class MappedFileSessionStore implements SessionStore {
+
+    private static final int MAGIC = 0x53455353;
+    private static final int VERSION = 2;
+    private static final int FILE_HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final byte SESSION_RECORD = 1;
+    private static final byte DELETE_RECORD = 2;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Field positions in a session record, the lookup keys come first so probes skip little
+    private static final int SESSION_ID = 0;
+    private static final int PHONE_NUMBER = 1;
+    private static final int COGNITO_USER_NAME = 2;
+    private static final int ID = 3;
+    // The idle timestamp follows the ten string fields
+    private static final int TIME_STAMP = 10;
+
+    private final Path file;
+    private final long initialFileBytes;
+    private final int initialIndexCapacity;
+    private final long compactionMinDeadBytes;
+    private final boolean syncWrites;
+    private final int purgeBatchSize;
+    private final int purgeMaxBatchesPerRun;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private FileChannel channel;
+    private MappedByteBuffer data;
+    private int writePosition;
+    private long liveBytes;
+    private OffHeapSessionIndex byPhoneNumber;
+    private OffHeapSessionIndex bySessionId;
+    private OffHeapSessionIndex byCognitoUserName;
+    // Counts the files opened, a compaction moves every record to the file it opens
+    private long generation;
+
+    public MappedFileSessionStore(@Value("${session.mapped.file:${java.io.tmpdir}/sessions/sessions.dat}") String file,
+                                  @Value("${session.mapped.initial-file-bytes:67108864}") long initialFileBytes,
+                                  @Value("${session.mapped.initial-index-capacity:65536}") int initialIndexCapacity,
+                                  @Value("${session.mapped.compaction-min-dead-bytes:67108864}") long compactionMinDeadBytes,
+                                  @Value("${session.mapped.sync-writes:false}") boolean syncWrites,
+                                  @Value("${session.mapped.purge-batch-size:500}") int purgeBatchSize,
+                                  @Value("${session.mapped.purge-max-batches-per-run:20}") int purgeMaxBatchesPerRun) {
+        this.file = Path.of(file);
+        this.initialFileBytes = initialFileBytes;
+        this.initialIndexCapacity = initialIndexCapacity;
+        this.compactionMinDeadBytes = compactionMinDeadBytes;
+        this.syncWrites = syncWrites;
+        this.purgeBatchSize = purgeBatchSize;
+        this.purgeMaxBatchesPerRun = purgeMaxBatchesPerRun;
+        try {
+            Files.createDirectories(this.file.toAbsolutePath().getParent());
+            // A compaction interrupted before its rename leaves a partial copy, the original is still complete
+            Files.deleteIfExists(compactionFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to prepare session file " + file, e);
+        }
+        open();
+    }
+
+    @Override
+    public UserSession findAndUpdateAndSaveSession(UserSession userSession) {
+        lock.writeLock().lock();
+        try {
+            long previous = locate(byPhoneNumber, PHONE_NUMBER, userSession.getPhoneNumber());
+            // A new login keeps the id, gets a new session id and drops the tokens of the previous login
+            UserSession stored = UserSession.builder()
+                    .id(previous == OffHeapSessionIndex.EMPTY ? new ObjectId().toHexString() : readField(previous, ID))
+                    .sessionId(new ObjectId().toHexString())
+                    .session(userSession.getSession())
+                    .phoneNumber(userSession.getPhoneNumber())
+                    .cognitoUserName(userSession.getCognitoUserName())
+                    .firstName(userSession.getFirstName())
+                    .lastName(userSession.getLastName())
+                    .expiresAt(userSession.getExpiresAt())
+                    .build();
+            write(previous, stored);
+            return stored;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public UserSession findBySessionId(String sessionId) {
+        return find(bySessionId, SESSION_ID, sessionId);
+    }
+
+    @Override
+    public UserSession findByPhoneNumber(String phoneNumber) {
+        return find(byPhoneNumber, PHONE_NUMBER, phoneNumber);
+    }
+
+    @Override
+    public UserSession findByCognitoUserName(String cognitoUserName) {
+        return find(byCognitoUserName, COGNITO_USER_NAME, cognitoUserName);
+    }
+
+    @Override
+    public void updateSession(UserSession userSession) {
+        if (Objects.isNull(userSession.getSessionId())) return;
+        lock.writeLock().lock();
+        try {
+            long offset = locate(bySessionId, SESSION_ID, userSession.getSessionId());
+            if (offset == OffHeapSessionIndex.EMPTY) return;
+            UserSession.UserSessionBuilder updated = read(offset).toBuilder();
+            if (Objects.nonNull(userSession.getAccessToken())) updated.accessToken(userSession.getAccessToken());
+            if (Objects.nonNull(userSession.getIdToken())) updated.idToken(userSession.getIdToken());
+            if (Objects.nonNull(userSession.getRefreshToken())) updated.refreshToken(userSession.getRefreshToken());
+            if (Objects.nonNull(userSession.getTimeStamp())) updated.timeStamp(userSession.getTimeStamp());
+            if (Objects.nonNull(userSession.getExpiresAt())) updated.expiresAt(userSession.getExpiresAt());
+            if (Objects.nonNull(userSession.getCognitoUserName())) updated.cognitoUserName(userSession.getCognitoUserName());
+            if (Objects.nonNull(userSession.getFirstName())) updated.firstName(userSession.getFirstName());
+            if (Objects.nonNull(userSession.getLastName())) updated.lastName(userSession.getLastName());
+            write(offset, updated.build());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateProfile(User user) {
+        lock.writeLock().lock();
+        try {
+            long offset = locate(byPhoneNumber, PHONE_NUMBER, user.getPhoneNumber());
+            if (offset == OffHeapSessionIndex.EMPTY) return;
+            write(offset, read(offset).toBuilder()
+                    .cognitoUserName(user.getCognitoUserName())
+                    .firstName(user.getFirstName())
+                    .lastName(user.getLastName())
+                    .build());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long deleteByPhoneNumber(String phoneNumber) {
+        lock.writeLock().lock();
+        try {
+            return delete(locate(byPhoneNumber, PHONE_NUMBER, phoneNumber));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long deleteByCognitoUserName(String cognitoUserName) {
+        lock.writeLock().lock();
+        try {
+            return delete(locate(byCognitoUserName, COGNITO_USER_NAME, cognitoUserName));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The expired sessions are picked under the read lock, by the expiry kept in the index; only sessions without one
+     * have their idle timestamp read from the record, no record is decoded. The write lock is then held to delete the
+     * picked sessions whose record is still the latest; a session refreshed or logged in again meanwhile is kept.
+     */
+    @Override
+    public long deleteExpired(Instant now, LocalDateTime idleBefore, int limit) {
+        long nowMillis = now.toEpochMilli();
+        long[] expired;
+        int[] picked = new int[1];
+        long pickedGeneration;
+        lock.readLock().lock();
+        try {
+            expired = new long[Math.min(limit, byPhoneNumber.size())];
+            byPhoneNumber.forEach((offset, expiresAt) -> {
+                if (picked[0] == expired.length) return false;
+                boolean isExpired = expiresAt != OffHeapSessionIndex.NO_EXPIRY ? expiresAt < nowMillis : isIdle(offset, idleBefore);
+                if (isExpired) expired[picked[0]++] = offset;
+                return true;
+            });
+            pickedGeneration = generation;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (picked[0] == 0) return 0;
+
+        lock.writeLock().lock();
+        try {
+            long deleted = 0;
+            // A compaction moves every record, the offsets picked before it are left to the next run
+            for (int i = 0; i < picked[0] && generation == pickedGeneration; i++) {
+                long offset = expired[i];
+                if (byPhoneNumber.find(hashAt(fieldPosition(offset, PHONE_NUMBER)), other -> other == offset) == offset) deleted += delete(offset);
+            }
+            return deleted;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Counted on the expiry kept in the index, no record is read.
+     */
+    @Override
+    public long countActive(Instant now) {
+        lock.readLock().lock();
+        try {
+            long nowMillis = now.toEpochMilli();
+            long[] active = new long[1];
+            byPhoneNumber.forEach((offset, expiresAt) -> {
+                if (expiresAt != OffHeapSessionIndex.NO_EXPIRY && expiresAt > nowMillis) active[0]++;
+                return true;
+            });
+            return active[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Purges sessions whose expiry instant has passed, in batches of {@code session.mapped.purge-batch-size} until a
+     * batch comes back short or {@code session.mapped.purge-max-batches-per-run} is reached, so the write lock is never
+     * held for a whole backlog. Sessions without an expiry instant are left to the reaper, like the TTL index leaves
+     * documents without the field.
+     */
+    @Scheduled(fixedDelayString = "${session.mapped.purge-interval-ms:60000}", initialDelayString = "${session.mapped.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long purged = 0;
+        for (int batch = 0; batch < purgeMaxBatchesPerRun; batch++) {
+            long deleted = deleteExpired(Instant.now(), LocalDateTime.MIN, purgeBatchSize);
+            purged += deleted;
+            if (deleted < purgeBatchSize) break;
+        }
+        if (purged > 0) log.debug("Purged {} expired sessions", purged);
+    }
+
+    /**
+     * Forces outstanding writes to disk and closes the file.
+     */
+    @PreDestroy
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            data.force();
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Unable to close session file {}", file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the live records to a new file that replaces the current one, dropping superseded and deleted records.
+     */
+    void compact() {
+        lock.writeLock().lock();
+        try {
+            Path compactionFile = compactionFile();
+            try (FileChannel target = FileChannel.open(compactionFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer compacted = target.map(FileChannel.MapMode.READ_WRITE, 0, fileBytesFor(FILE_HEADER_BYTES + liveBytes * 2));
+                compacted.putInt(0, MAGIC).putInt(4, VERSION);
+                int[] position = {FILE_HEADER_BYTES};
+                byPhoneNumber.forEach((offset, expiresAt) -> {
+                    int recordBytes = RECORD_HEADER_BYTES + data.getInt((int) offset);
+                    compacted.put(position[0], data, (int) offset, recordBytes);
+                    position[0] += recordBytes;
+                    return true;
+                });
+                compacted.force();
+            }
+            long before = data.capacity();
+            channel.close();
+            Files.move(compactionFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            open();
+            log.info("Compacted session file {} from {} to {} bytes", file, before, writePosition);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to compact session file " + file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    long deadBytes() {
+        return writePosition - FILE_HEADER_BYTES - liveBytes;
+    }
+
+    private UserSession find(OffHeapSessionIndex index, int field, String key) {
+        if (Objects.isNull(key)) return null;
+        lock.readLock().lock();
+        try {
+            return read(locate(index, field, key));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Maps the file and replays its records into new indexes, continuing the log after the last intact record.
+     */
+    private void open() {
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            data = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), fileBytesFor(initialFileBytes)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open session file " + file, e);
+        }
+        if (data.getInt(0) == 0) {
+            data.putInt(0, MAGIC).putInt(4, VERSION);
+        } else if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IllegalStateException("Not a session file: " + file);
+        }
+
+        byPhoneNumber = new OffHeapSessionIndex(initialIndexCapacity);
+        bySessionId = new OffHeapSessionIndex(initialIndexCapacity);
+        byCognitoUserName = new OffHeapSessionIndex(initialIndexCapacity);
+        generation++;
+        liveBytes = 0;
+        int position = FILE_HEADER_BYTES;
+        int records = 0;
+        while (true) {
+            int length = intactRecordLength(position);
+            if (length < 0) break;
+            replay(position);
+            position += RECORD_HEADER_BYTES + length;
+            records++;
+        }
+        writePosition = position;
+        clearTornRecord(position);
+        log.info("Opened session file {} with {} sessions from {} records", file, byPhoneNumber.size(), records);
+    }
+
+    /**
+     * @return the body length of the record at a position, or -1 at the end of the log or at a torn record
+     */
+    private int intactRecordLength(int position) {
+        if (position + RECORD_HEADER_BYTES > data.capacity()) return -1;
+        int length = data.getInt(position);
+        if (length <= 0 || (long) position + RECORD_HEADER_BYTES + length > data.capacity()) return -1;
+        CRC32 crc = new CRC32();
+        crc.update(data.slice(position + RECORD_HEADER_BYTES, length));
+        return (int) crc.getValue() == data.getInt(position + 4) ? length : -1;
+    }
+
+    // Zeroes what a crash left after the last intact record, so none of it is mistaken for part of the log later
+    private void clearTornRecord(int position) {
+        if (position + RECORD_HEADER_BYTES > data.capacity() || data.getInt(position) == 0) return;
+        for (int i = position; i < data.capacity(); i++) data.put(i, (byte) 0);
+        log.warn("Discarded an incomplete record at {} of session file {}", position, file);
+    }
+
+    private void replay(int position) {
+        if (data.get(position + RECORD_HEADER_BYTES) == DELETE_RECORD) {
+            unlink(locate(byPhoneNumber, PHONE_NUMBER, readField(position, 0)));
+        } else {
+            unlink(locate(byPhoneNumber, PHONE_NUMBER, readField(position, PHONE_NUMBER)));
+            link(read(position), position);
+        }
+    }
+
+    private void write(long previous, UserSession current) {
+        int offset = append(encode(current));
+        unlink(previous);
+        link(current, offset);
+        compactIfWasteful();
+    }
+
+    private long delete(long offset) {
+        if (offset == OffHeapSessionIndex.EMPTY) return 0;
+        append(encodeDelete(readField(offset, PHONE_NUMBER)));
+        unlink(offset);
+        compactIfWasteful();
+        return 1;
+    }
+
+    private void link(UserSession userSession, long offset) {
+        long expiresAt = Objects.isNull(userSession.getExpiresAt()) ? OffHeapSessionIndex.NO_EXPIRY : userSession.getExpiresAt().toEpochMilli();
+        link(byPhoneNumber, PHONE_NUMBER, userSession.getPhoneNumber(), offset, expiresAt);
+        link(bySessionId, SESSION_ID, userSession.getSessionId(), offset, expiresAt);
+        if (Objects.nonNull(userSession.getCognitoUserName())) link(byCognitoUserName, COGNITO_USER_NAME, userSession.getCognitoUserName(), offset, expiresAt);
+        liveBytes += RECORD_HEADER_BYTES + data.getInt((int) offset);
+    }
+
+    private void link(OffHeapSessionIndex index, int field, String key, long offset, long expiresAt) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        index.put(hash(bytes), offset, expiresAt, other -> keyEquals(other, field, bytes));
+    }
+
+    /**
+     * Removes the entries of the record at an offset, hashing its keys in place. Each index only loses its entry if it
+     * points at this record, a Cognito username moved to another session keeps its entry.
+     */
+    private void unlink(long offset) {
+        if (offset == OffHeapSessionIndex.EMPTY) return;
+        boolean byPhoneNumberLinked = byPhoneNumber.remove(hashAt(fieldPosition(offset, PHONE_NUMBER)), other -> other == offset);
+        boolean bySessionIdLinked = bySessionId.remove(hashAt(fieldPosition(offset, SESSION_ID)), other -> other == offset);
+        // Offset 0 is the file header, a record found through one index must be in the others
+        if (!byPhoneNumberLinked || !bySessionIdLinked) throw new IllegalStateException("Session record at " + offset + " is missing from the session indexes");
+        int cognitoUserName = fieldPosition(offset, COGNITO_USER_NAME);
+        if (data.getInt(cognitoUserName) >= 0) byCognitoUserName.remove(hashAt(cognitoUserName), other -> other == offset);
+        liveBytes -= RECORD_HEADER_BYTES + data.getInt((int) offset);
+    }
+
+    private long locate(OffHeapSessionIndex index, int field, String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        return index.find(hash(bytes), offset -> keyEquals(offset, field, bytes));
+    }
+
+    private int append(byte[] body) {
+        int recordBytes = RECORD_HEADER_BYTES + body.length;
+        ensureCapacity((long) writePosition + recordBytes);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        int offset = writePosition;
+        data.put(offset + RECORD_HEADER_BYTES, body);
+        data.putInt(offset + 4, (int) crc.getValue());
+        // The length goes last, a record is not part of the log before it is complete
+        data.putInt(offset, body.length);
+        if (syncWrites) data.force(offset, recordBytes);
+        writePosition += recordBytes;
+        return offset;
+    }
+
+    private void ensureCapacity(long required) {
+        if (required <= data.capacity()) return;
+        if (required > Integer.MAX_VALUE) throw new IllegalStateException("Session file is full: " + file);
+        try {
+            data = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileBytesFor(Math.max(required, (long) data.capacity() * 2)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to grow session file " + file, e);
+        }
+    }
+
+    private void compactIfWasteful() {
+        long deadBytes = deadBytes();
+        if (deadBytes >= compactionMinDeadBytes && deadBytes > liveBytes) compact();
+    }
+
+    private Path compactionFile() {
+        return file.resolveSibling(file.getFileName() + ".compact");
+    }
+
+    private UserSession read(long offset) {
+        if (offset == OffHeapSessionIndex.EMPTY) return null;
+        ByteBuffer body = data.slice((int) offset + RECORD_HEADER_BYTES + 1, data.getInt((int) offset) - 1);
+        return UserSession.builder()
+                .sessionId(readString(body))
+                .phoneNumber(readString(body))
+                .cognitoUserName(readString(body))
+                .id(readString(body))
+                .session(readString(body))
+                .firstName(readString(body))
+                .lastName(readString(body))
+                .accessToken(readString(body))
+                .idToken(readString(body))
+                .refreshToken(readString(body))
+                .timeStamp(toLocalDateTime(body.getLong()))
+                .expiresAt(toInstant(body.getLong()))
+                .build();
+    }
+
+    // Compares the UTF-8 bytes of a key with the field as it is mapped, nothing is decoded
+    private boolean keyEquals(long offset, int field, byte[] key) {
+        int position = fieldPosition(offset, field);
+        if (data.getInt(position) != key.length) return false;
+        for (int i = 0; i < key.length; i++) {
+            if (data.get(position + 4 + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    private String readField(long offset, int field) {
+        int position = fieldPosition(offset, field);
+        int length = data.getInt(position);
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        data.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean isIdle(long offset, LocalDateTime idleBefore) {
+        long timeStamp = data.getLong(fieldPosition(offset, TIME_STAMP));
+        return timeStamp != NO_TIME && toLocalDateTime(timeStamp).isBefore(idleBefore);
+    }
+
+    // The position of the length of a field, past the record type and the string fields before it
+    private int fieldPosition(long offset, int field) {
+        int position = (int) offset + RECORD_HEADER_BYTES + 1;
+        for (int i = 0; i < field; i++) {
+            position += 4 + Math.max(0, data.getInt(position));
+        }
+        return position;
+    }
+
+    // The hash of the field whose length is at a position, the same as the hash of its key
+    private long hashAt(int position) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0, length = data.getInt(position); i < length; i++) {
+            hash ^= data.get(position + 4 + i) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static byte[] encode(UserSession userSession) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(SESSION_RECORD);
+            writeString(out, userSession.getSessionId());
+            writeString(out, userSession.getPhoneNumber());
+            writeString(out, userSession.getCognitoUserName());
+            writeString(out, userSession.getId());
+            writeString(out, userSession.getSession());
+            writeString(out, userSession.getFirstName());
+            writeString(out, userSession.getLastName());
+            writeString(out, userSession.getAccessToken());
+            writeString(out, userSession.getIdToken());
+            writeString(out, userSession.getRefreshToken());
+            out.writeLong(Objects.isNull(userSession.getTimeStamp()) ? NO_TIME : userSession.getTimeStamp().toInstant(ZoneOffset.UTC).toEpochMilli());
+            out.writeLong(Objects.isNull(userSession.getExpiresAt()) ? NO_TIME : userSession.getExpiresAt().toEpochMilli());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeDelete(String phoneNumber) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(DELETE_RECORD);
+            writeString(out, phoneNumber);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (Objects.isNull(value)) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer body) {
+        int length = body.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMilli) {
+        return epochMilli == NO_TIME ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneOffset.UTC);
+    }
+
+    private static Instant toInstant(long epochMilli) {
+        return epochMilli == NO_TIME ? null : Instant.ofEpochMilli(epochMilli);
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes of the key, so it can be worked out from a record in place
+    private static long hash(byte[] key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : key) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long fileBytesFor(long bytes) {
+        return Math.min(Integer.MAX_VALUE, Math.max(4096, Long.highestOneBit(Math.max(1, bytes - 1)) << 1));
+    }
+}
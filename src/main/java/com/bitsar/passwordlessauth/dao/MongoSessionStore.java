@@ -0,0 +1,256 @@
+package com.bitsar.passwordlessauth.dao;
+
+import com.bitsar.passwordlessauth.entity.User;
+import com.bitsar.passwordlessauth.entity.UserSession;
+import com.bitsar.passwordlessauth.repository.UserSessionRepository;
+import jakarta.annotation.PostConstruct;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Sessions in the {@code users_session} collection, one document per phone number. A login upserts the document of its
+ * phone number with a new session id in one round trip; the other writes are single round trip, targeted {@code $set}
+ * updates. With {@code session.write-behind.enabled}
+ * token and idle timestamp updates are buffered and written in bulk by {@link SessionWriteBehind}, logins and deletes
+ * stay synchronous.
+ */
+@Component
+@Timed("auth.dao")
+@ConditionalOnProperty(name = "session.store", havingValue = "mongo", matchIfMissing = true)
+public class MongoSessionStore implements SessionStore {
+
+    // Only the first logins of a phone number can race, the upsert that lost the insert then updates the winner
+    static final int MAX_LOGIN_ATTEMPTS = 2;
+
+    static final FindAndModifyOptions LOGIN = FindAndModifyOptions.options().upsert(true).returnNew(true);
+
+    private final UserSessionRepository userSessionRepository;
+    private final MongoTemplate mongoTemplate;
+    private final SessionWriteBehind writeBehind;
+
+    public MongoSessionStore(UserSessionRepository userSessionRepository,
+                             MongoTemplate mongoTemplate,
+                             @Value("${session.write-behind.enabled:false}") boolean writeBehindEnabled,
+                             @Value("${session.write-behind.max-pending:10000}") int maxPending,
+                             @Value("${session.write-behind.batch-size:500}") int batchSize) {
+        this.userSessionRepository = userSessionRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.writeBehind = writeBehindEnabled ? new SessionWriteBehind(mongoTemplate, maxPending, batchSize) : null;
+    }
+
+    /**
+     * Creates the TTL index that lets Mongo purge sessions once their {@code expiresAt} has passed, the unique index a
+     * login upserts on, and the indexes sessions are found by. The TTL monitor runs about once a minute, so an expired
+     * session can still be read for a while; reads check the expiry themselves.
+     */
+    @PostConstruct
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(UserSession.class).ensureIndex(new Index().on("expiresAt", Sort.Direction.ASC).expire(Duration.ZERO));
+        mongoTemplate.indexOps(UserSession.class).ensureIndex(new Index().on("phoneNumber", Sort.Direction.ASC).unique());
+        // Sparse, sessions stored before session ids were added have none
+        mongoTemplate.indexOps(UserSession.class).ensureIndex(new Index().on("sessionId", Sort.Direction.ASC).unique().sparse());
+        // Sparse, sessions started before the user was copied onto them have no Cognito username
+        mongoTemplate.indexOps(UserSession.class).ensureIndex(new Index().on("cognitoUserName", Sort.Direction.ASC).sparse());
+    }
+
+    @Override
+    public UserSession findBySessionId(String sessionId) {
+        return read(() -> userSessionRepository.findBySessionId(sessionId));
+    }
+
+    /**
+     * Upserts the document of the phone number in one {@code findAndModify}: a new session id, the new Cognito session
+     * and user, and the tokens of the previous login removed. The document keeps its id, so the phone number always has
+     * a session; the session id of an earlier login attempt no longer finds it and cannot confirm a later one. Two first
+     * logins of a phone number can both try to insert, the one failing on the unique index is repeated as an update.
+     * Updates still buffered for the previous login carry its session id and match nothing when they are written.
+     */
+    @Override
+    public UserSession findAndUpdateAndSaveSession(UserSession userSession) {
+        Update login = login(userSession);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return mongoTemplate.findAndModify(byPhoneNumber(userSession.getPhoneNumber()), login, LOGIN, UserSession.class);
+            } catch (DuplicateKeyException e) {
+                if (attempt == MAX_LOGIN_ATTEMPTS) throw e;
+            }
+        }
+    }
+
+    /**
+     * A {@code $set} of the fields that are set, instead of rewriting the whole document. Buffered when write-behind is
+     * enabled, unless the update copies the user onto the session: the Cognito username is a lookup key, other
+     * instances must find the session by it at once.
+     */
+    @Override
+    public void updateSession(UserSession userSession) {
+        if (Objects.isNull(writeBehind)) {
+            updateFirst(userSession);
+        } else if (Objects.nonNull(userSession.getCognitoUserName()) || !writeBehind.offer(userSession)) {
+            writeBehind.writeThrough(userSession, this::updateFirst);
+        }
+    }
+
+    @Override
+    public UserSession findByPhoneNumber(String phoneNumber) {
+        return read(() -> userSessionRepository.findByPhoneNumber(phoneNumber));
+    }
+
+    @Override
+    public UserSession findByCognitoUserName(String cognitoUserName) {
+        return read(() -> userSessionRepository.findByCognitoUserName(cognitoUserName));
+    }
+
+    @Override
+    public long deleteByPhoneNumber(String phoneNumber) {
+        return userSessionRepository.deleteAllByPhoneNumber(phoneNumber);
+    }
+
+    @Override
+    public long deleteByCognitoUserName(String cognitoUserName) {
+        return userSessionRepository.deleteAllByCognitoUserName(cognitoUserName);
+    }
+
+    @Override
+    public void updateProfile(User user) {
+        mongoTemplate.updateFirst(byPhoneNumber(user.getPhoneNumber()), profile(user), UserSession.class);
+    }
+
+    /**
+     * The ids are selected first so each call is a bounded amount of work, the delete repeats the expiry condition so a
+     * session refreshed in between is kept.
+     */
+    @Override
+    public long deleteExpired(Instant now, LocalDateTime idleBefore, int limit) {
+        Query expired = expired(now, idleBefore).limit(limit);
+        expired.fields().include("id");
+        List<String> sessionIds = mongoTemplate.find(expired, UserSession.class).stream()
+                .map(UserSession::getId)
+                .toList();
+        if (sessionIds.isEmpty()) return 0;
+        return mongoTemplate.remove(expired(now, idleBefore).addCriteria(Criteria.where("id").in(sessionIds)), UserSession.class)
+                .getDeletedCount();
+    }
+
+    /**
+     * Counted on the TTL index. Sessions stored before {@code expiresAt} existed are not counted.
+     */
+    @Override
+    public long countActive(Instant now) {
+        return mongoTemplate.count(Query.query(Criteria.where("expiresAt").gt(now)), UserSession.class);
+    }
+
+    /**
+     * Writes the buffered session updates, on a fixed delay of {@code session.write-behind.flush-interval-ms}.
+     */
+    @Scheduled(fixedDelayString = "${session.write-behind.flush-interval-ms:200}")
+    public void flushPendingWrites() {
+        if (Objects.nonNull(writeBehind)) writeBehind.flush();
+    }
+
+    /**
+     * Writes what is still buffered before the application context closes.
+     */
+    @PreDestroy
+    public void close() {
+        flushPendingWrites();
+    }
+
+    private void updateFirst(UserSession userSession) {
+        mongoTemplate.updateFirst(bySession(userSession), changedFields(userSession), UserSession.class);
+    }
+
+    private UserSession read(Supplier<UserSession> read) {
+        return Objects.isNull(writeBehind) ? read.get() : writeBehind.read(read);
+    }
+
+    static Query byId(String sessionId) {
+        return Query.query(Criteria.where("id").is(sessionId));
+    }
+
+    /**
+     * The session with the id, and with the session id if it is set: an update of one login must not reach the session
+     * of a later login of the phone number. Sessions stored before session ids were added are matched by id alone.
+     */
+    static Query bySession(UserSession userSession) {
+        Query query = byId(userSession.getId());
+        if (Objects.nonNull(userSession.getSessionId())) query.addCriteria(Criteria.where("sessionId").is(userSession.getSessionId()));
+        return query;
+    }
+
+    static Query byPhoneNumber(String phoneNumber) {
+        return Query.query(Criteria.where("phoneNumber").is(phoneNumber));
+    }
+
+    static Query expired(Instant now, LocalDateTime idleBefore) {
+        // Sessions stored before expiresAt was added only have their idle timestamp
+        return Query.query(new Criteria().orOperator(
+                Criteria.where("expiresAt").lt(now),
+                new Criteria().andOperator(Criteria.where("expiresAt").exists(false), Criteria.where("timeStamp").lt(idleBefore))));
+    }
+
+    static Update login(UserSession userSession) {
+        // Ids are strings like the ones save generates, lookups by the String id miss an ObjectId
+        Update update = new Update()
+                .setOnInsert("_id", new ObjectId().toHexString())
+                .set("sessionId", new ObjectId().toHexString())
+                .unset("accessToken")
+                .unset("idToken")
+                .unset("refreshToken")
+                .unset("timeStamp");
+        setOrUnset(update, "session", userSession.getSession());
+        setOrUnset(update, "expiresAt", userSession.getExpiresAt());
+        setOrUnset(update, "cognitoUserName", userSession.getCognitoUserName());
+        setOrUnset(update, "firstName", userSession.getFirstName());
+        setOrUnset(update, "lastName", userSession.getLastName());
+        return update;
+    }
+
+    static Update profile(User user) {
+        return new Update()
+                .set("cognitoUserName", user.getCognitoUserName())
+                .set("firstName", user.getFirstName())
+                .set("lastName", user.getLastName());
+    }
+
+    static Update changedFields(UserSession userSession) {
+        Update update = new Update();
+        if (Objects.nonNull(userSession.getAccessToken())) update.set("accessToken", userSession.getAccessToken());
+        if (Objects.nonNull(userSession.getIdToken())) update.set("idToken", userSession.getIdToken());
+        if (Objects.nonNull(userSession.getRefreshToken())) update.set("refreshToken", userSession.getRefreshToken());
+        if (Objects.nonNull(userSession.getTimeStamp())) update.set("timeStamp", userSession.getTimeStamp());
+        if (Objects.nonNull(userSession.getExpiresAt())) update.set("expiresAt", userSession.getExpiresAt());
+        if (Objects.nonNull(userSession.getCognitoUserName())) update.set("cognitoUserName", userSession.getCognitoUserName());
+        if (Objects.nonNull(userSession.getFirstName())) update.set("firstName", userSession.getFirstName());
+        if (Objects.nonNull(userSession.getLastName())) update.set("lastName", userSession.getLastName());
+        return update;
+    }
+
+    private static void setOrUnset(Update update, String field, Object value) {
+        if (Objects.isNull(value)) {
+            update.unset(field);
+        } else {
+            update.set(field, value);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.bitsar.passwordlessauth.dao;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongPredicate;
+
+/**
+ * Open addressing hash table held in a direct buffer, mapping the 64-bit hash of a key to the offset of a session
+ * record in the session file, along with the expiry of the session. Each slot is a fixed 24 byte layout of hash,
+ * offset and expiry epoch millisecond, so millions of entries cost no heap objects. Keys are not stored: hashes can
+ * collide, so lookups confirm a candidate by reading the key from its record. Not thread safe, the store guards it.
+ */
+final class OffHeapSessionIndex {
+
+    // Record offsets start after the file header, so offset 0 marks a free slot
+    static final long EMPTY = 0;
+    static final long TOMBSTONE = -1;
+    static final long NO_EXPIRY = Long.MIN_VALUE;
+
+    private static final int SLOT_BYTES = 24;
+    private static final int HASH = 0;
+    private static final int OFFSET = 8;
+    private static final int EXPIRES_AT = 16;
+
+    private ByteBuffer slots;
+    private int capacity;
+    private int size;
+    // Live entries and tombstones, both lengthen probe sequences
+    private int occupied;
+
+    OffHeapSessionIndex(int initialCapacity) {
+        allocate(Integer.highestOneBit(Math.max(16, initialCapacity - 1)) << 1);
+    }
+
+    /**
+     * @param hash    the hash of the key
+     * @param matches tells whether the record at an offset has the key
+     * @return the offset of the record with the key, or {@link #EMPTY}
+     */
+    long find(long hash, LongPredicate matches) {
+        int slot = findSlot(hash, matches);
+        return slot < 0 ? EMPTY : slots.getLong(slot * SLOT_BYTES + OFFSET);
+    }
+
+    /**
+     * Points a key at a record, replacing the entry of the key if there is one.
+     *
+     * @param hash      the hash of the key
+     * @param offset    the offset of the record
+     * @param expiresAt the expiry epoch millisecond of the session, or {@link #NO_EXPIRY}
+     * @param matches   tells whether the record at an offset has the key
+     */
+    void put(long hash, long offset, long expiresAt, LongPredicate matches) {
+        int slot = findSlot(hash, matches);
+        if (slot >= 0) {
+            write(slot, hash, offset, expiresAt);
+            return;
+        }
+        if ((occupied + 1) * 2L > capacity) rehash();
+        insert(hash, offset, expiresAt);
+    }
+
+    /**
+     * @return true if the key had an entry
+     */
+    boolean remove(long hash, LongPredicate matches) {
+        int slot = findSlot(hash, matches);
+        if (slot < 0) return false;
+        slots.putLong(slot * SLOT_BYTES + OFFSET, TOMBSTONE);
+        size--;
+        return true;
+    }
+
+    /**
+     * Visits every entry. The visitor must not change the index.
+     */
+    void forEach(EntryVisitor visitor) {
+        for (int slot = 0; slot < capacity; slot++) {
+            long offset = slots.getLong(slot * SLOT_BYTES + OFFSET);
+            if (offset != EMPTY && offset != TOMBSTONE) {
+                if (!visitor.visit(offset, slots.getLong(slot * SLOT_BYTES + EXPIRES_AT))) return;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int findSlot(long hash, LongPredicate matches) {
+        int mask = capacity - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            long offset = slots.getLong(slot * SLOT_BYTES + OFFSET);
+            if (offset == EMPTY) return -1;
+            if (offset != TOMBSTONE && slots.getLong(slot * SLOT_BYTES + HASH) == hash && matches.test(offset)) return slot;
+        }
+    }
+
+    private void insert(long hash, long offset, long expiresAt) {
+        int mask = capacity - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            long current = slots.getLong(slot * SLOT_BYTES + OFFSET);
+            if (current == EMPTY || current == TOMBSTONE) {
+                if (current == EMPTY) occupied++;
+                size++;
+                write(slot, hash, offset, expiresAt);
+                return;
+            }
+        }
+    }
+
+    private void write(int slot, long hash, long offset, long expiresAt) {
+        slots.putLong(slot * SLOT_BYTES + HASH, hash);
+        slots.putLong(slot * SLOT_BYTES + OFFSET, offset);
+        slots.putLong(slot * SLOT_BYTES + EXPIRES_AT, expiresAt);
+    }
+
+    // Grows when live entries fill the table, otherwise only clears the tombstones
+    private void rehash() {
+        ByteBuffer previous = slots;
+        int previousCapacity = capacity;
+        allocate(size * 4L > previousCapacity ? previousCapacity << 1 : previousCapacity);
+        for (int slot = 0; slot < previousCapacity; slot++) {
+            long offset = previous.getLong(slot * SLOT_BYTES + OFFSET);
+            if (offset != EMPTY && offset != TOMBSTONE) {
+                insert(previous.getLong(slot * SLOT_BYTES + HASH), offset, previous.getLong(slot * SLOT_BYTES + EXPIRES_AT));
+            }
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        if ((long) newCapacity * SLOT_BYTES > Integer.MAX_VALUE) throw new IllegalStateException("Session index is full");
+        slots = ByteBuffer.allocateDirect(newCapacity * SLOT_BYTES);
+        capacity = newCapacity;
+        size = 0;
+        occupied = 0;
+    }
+
+    private static int spread(long hash) {
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @FunctionalInterface
+    interface EntryVisitor {
+
+        /**
+         * @return false to stop visiting
+         */
+        boolean visit(long offset, long expiresAt);
+    }
+}
@@ -0,0 +1,58 @@
+package com.bitsar.passwordlessauth.dao;
+
+import com.bitsar.passwordlessauth.entity.User;
+import com.bitsar.passwordlessauth.entity.UserSession;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Reactive counterpart of the session writes in {@link MongoSessionStore}, issuing the same writes.
+ */
+@Component
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveUserSessionDao {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    /**
+     * Reactive variant of {@link SessionStore#findAndUpdateAndSaveSession(UserSession)}.
+     *
+     * @param userSession the new session, with the Cognito session and the phone number set
+     * @return a Mono emitting the stored session, with its id and new session id
+     */
+    public Mono<UserSession> findAndUpdateAndSaveSession(UserSession userSession) {
+        return reactiveMongoTemplate.findAndModify(MongoSessionStore.byPhoneNumber(userSession.getPhoneNumber()), MongoSessionStore.login(userSession),
+                        MongoSessionStore.LOGIN, UserSession.class)
+                .retryWhen(Retry.max(MongoSessionStore.MAX_LOGIN_ATTEMPTS - 1)
+                        .filter(DuplicateKeyException.class::isInstance)
+                        .onRetryExhaustedThrow((retrySpec, retrySignal) -> retrySignal.failure()));
+    }
+
+    /**
+     * Reactive variant of {@link SessionStore#updateSession(UserSession)}.
+     *
+     * @param userSession the session, with its id, session id and the changed fields set
+     * @return a Mono completing once the session is written
+     */
+    public Mono<Void> updateSession(UserSession userSession) {
+        return reactiveMongoTemplate.updateFirst(MongoSessionStore.bySession(userSession), MongoSessionStore.changedFields(userSession), UserSession.class)
+                .then();
+    }
+
+    /**
+     * Reactive variant of {@link SessionStore#updateProfile(User)}.
+     *
+     * @param user the saved user
+     * @return a Mono completing once the session is written
+     */
+    public Mono<Void> updateProfile(User user) {
+        return reactiveMongoTemplate.updateFirst(MongoSessionStore.byPhoneNumber(user.getPhoneNumber()), MongoSessionStore.profile(user), UserSession.class)
+                .then();
+    }
+}
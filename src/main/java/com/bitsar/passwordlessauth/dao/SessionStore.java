@@ -0,0 +1,77 @@
+package com.bitsar.passwordlessauth.dao;
+
+import com.bitsar.passwordlessauth.entity.User;
+import com.bitsar.passwordlessauth.entity.UserSession;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * Storage of login sessions, one per phone number. Selected with {@code session.store}: {@code mongo} (default) keeps
+ * them in the {@code users_session} collection, {@code memory} keeps them in the instance for single node deployments
+ * and benchmarks. Implementations return sessions the caller may change without changing the stored session.
+ */
+public interface SessionStore {
+
+    /**
+     * Starts a login session for a phone number under a new session id, replacing the Cognito session, the user and the
+     * tokens of any earlier login of the phone number. The session keeps its id; a session id handed out for an earlier
+     * login no longer finds it.
+     *
+     * @param userSession the new session, with the Cognito session, the phone number and the copy of the user set
+     * @return the stored session, with its id and session id
+     */
+    UserSession findAndUpdateAndSaveSession(UserSession userSession);
+
+    /**
+     * @param sessionId the session id handed out at login
+     * @return the session of the login, or null if the phone number logged in again since
+     */
+    UserSession findBySessionId(String sessionId);
+
+    UserSession findByPhoneNumber(String phoneNumber);
+
+    UserSession findByCognitoUserName(String cognitoUserName);
+
+    /**
+     * Writes the fields of a session that are set, leaving the others as they are. Does nothing if there is no session
+     * with the id and session id, the phone number may have logged in again since the session was read.
+     *
+     * @param userSession the session, with its id, session id and the changed fields set
+     */
+    void updateSession(UserSession userSession);
+
+    /**
+     * Copies the Cognito username and display name of a user onto the session of the user, if there is one.
+     *
+     * @param user the saved user
+     */
+    void updateProfile(User user);
+
+    /**
+     * @return the number of sessions deleted
+     */
+    long deleteByPhoneNumber(String phoneNumber);
+
+    /**
+     * @return the number of sessions deleted
+     */
+    long deleteByCognitoUserName(String cognitoUserName);
+
+    /**
+     * Deletes up to {@code limit} sessions that expired before {@code now}, or that have no expiry instant and were idle
+     * since before {@code idleBefore}.
+     *
+     * @param now        the current instant
+     * @param idleBefore sessions without an expiry instant are expired when their idle timestamp is older than this
+     * @param limit      the maximum number of sessions to delete
+     * @return the number of sessions deleted
+     */
+    long deleteExpired(Instant now, LocalDateTime idleBefore, int limit);
+
+    /**
+     * @param now the current instant
+     * @return the number of sessions whose expiry instant is after {@code now}
+     */
+    long countActive(Instant now);
+}
@@ -0,0 +1,159 @@
+package com.bitsar.passwordlessauth.dao;
+
+import com.bitsar.passwordlessauth.entity.UserSession;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Buffers token and idle timestamp updates of sessions and writes them to Mongo in unordered bulk writes. Updates of
+ * one session are merged while they wait, so a session refreshed several times between flushes is written once.
+ * <p>
+ * At most {@code maxPending} sessions wait; an update of another session is written through, which slows callers down
+ * to what Mongo takes instead of growing the buffer. Reads of this instance see the buffered updates. Updates written
+ * through must not be overtaken by a buffered update: they hold a shared lock that a flush takes exclusively, and take
+ * the buffered updates of their session with them. Buffered updates carry the session id of their login: a login
+ * needs neither, the updates of the login it replaces no longer match the session, and are dropped when merged with
+ * updates of the new one.
+ */
+@Slf4j
+class SessionWriteBehind {
+
+    private final MongoTemplate mongoTemplate;
+    private final int maxPending;
+    private final int batchSize;
+    private final ConcurrentMap<String, UserSession> pending = new ConcurrentHashMap<>();
+    // Taken from pending by the running flush, still visible to reads until it is written
+    private final ConcurrentMap<String, UserSession> inFlight = new ConcurrentHashMap<>();
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private final AtomicLong flushedBatches = new AtomicLong();
+
+    SessionWriteBehind(MongoTemplate mongoTemplate, int maxPending, int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Buffers the changed fields of a session, merged over those already buffered.
+     *
+     * @return false if the buffer is full, the caller writes the update through with {@link #writeThrough}
+     */
+    boolean offer(UserSession changes) {
+        if (pending.size() >= maxPending && !pending.containsKey(changes.getId())) return false;
+        pending.merge(changes.getId(), changes, SessionWriteBehind::merge);
+        return true;
+    }
+
+    /**
+     * Runs a write of a session that buffered updates must not overtake, with the buffered updates of the session
+     * merged under its changes.
+     *
+     * @param changes the changes of the write, with the id and session id of the session
+     * @param write   writes the merged changes
+     */
+    void writeThrough(UserSession changes, Consumer<UserSession> write) {
+        flushLock.readLock().lock();
+        try {
+            UserSession buffered = pending.remove(changes.getId());
+            write.accept(Objects.isNull(buffered) ? changes : merge(buffered, changes));
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads a session and applies the updates buffered for it. The read is repeated if a batch was written meanwhile,
+     * its updates may have left the buffer after the read and reached Mongo before it.
+     */
+    UserSession read(Supplier<UserSession> read) {
+        while (true) {
+            long batches = flushedBatches.get();
+            UserSession userSession = read.get();
+            if (Objects.isNull(userSession)) return null;
+            // Pending first, an update moves from pending to in flight, never back
+            UserSession buffered = pending.get(userSession.getId());
+            UserSession flushing = inFlight.get(userSession.getId());
+            if (flushedBatches.get() != batches) continue;
+            if (sameLogin(flushing, userSession)) apply(flushing, userSession);
+            if (sameLogin(buffered, userSession)) apply(buffered, userSession);
+            return userSession;
+        }
+    }
+
+    /**
+     * Writes every buffered update, in bulk writes of at most {@code batchSize} sessions. A failed batch goes back to
+     * the buffer under any update buffered since, to be written by the next flush.
+     */
+    void flush() {
+        flushLock.writeLock().lock();
+        try {
+            while (!pending.isEmpty()) {
+                if (!flushBatch()) return;
+            }
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    private boolean flushBatch() {
+        Iterator<String> ids = pending.keySet().iterator();
+        while (inFlight.size() < batchSize && ids.hasNext()) {
+            pending.computeIfPresent(ids.next(), (id, changes) -> {
+                inFlight.put(id, changes);
+                return null;
+            });
+        }
+        try {
+            BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserSession.class);
+            inFlight.forEach((id, changes) -> bulkOperations.updateOne(MongoSessionStore.bySession(changes), MongoSessionStore.changedFields(changes)));
+            bulkOperations.execute();
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("Unable to write {} buffered session updates, retrying on the next flush", inFlight.size(), e);
+            for (Map.Entry<String, UserSession> failed : inFlight.entrySet()) {
+                pending.merge(failed.getKey(), failed.getValue(), (newer, older) -> merge(older, newer));
+            }
+            return false;
+        } finally {
+            inFlight.clear();
+            flushedBatches.incrementAndGet();
+        }
+    }
+
+    // The fields set in the newer changes win, changes of an earlier login are dropped
+    private static UserSession merge(UserSession older, UserSession newer) {
+        if (!Objects.equals(older.getSessionId(), newer.getSessionId())) return newer;
+        UserSession merged = UserSession.builder().id(older.getId()).sessionId(older.getSessionId()).build();
+        apply(older, merged);
+        apply(newer, merged);
+        return merged;
+    }
+
+    private static boolean sameLogin(UserSession changes, UserSession userSession) {
+        return Objects.nonNull(changes) && (Objects.isNull(changes.getSessionId()) || changes.getSessionId().equals(userSession.getSessionId()));
+    }
+
+    private static void apply(UserSession changes, UserSession userSession) {
+        if (Objects.nonNull(changes.getAccessToken())) userSession.setAccessToken(changes.getAccessToken());
+        if (Objects.nonNull(changes.getIdToken())) userSession.setIdToken(changes.getIdToken());
+        if (Objects.nonNull(changes.getRefreshToken())) userSession.setRefreshToken(changes.getRefreshToken());
+        if (Objects.nonNull(changes.getTimeStamp())) userSession.setTimeStamp(changes.getTimeStamp());
+        if (Objects.nonNull(changes.getExpiresAt())) userSession.setExpiresAt(changes.getExpiresAt());
+        if (Objects.nonNull(changes.getCognitoUserName())) userSession.setCognitoUserName(changes.getCognitoUserName());
+        if (Objects.nonNull(changes.getFirstName())) userSession.setFirstName(changes.getFirstName());
+        if (Objects.nonNull(changes.getLastName())) userSession.setLastName(changes.getLastName());
+    }
+}
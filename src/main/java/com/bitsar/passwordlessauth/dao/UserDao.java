@@ -3,37 +3,58 @@ package com.bitsar.passwordlessauth.dao;
 import com.bitsar.passwordlessauth.dto.request.RegisterRequestDto;
 import com.bitsar.passwordlessauth.entity.User;
 import com.bitsar.passwordlessauth.enums.UserStatus;
+import com.bitsar.passwordlessauth.helper.UserCache;
+import com.bitsar.passwordlessauth.phone.PhoneNumber;
 import com.bitsar.passwordlessauth.repository.UserRepository;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Component;
 
-import static com.bitsar.passwordlessauth.constants.AuthConstants.INDIAN_COUNTRY_CODE;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Component
+@Timed("auth.dao")
 @RequiredArgsConstructor
 public class UserDao {
 
     private final UserRepository userRepository;
+    private final MongoTemplate mongoTemplate;
+    private final UserCache userCache;
+    private final SessionStore sessionStore;
 
     /**
      * Creates a new user in the database.
      *
      * @param registerRequestDto The registration request data transfer object
+     * @param phoneNumber        The phone number of the request, normalized
      * @param cognitoUserName    The Cognito username
      * @return The newly created user object
      */
-    public User dbSignUp(RegisterRequestDto registerRequestDto, String cognitoUserName) {
+    public User dbSignUp(RegisterRequestDto registerRequestDto, PhoneNumber phoneNumber, String cognitoUserName) {
         // Create a new user object
         User user = User.builder()
                 .cognitoUserName(cognitoUserName) // Set the Cognito username
                 .firstName(registerRequestDto.getFirstName()) // Set the first name from the registration request
                 .lastName(registerRequestDto.getLastName()) // Set the last name from the registration request
-                .phoneNumber(INDIAN_COUNTRY_CODE + registerRequestDto.getPhoneNumber()) // Set the phone number with Indian country code
+                .phoneNumber(phoneNumber.e164()) // Set the phone number in E.164 form
                 .status(UserStatus.NEW) // Set the user status to NEW
                 .build(); // Build the user object
 
-        // Save the user object in the database
-        return userRepository.save(user);
+        // Save the user object in the database and cache it
+        User savedUser = userRepository.save(user);
+        userCache.put(savedUser);
+        return savedUser;
     }
 
     /**
@@ -42,15 +63,58 @@ public class UserDao {
      * @param phoneNumber The phone number to check
      * @return True if a user with the given phone number exists and is not in a NEW status, false otherwise
      */
-    public User findByPhoneNumberInSignUp(String phoneNumber) {
-        return userRepository.findByPhoneNumber(INDIAN_COUNTRY_CODE + phoneNumber);
+    public User findByPhoneNumberInSignUp(PhoneNumber phoneNumber) {
+        return userCache.getByPhoneNumber(phoneNumber.e164(), userRepository::findByPhoneNumber);
     }
 
     public User findByCognitoUserName(String cognitoUserName) {
-        return userRepository.findByCognitoUserName(cognitoUserName);
+        return userCache.getByCognitoUserName(cognitoUserName, userRepository::findByCognitoUserName);
     }
 
+    /**
+     * Saves a changed user and keeps the copy of its name on its session in sync.
+     *
+     * @param user the changed user
+     */
     public void save(User user) {
-        userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        userCache.put(savedUser);
+        sessionStore.updateProfile(savedUser);
+    }
+
+    /**
+     * Finds which of the given phone numbers are already registered, in a single {@code $in} query that only reads the
+     * phone number field.
+     *
+     * @param phoneNumbers phone numbers with country code
+     * @return the subset of phone numbers that already exist
+     */
+    public Set<String> findExistingPhoneNumbers(Collection<String> phoneNumbers) {
+        Query query = Query.query(Criteria.where("phoneNumber").in(phoneNumbers));
+        query.fields().include("phoneNumber");
+        return mongoTemplate.find(query, User.class).stream()
+                .map(User::getPhoneNumber)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Inserts users with one unordered bulk write, so a failing document does not stop the rest of the batch.
+     *
+     * @param users the users to insert
+     * @return the error message for each failed position in {@code users}, empty when every insert succeeded
+     */
+    public Map<Integer, String> bulkInsert(List<User> users) {
+        Map<Integer, String> failures = new HashMap<>();
+        if (users.isEmpty()) return failures;
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class)
+                    .insert(users)
+                    .execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                failures.put(error.getIndex(), error.getMessage());
+            }
+        }
+        return failures;
     }
 }
@@ -0,0 +1,14 @@
+package com.bitsar.passwordlessauth.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchIntrospectResponseDto {
+    private List<IntrospectResponseDto> results;
+}
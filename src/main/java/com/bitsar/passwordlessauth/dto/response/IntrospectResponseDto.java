@@ -0,0 +1,18 @@
+package com.bitsar.passwordlessauth.dto.response;
+
+import com.bitsar.passwordlessauth.enums.UserStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IntrospectResponseDto {
+    private boolean active;
+    private String username;
+    private UserStatus status;
+    private String firstName;
+    private String lastName;
+    private Long expiresAt;
+}
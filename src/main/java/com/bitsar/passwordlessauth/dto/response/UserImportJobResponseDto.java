@@ -0,0 +1,24 @@
+package com.bitsar.passwordlessauth.dto.response;
+
+import com.bitsar.passwordlessauth.enums.ImportJobStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserImportJobResponseDto {
+    private String jobId;
+    private ImportJobStatus status;
+    private long rowsRead;
+    private long imported;
+    private long duplicates;
+    private long failed;
+    private List<UserImportErrorDto> errors;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -6,20 +6,32 @@ import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.MongoId;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 
 @Document(collection = "users_session")
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class UserSession {
+    // Kept across logins of the phone number, the session id changes on every login
     @MongoId
     private String id;
+    // Handed to the client at login, sparse since sessions stored before it was added have none
+    @Indexed(unique = true, sparse = true)
+    private String sessionId;
     @Indexed(unique = true)
     private String session;
     @Indexed(unique = true)
     private String phoneNumber;
+    // Copied from the user at login, so the session flows need no user lookup
+    @Indexed(sparse = true)
+    private String cognitoUserName;
+    private String firstName;
+    private String lastName;
     private String accessToken;
     private String idToken;
     private String refreshToken;
     private LocalDateTime timeStamp;
+    // Idle expiry, purged by the TTL index created in MongoSessionStore
+    private Instant expiresAt;
 }
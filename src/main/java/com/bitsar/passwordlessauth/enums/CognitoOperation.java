@@ -0,0 +1,22 @@
+package com.bitsar.passwordlessauth.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum CognitoOperation {
+    SIGN_UP("SignUp"),
+    CONFIRM_SIGN_UP("ConfirmSignUp"),
+    RESEND_CONFIRMATION_CODE("ResendConfirmationCode"),
+    INITIATE_AUTH("InitiateAuth"),
+    RESPOND_TO_AUTH_CHALLENGE("RespondToAuthChallenge"),
+    GLOBAL_SIGN_OUT("GlobalSignOut"),
+    ADMIN_CREATE_USER("AdminCreateUser"),
+    ADMIN_SET_USER_PASSWORD("AdminSetUserPassword");
+
+    private final String apiName;
+
+    CognitoOperation(String apiName) {
+        this.apiName = apiName;
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.bitsar.passwordlessauth.enums;
+
+import lombok.Getter;
+
+/**
+ * Failure codes of the API. The response code is {@link ResponseStatus#FAILURE} minus the level. Expected codes are
+ * business outcomes a client can cause, like a wrong OTP; their exceptions skip the stack trace and they are logged
+ * without one.
+ */
+@Getter
+public enum ErrorCode {
+    EXCEPTION(0, false),
+    RUNTIME_EXCEPTION(1, false),
+    INVALID_PHONE_NUMBER_FORMAT(2, true),
+    PHONE_NUMBER_ALREADY_EXISTS(3, true),
+    SECRET_HASH_GENERATION(4, false),
+    INVALID_REGISTRATION_SESSION(5, true),
+    INCORRECT_OTP(6, true),
+    NOT_AUTHORIZED_TO_LOGIN(7, true),
+    INVALID_SESSION(8, true),
+    TOKEN_PARSE(9, true),
+    IDLE_TIME_EXPIRED(10, true),
+    USER_ALREADY_LOGGED_OUT(11, true),
+    COGNITO_UNAVAILABLE(12, false),
+    INVALID_TOKEN(13, true),
+    IMPORT_JOB_NOT_FOUND(14, true),
+    UNSUPPORTED_IMPORT_FORMAT(15, true),
+    RATE_LIMIT_EXCEEDED(16, true),
+    ADMIN_UNAUTHORIZED(17, true),
+    IMPORT_TOO_LARGE(18, true),
+    IMPORT_QUEUE_FULL(19, true);
+
+    private final int level;
+    private final boolean expected;
+
+    ErrorCode(int level, boolean expected) {
+        this.level = level;
+        this.expected = expected;
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.bitsar.passwordlessauth.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum ImportFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final String contentType;
+
+    ImportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+}
@@ -0,0 +1,8 @@
+package com.bitsar.passwordlessauth.enums;
+
+public enum ImportJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
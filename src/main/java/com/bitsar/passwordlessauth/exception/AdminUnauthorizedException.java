@@ -0,0 +1,9 @@
+package com.bitsar.passwordlessauth.exception;
+
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+
+public class AdminUnauthorizedException extends AuthException {
+    public AdminUnauthorizedException(String adminUnauthorized) {
+        super(ErrorCode.ADMIN_UNAUTHORIZED, adminUnauthorized);
+    }
+}
@@ -0,0 +1,24 @@
+package com.bitsar.passwordlessauth.exception;
+
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+import lombok.Getter;
+
+/**
+ * Base of the exceptions the API answers with a failure code. Exceptions of an expected code do not capture a stack
+ * trace: they are thrown for every wrong OTP or stale session, and filling in the stack is most of their cost. A cause,
+ * when there is one, keeps its own stack trace.
+ */
+@Getter
+public abstract class AuthException extends RuntimeException {
+
+    private final transient ErrorCode errorCode;
+
+    protected AuthException(ErrorCode errorCode, String message) {
+        this(errorCode, message, null);
+    }
+
+    protected AuthException(ErrorCode errorCode, String message, Throwable cause) {
+        super(message, cause, !errorCode.isExpected(), !errorCode.isExpected());
+        this.errorCode = errorCode;
+    }
+}
@@ -0,0 +1,9 @@
+package com.bitsar.passwordlessauth.exception;
+
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+
+public class CognitoUnavailableException extends AuthException {
+    public CognitoUnavailableException(String cognitoUnavailable, Exception e) {
+        super(ErrorCode.COGNITO_UNAVAILABLE, cognitoUnavailable, e);
+    }
+}
@@ -1,23 +1,20 @@
 package com.bitsar.passwordlessauth.exception;
 
 import com.bitsar.passwordlessauth.dto.ResponseWrap;
+import com.bitsar.passwordlessauth.enums.ErrorCode;
 import com.bitsar.passwordlessauth.util.ResponseBuilder;
-import lombok.extern.slf4j.Slf4j;
+import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
-import java.util.Arrays;
-import java.util.Optional;
-
-@Slf4j
 @ControllerAdvice
+@RequiredArgsConstructor
 public class CustomRestExceptionHandler extends ResponseEntityExceptionHandler {
 
-    public static final String PACKAGE_NAME = "com.bitsar.passwordlessauth";
-
+    private final SampledErrorLogger errorLogger;
 
     /**
      * Handles all exceptions and returns a failure response with error message.
@@ -28,8 +25,7 @@ public class CustomRestExceptionHandler extends ResponseEntityExceptionHandler {
      */
     @ExceptionHandler({Exception.class})
     public ResponseEntity<ResponseWrap<Object>> handleAll(final Exception ex, final WebRequest request) {
-        logError(ex);
-        return ResponseBuilder.getFailureResponse(ex.getMessage(), 0);
+        return failure(ErrorCode.EXCEPTION, ex);
     }
 
     /**
@@ -41,159 +37,24 @@ public class CustomRestExceptionHandler extends ResponseEntityExceptionHandler {
      */
     @ExceptionHandler({RuntimeException.class})
     public ResponseEntity<ResponseWrap<Object>> handleAllBadRequest(final Exception ex, final WebRequest request) {
-        logError(ex);
-        return ResponseBuilder.getFailureResponse(ex.getMessage(), 1);
+        return failure(ErrorCode.RUNTIME_EXCEPTION, ex);
     }
 
     /**
-     * Handle invalid phone number format exception
+     * Handles the exceptions of the API, answering with the failure code the exception carries.
      *
      * @param ex      the exception to handle
      * @param request the web request
-     * @return the response wrap
-     */
-    @ExceptionHandler({InvalidPhoneNumberFormatException.class})
-    public ResponseEntity<ResponseWrap<Object>> handleAllBadRequest(final InvalidPhoneNumberFormatException ex, final WebRequest request) {
-        logError(ex);
-        return ResponseBuilder.getFailureResponse(ex.getMessage(), 2);
-    }
-
-    /**
-     * Exception handler for PhoneNumberAlreadyExistsException
-     *
-     * @param ex      The exception to be handled
-     * @param request The web request
-     * @return ResponseEntity containing the failure response
-     */
-    @ExceptionHandler({PhoneNumberAlreadyExistsException.class})
-    public ResponseEntity<ResponseWrap<Object>> handleAllBadRequest(final PhoneNumberAlreadyExistsException ex, final WebRequest request) {
-        logError(ex);
-        return ResponseBuilder.getFailureResponse(ex.getMessage(), 3);
-    }
-
-    /**
-     * Handle SecretHashGenerationException and return a failure response
-     *
-     * @param ex      The SecretHashGenerationException to handle
-     * @param request The current web request
-     * @return A ResponseEntity containing a failure response
-     */
-    @ExceptionHandler({SecretHashGenerationException.class})
-    public ResponseEntity<ResponseWrap<Object>> handleAllBadRequest(final SecretHashGenerationException ex, final WebRequest request) {
-        logError(ex);
-        return ResponseBuilder.getFailureResponse(ex.getMessage(), 4);
-    }
-
-    /**
-     * Handles InvalidRegistrationSessionException and returns a failure response.
-     *
-     * @param ex      the InvalidRegistrationSessionException
-     * @param request the WebRequest
-     * @return a ResponseEntity containing a failure response
-     */
-    @ExceptionHandler({InvalidRegistrationSessionException.class})
-    public ResponseEntity<ResponseWrap<Object>> handleAllBadRequest(final InvalidRegistrationSessionException ex, final WebRequest request) {
-        logError(ex);
-        return ResponseBuilder.getFailureResponse(ex.getMessage(), 5);
-    }
-
-    /**
-     * Handles IncorrectOTPException and returns a failure response.
-     *
-     * @param ex      the IncorrectOTPException
-     * @param request the WebRequest
-     * @return a ResponseEntity containing a failure response
-     */
-    @ExceptionHandler({IncorrectOTPException.class})
-    public ResponseEntity<ResponseWrap<Object>> handleAllBadRequest(final IncorrectOTPException ex, final WebRequest request) {
-        logError(ex);
-        return ResponseBuilder.getFailureResponse(ex.getMessage(), 6);
-    }
-
-    /**
-     * Handle NotAuthorizedToLoginException and return a failure response
-     *
-     * @param ex      the NotAuthorizedToLoginException
-     * @param request the web request
-     * @return a ResponseEntity with a failure response
-     */
-    @ExceptionHandler({NotAuthorizedToLoginException.class})
-    public ResponseEntity<ResponseWrap<Object>> handleAllBadRequest(final NotAuthorizedToLoginException ex, final WebRequest request) {
-        logError(ex);
-        return ResponseBuilder.getFailureResponse(ex.getMessage(), 7);
-    }
-
-    /**
-     * Exception handler for InvalidSessionException
-     *
-     * @param ex       the InvalidSessionException
-     * @param request  the WebRequest
-     * @return         a ResponseEntity with a failure response
-     */
-    @ExceptionHandler({InvalidSessionException.class})
-    public ResponseEntity<ResponseWrap<Object>> handleAllBadRequest(final InvalidSessionException ex, final WebRequest request) {
-        logError(ex);
-        return ResponseBuilder.getFailureResponse(ex.getMessage(), 8);
-    }
-
-    /**
-     * Handles TokenParseException and returns a failure response with the error message and error code.
-     *
-     * @param ex the TokenParseException
-     * @param request the WebRequest
-     * @return ResponseEntity containing the failure response
-     */
-    @ExceptionHandler({TokenParseException.class})
-    public ResponseEntity<ResponseWrap<Object>> handleAllBadRequest(final TokenParseException ex, final WebRequest request) {
-        logError(ex);
-        return ResponseBuilder.getFailureResponse(ex.getMessage(), 9);
-    }
-
-    /**
-     * Handles IdleTimeExpiredException and returns a failure response with a message and code 10.
-     *
-     * @param ex       the IdleTimeExpiredException
-     * @param request  the WebRequest
-     * @return a ResponseEntity with the failure response
-     */
-    @ExceptionHandler({IdleTimeExpiredException.class})
-    public ResponseEntity<ResponseWrap<Object>> handleAllBadRequest(final IdleTimeExpiredException ex, final WebRequest request) {
-        logError(ex);
-        return ResponseBuilder.getFailureResponse(ex.getMessage(), 10);
-    }
-
-    /**
-     * Handle UserAlreadyLoggedOutException and return a failure response.
-     *
-     * @param ex the UserAlreadyLoggedOutException
-     * @param request the WebRequest
-     * @return a ResponseEntity containing a failure response
+     * @return the response entity with failure response
      */
-    @ExceptionHandler({UserAlreadyLoggedOutException.class})
-    public ResponseEntity<ResponseWrap<Object>> handleAllBadRequest(final UserAlreadyLoggedOutException ex, final WebRequest request) {
-        logError(ex);
-        return ResponseBuilder.getFailureResponse(ex.getMessage(), 11);
+    @ExceptionHandler({AuthException.class})
+    public ResponseEntity<ResponseWrap<Object>> handleAuthException(final AuthException ex, final WebRequest request) {
+        return failure(ex.getErrorCode(), ex);
     }
 
-    /**
-     * Logs the error and its location in the code.
-     *
-     * @param ex the exception to be logged
-     */
-    private void logError(Exception ex) {
-        // Find the first stack trace element that matches the package name and is not a lambda expression
-        Optional<StackTraceElement> logTrace = Arrays.stream(ex.getStackTrace())
-                .filter(errorLog -> errorLog.getClassName().startsWith(PACKAGE_NAME) && !errorLog.getClassName().contains("$$"))
-                .findFirst();
-
-        // If a matching stack trace element is found, log the error location
-        if (logTrace.isPresent()) {
-            StackTraceElement ste = logTrace.get();
-            log.info("Error in class {} in {}() : {}", ste.getClassName(), ste.getMethodName(), ex.toString());
-        }
-
-        // Log the error
-        log.error("Error", ex);
+    private ResponseEntity<ResponseWrap<Object>> failure(ErrorCode errorCode, Exception ex) {
+        errorLogger.log(errorCode, ex);
+        return ResponseBuilder.getFailureResponse(ex.getMessage(), errorCode.getLevel());
     }
 
 }
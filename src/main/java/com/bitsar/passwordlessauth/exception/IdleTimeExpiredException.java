@@ -1,7 +1,9 @@
 package com.bitsar.passwordlessauth.exception;
 
-public class IdleTimeExpiredException extends RuntimeException {
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+
+public class IdleTimeExpiredException extends AuthException {
     public IdleTimeExpiredException(String s) {
-        super(s);
+        super(ErrorCode.IDLE_TIME_EXPIRED, s);
     }
 }
@@ -0,0 +1,9 @@
+package com.bitsar.passwordlessauth.exception;
+
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+
+public class ImportJobNotFoundException extends AuthException {
+    public ImportJobNotFoundException(String importJobNotFound) {
+        super(ErrorCode.IMPORT_JOB_NOT_FOUND, importJobNotFound);
+    }
+}
@@ -0,0 +1,9 @@
+package com.bitsar.passwordlessauth.exception;
+
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+
+public class ImportQueueFullException extends AuthException {
+    public ImportQueueFullException(String importQueueFull) {
+        super(ErrorCode.IMPORT_QUEUE_FULL, importQueueFull);
+    }
+}
@@ -0,0 +1,9 @@
+package com.bitsar.passwordlessauth.exception;
+
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+
+public class ImportTooLargeException extends AuthException {
+    public ImportTooLargeException(String importTooLarge) {
+        super(ErrorCode.IMPORT_TOO_LARGE, importTooLarge);
+    }
+}
@@ -1,7 +1,9 @@
 package com.bitsar.passwordlessauth.exception;
 
-public class IncorrectOTPException extends RuntimeException {
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+
+public class IncorrectOTPException extends AuthException {
     public IncorrectOTPException(String wrongOtpPassed) {
-        super(wrongOtpPassed);
+        super(ErrorCode.INCORRECT_OTP, wrongOtpPassed);
     }
 }
@@ -1,7 +1,9 @@
 package com.bitsar.passwordlessauth.exception;
 
-public class InvalidPhoneNumberFormatException extends RuntimeException {
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+
+public class InvalidPhoneNumberFormatException extends AuthException {
     public InvalidPhoneNumberFormatException(String s) {
-        super(s);
+        super(ErrorCode.INVALID_PHONE_NUMBER_FORMAT, s);
     }
 }
@@ -1,7 +1,9 @@
 package com.bitsar.passwordlessauth.exception;
 
-public class InvalidRegistrationSessionException extends RuntimeException {
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+
+public class InvalidRegistrationSessionException extends AuthException {
     public InvalidRegistrationSessionException(String invalidRegistrationSession) {
-        super(invalidRegistrationSession);
+        super(ErrorCode.INVALID_REGISTRATION_SESSION, invalidRegistrationSession);
     }
 }
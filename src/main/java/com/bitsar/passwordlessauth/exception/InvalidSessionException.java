@@ -1,7 +1,9 @@
 package com.bitsar.passwordlessauth.exception;
 
-public class InvalidSessionException extends RuntimeException {
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+
+public class InvalidSessionException extends AuthException {
     public InvalidSessionException(String invalidSession) {
-        super(invalidSession);
+        super(ErrorCode.INVALID_SESSION, invalidSession);
     }
 }
@@ -0,0 +1,9 @@
+package com.bitsar.passwordlessauth.exception;
+
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+
+public class InvalidTokenException extends AuthException {
+    public InvalidTokenException(String invalidToken) {
+        super(ErrorCode.INVALID_TOKEN, invalidToken);
+    }
+}
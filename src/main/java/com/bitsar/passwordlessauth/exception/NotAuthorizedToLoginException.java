@@ -1,7 +1,9 @@
 package com.bitsar.passwordlessauth.exception;
 
-public class NotAuthorizedToLoginException extends RuntimeException {
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+
+public class NotAuthorizedToLoginException extends AuthException {
     public NotAuthorizedToLoginException(String s) {
-        super(s);
+        super(ErrorCode.NOT_AUTHORIZED_TO_LOGIN, s);
     }
 }
@@ -1,7 +1,9 @@
 package com.bitsar.passwordlessauth.exception;
 
-public class PhoneNumberAlreadyExistsException extends RuntimeException {
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+
+public class PhoneNumberAlreadyExistsException extends AuthException {
     public PhoneNumberAlreadyExistsException(String phoneNumberAlreadyExists) {
-        super(phoneNumberAlreadyExists);
+        super(ErrorCode.PHONE_NUMBER_ALREADY_EXISTS, phoneNumberAlreadyExists);
     }
 }
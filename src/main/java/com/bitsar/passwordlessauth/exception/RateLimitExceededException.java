@@ -0,0 +1,9 @@
+package com.bitsar.passwordlessauth.exception;
+
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+
+public class RateLimitExceededException extends AuthException {
+    public RateLimitExceededException(String rateLimitExceeded) {
+        super(ErrorCode.RATE_LIMIT_EXCEEDED, rateLimitExceeded);
+    }
+}
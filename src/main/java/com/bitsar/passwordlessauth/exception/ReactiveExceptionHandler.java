@@ -0,0 +1,42 @@
+package com.bitsar.passwordlessauth.exception;
+
+import com.bitsar.passwordlessauth.dto.ResponseWrap;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.method.annotation.ExceptionHandlerMethodResolver;
+
+import java.lang.reflect.Method;
+
+/**
+ * Error handling for the WebFlux controllers of the "reactive" profile. The handlers of
+ * {@link CustomRestExceptionHandler} take a servlet {@code WebRequest}, which WebFlux cannot supply, so this advice
+ * resolves the matching handler itself and calls it, keeping one mapping from exception to failure code for both stacks.
+ */
+@Profile("reactive")
+@ControllerAdvice
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class ReactiveExceptionHandler {
+
+    private final CustomRestExceptionHandler delegate;
+    private final ExceptionHandlerMethodResolver methodResolver = new ExceptionHandlerMethodResolver(CustomRestExceptionHandler.class);
+
+    /**
+     * Handles any exception with the closest matching handler of {@link CustomRestExceptionHandler}.
+     *
+     * @param ex the exception to handle
+     * @return the response entity with failure response
+     */
+    @ExceptionHandler({Exception.class})
+    @SuppressWarnings("unchecked")
+    public ResponseEntity<ResponseWrap<Object>> handleAll(final Exception ex) {
+        Method handler = methodResolver.resolveMethodByThrowable(ex);
+        return (ResponseEntity<ResponseWrap<Object>>) ReflectionUtils.invokeMethod(handler, delegate, ex, null);
+    }
+}
@@ -0,0 +1,89 @@
+package com.bitsar.passwordlessauth.exception;
+
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs the failures answered by {@link CustomRestExceptionHandler}, at most {@code error-log.max-per-interval} lines
+ * per failure code in each interval. Failures over the limit are only counted, and the next line logged for the code
+ * says how many were left out. Every failure increments {@code auth.errors}, tagged by code, logged or not.
+ * <p>
+ * Expected failures are logged at info without a stack trace, the others at error with theirs.
+ */
+@Slf4j
+@Component
+public class SampledErrorLogger {
+
+    private final int maxPerInterval;
+    private final long intervalNanos;
+    private final Map<ErrorCode, Counter> counters = new EnumMap<>(ErrorCode.class);
+    private final Map<ErrorCode, Window> windows = new EnumMap<>(ErrorCode.class);
+
+    public SampledErrorLogger(MeterRegistry meterRegistry,
+                              @Value("${error-log.max-per-interval:10}") int maxPerInterval,
+                              @Value("${error-log.interval-ms:10000}") long intervalMs) {
+        this.maxPerInterval = maxPerInterval;
+        this.intervalNanos = Duration.ofMillis(intervalMs).toNanos();
+        // Registered up front, the failure path only looks them up
+        for (ErrorCode errorCode : ErrorCode.values()) {
+            counters.put(errorCode, Counter.builder("auth.errors")
+                    .description("Requests answered with a failure code")
+                    .tag("code", errorCode.name())
+                    .register(meterRegistry));
+            windows.put(errorCode, new Window(System.nanoTime()));
+        }
+    }
+
+    /**
+     * Counts the failure and logs it, unless its code has used up the lines of the current interval.
+     *
+     * @param errorCode the failure code the request is answered with
+     * @param ex        the exception that failed the request
+     */
+    public void log(ErrorCode errorCode, Throwable ex) {
+        counters.get(errorCode).increment();
+        long leftOut = windows.get(errorCode).tryAcquire(System.nanoTime());
+        if (leftOut < 0) return;
+
+        if (errorCode.isExpected()) {
+            log.info("Request failed with {} : {} ({} similar not logged)", errorCode, ex, leftOut);
+        } else {
+            log.error("Request failed with {} ({} similar not logged)", errorCode, leftOut, ex);
+        }
+    }
+
+    private final class Window {
+
+        private final AtomicLong start;
+        private final AtomicInteger logged = new AtomicInteger();
+        private final AtomicLong leftOut = new AtomicLong();
+
+        Window(long start) {
+            this.start = new AtomicLong(start);
+        }
+
+        /**
+         * @return the failures left out since the last line, or -1 if this one is left out too
+         */
+        long tryAcquire(long now) {
+            long windowStart = start.get();
+            // One caller opens the next interval, a few lines over the limit are possible while it does
+            if (now - windowStart >= intervalNanos && start.compareAndSet(windowStart, now)) logged.set(0);
+            if (logged.incrementAndGet() > maxPerInterval) {
+                leftOut.incrementAndGet();
+                return -1;
+            }
+            return leftOut.getAndSet(0);
+        }
+    }
+}
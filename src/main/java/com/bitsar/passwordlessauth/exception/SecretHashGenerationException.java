@@ -1,7 +1,9 @@
 package com.bitsar.passwordlessauth.exception;
 
-public class SecretHashGenerationException extends RuntimeException {
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+
+public class SecretHashGenerationException extends AuthException {
     public SecretHashGenerationException(String errorWhileCalculatingSecretHash, Exception e) {
-        super(errorWhileCalculatingSecretHash, e);
+        super(ErrorCode.SECRET_HASH_GENERATION, errorWhileCalculatingSecretHash, e);
     }
 }
@@ -1,6 +1,9 @@
 package com.bitsar.passwordlessauth.exception;
 
-public class TokenParseException extends RuntimeException {
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+
+public class TokenParseException extends AuthException {
     public TokenParseException(String s, Exception e) {
+        super(ErrorCode.TOKEN_PARSE, s, e);
     }
 }
@@ -0,0 +1,9 @@
+package com.bitsar.passwordlessauth.exception;
+
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+
+public class UnsupportedImportFormatException extends AuthException {
+    public UnsupportedImportFormatException(String unsupportedImportFormat) {
+        super(ErrorCode.UNSUPPORTED_IMPORT_FORMAT, unsupportedImportFormat);
+    }
+}
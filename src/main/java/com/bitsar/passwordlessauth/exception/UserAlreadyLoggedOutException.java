@@ -1,7 +1,9 @@
 package com.bitsar.passwordlessauth.exception;
 
-public class UserAlreadyLoggedOutException extends RuntimeException {
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+
+public class UserAlreadyLoggedOutException extends AuthException {
     public UserAlreadyLoggedOutException(String s) {
-        super(s);
+        super(ErrorCode.USER_ALREADY_LOGGED_OUT, s);
     }
 }
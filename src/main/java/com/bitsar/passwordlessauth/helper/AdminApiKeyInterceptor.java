@@ -0,0 +1,39 @@
+package com.bitsar.passwordlessauth.helper;
+
+import com.bitsar.passwordlessauth.exception.AdminUnauthorizedException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Objects;
+
+/**
+ * Guards the admin endpoints with a shared API key sent in the {@value #API_KEY_HEADER} header. Without a configured
+ * key every admin call is refused, so a deployment that never set one does not expose them.
+ */
+@Component
+public class AdminApiKeyInterceptor implements HandlerInterceptor {
+
+    public static final String API_KEY_HEADER = "X-Admin-Api-Key";
+
+    private final byte[] apiKey;
+
+    public AdminApiKeyInterceptor(@Value("${admin.api-key:}") String apiKey) {
+        this.apiKey = apiKey.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Runs before the handler reads the body, a refused import is never spooled
+        String presented = request.getHeader(API_KEY_HEADER);
+        if (apiKey.length == 0 || Objects.isNull(presented)
+                || !MessageDigest.isEqual(apiKey, presented.getBytes(StandardCharsets.UTF_8))) {
+            throw new AdminUnauthorizedException("Admin API key is missing or invalid");
+        }
+        return true;
+    }
+}
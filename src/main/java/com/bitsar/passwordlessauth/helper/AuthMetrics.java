@@ -0,0 +1,73 @@
+package com.bitsar.passwordlessauth.helper;
+
+import com.bitsar.passwordlessauth.dao.SessionStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the auth flows that timers do not show: wrong OTPs, OTPs sent again and login sessions created, tagged
+ * by flow, and a gauge of the sessions that have not expired.
+ */
+@Slf4j
+@Component
+public class AuthMetrics {
+
+    public static final String SIGN_UP = "sign-up";
+    public static final String SIGN_IN = "sign-in";
+
+    private final MeterRegistry meterRegistry;
+    private final SessionStore sessionStore;
+    private final Counter sessionsCreated;
+    private final AtomicLong activeSessions = new AtomicLong();
+
+    public AuthMetrics(MeterRegistry meterRegistry, SessionStore sessionStore) {
+        this.meterRegistry = meterRegistry;
+        this.sessionStore = sessionStore;
+        this.sessionsCreated = Counter.builder("auth.sessions.created")
+                .description("Login sessions started")
+                .register(meterRegistry);
+        Gauge.builder("auth.sessions.active", activeSessions, AtomicLong::get)
+                .description("Sessions that have not expired, as of the last count")
+                .register(meterRegistry);
+    }
+
+    public void otpFailed(String flow) {
+        Counter.builder("auth.otp.failures")
+                .description("Wrong OTPs entered")
+                .tag("flow", flow)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void otpResent(String flow) {
+        Counter.builder("auth.otp.resends")
+                .description("OTPs sent again")
+                .tag("flow", flow)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void sessionCreated() {
+        sessionsCreated.increment();
+    }
+
+    /**
+     * Counts the active sessions on a fixed delay, so a scrape never waits on the session store. The last count is kept
+     * if the store cannot be reached.
+     */
+    @Scheduled(fixedDelayString = "${metrics.active-sessions.refresh-interval-ms:30000}")
+    public void countActiveSessions() {
+        try {
+            activeSessions.set(sessionStore.countActive(Instant.now()));
+        } catch (RuntimeException e) {
+            log.warn("Unable to count active sessions", e);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.bitsar.passwordlessauth.helper;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceResult;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.retry.RetryUtils;
+import com.bitsar.passwordlessauth.enums.CognitoOperation;
+import com.bitsar.passwordlessauth.exception.CognitoUnavailableException;
+import com.bitsar.passwordlessauth.jfr.CognitoCallEvent;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+@Slf4j
+@Component
+public class CognitoCircuitBreakers {
+
+    private final Map<CognitoOperation, CircuitBreaker> circuitBreakers = new EnumMap<>(CognitoOperation.class);
+    private final MeterRegistry meterRegistry;
+
+    public CognitoCircuitBreakers(MeterRegistry meterRegistry,
+                                  @Value("${cognito.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+                                  @Value("${cognito.circuit-breaker.slow-call-rate-threshold:80}") float slowCallRateThreshold,
+                                  @Value("${cognito.circuit-breaker.slow-call-duration-ms:3000}") long slowCallDurationMs,
+                                  @Value("${cognito.circuit-breaker.sliding-window-size:50}") int slidingWindowSize,
+                                  @Value("${cognito.circuit-breaker.minimum-number-of-calls:20}") int minimumNumberOfCalls,
+                                  @Value("${cognito.circuit-breaker.wait-duration-in-open-state-ms:10000}") long waitDurationInOpenStateMs,
+                                  @Value("${cognito.circuit-breaker.permitted-calls-in-half-open-state:5}") int permittedCallsInHalfOpenState) {
+        this.meterRegistry = meterRegistry;
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slowCallDurationThreshold(Duration.ofMillis(slowCallDurationMs))
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .waitDurationInOpenState(Duration.ofMillis(waitDurationInOpenStateMs))
+                .permittedNumberOfCallsInHalfOpenState(permittedCallsInHalfOpenState)
+                .recordException(CognitoCircuitBreakers::isCognitoFailure)
+                .build();
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+
+        // One breaker per Cognito operation, so a degraded sign up path does not block refreshes and logouts
+        for (CognitoOperation operation : CognitoOperation.values()) {
+            CircuitBreaker circuitBreaker = registry.circuitBreaker("cognito-" + operation.getApiName());
+            circuitBreaker.getEventPublisher().onStateTransition(event ->
+                    log.warn("Cognito circuit breaker {} moved {}", event.getCircuitBreakerName(), event.getStateTransition()));
+            circuitBreakers.put(operation, circuitBreaker);
+        }
+    }
+
+    /**
+     * Runs a blocking Cognito call through the circuit breaker of its operation.
+     *
+     * @param operation the Cognito operation being called
+     * @param call      the call to run
+     * @return the result of the call
+     * @throws CognitoUnavailableException if the circuit is open
+     */
+    public <T> T execute(CognitoOperation operation, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CognitoCallEvent event = CognitoCallEvent.start();
+        try {
+            T result = circuitBreakers.get(operation).executeSupplier(call);
+            record(sample, event, operation, result, null);
+            return result;
+        } catch (CallNotPermittedException e) {
+            record(sample, event, operation, null, e);
+            throw unavailable(e);
+        } catch (RuntimeException e) {
+            record(sample, event, operation, null, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Runs an asynchronous Cognito call through the circuit breaker of its operation.
+     *
+     * @param operation the Cognito operation being called
+     * @param call      the call to run
+     * @return a future failed with {@link CognitoUnavailableException} if the circuit is open
+     */
+    public <T> CompletableFuture<T> executeAsync(CognitoOperation operation, Supplier<CompletableFuture<T>> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CognitoCallEvent event = CognitoCallEvent.start();
+        return circuitBreakers.get(operation).executeCompletionStage(call::get)
+                .toCompletableFuture()
+                .exceptionallyCompose(ex -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    record(sample, event, operation, null, cause);
+                    return CompletableFuture.failedFuture(cause instanceof CallNotPermittedException callNotPermitted ? unavailable(callNotPermitted) : cause);
+                })
+                .thenApply(result -> {
+                    record(sample, event, operation, result, null);
+                    return result;
+                });
+    }
+
+    public CircuitBreaker.State getState(CognitoOperation operation) {
+        return circuitBreakers.get(operation).getState();
+    }
+
+    /**
+     * Records a Cognito call in the {@code auth.cognito} timer of its operation and outcome, and in a flight recorder
+     * event when a recording is running.
+     */
+    private void record(Timer.Sample sample, CognitoCallEvent event, CognitoOperation operation, Object result, Throwable throwable) {
+        String outcome = outcome(throwable);
+        sample.stop(Timer.builder("auth.cognito")
+                .description("Cognito calls")
+                .tag("operation", operation.getApiName())
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+        event.end(operation.getApiName(), outcome, result, CognitoCircuitBreakers::responseBytes);
+    }
+
+    private static long responseBytes(Object result) {
+        if (!(result instanceof AmazonWebServiceResult<?> serviceResult) || Objects.isNull(serviceResult.getSdkHttpMetadata())) return -1;
+        List<String> contentLength = serviceResult.getSdkHttpMetadata().getAllHttpHeaders().get("Content-Length");
+        try {
+            return Objects.isNull(contentLength) || contentLength.isEmpty() ? -1 : Long.parseLong(contentLength.get(0));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * The outcome of a Cognito call: Success, CircuitOpen, Throttled, the Cognito error code without its Exception suffix
+     * (CodeMismatch, NotAuthorized...), ClientError for transport failures, or the exception class name.
+     */
+    static String outcome(Throwable throwable) {
+        if (Objects.isNull(throwable)) return "Success";
+        if (throwable instanceof CallNotPermittedException) return "CircuitOpen";
+        if (throwable instanceof AmazonServiceException serviceException) {
+            if (RetryUtils.isThrottlingException(serviceException)) return "Throttled";
+            String errorCode = serviceException.getErrorCode();
+            if (Objects.isNull(errorCode) || errorCode.isBlank()) return "ServiceError";
+            return errorCode.endsWith("Exception") ? errorCode.substring(0, errorCode.length() - "Exception".length()) : errorCode;
+        }
+        if (throwable instanceof SdkClientException) return "ClientError";
+        return throwable.getClass().getSimpleName();
+    }
+
+    private static CognitoUnavailableException unavailable(CallNotPermittedException e) {
+        return new CognitoUnavailableException("Authentication provider is temporarily unavailable, please try again later", e);
+    }
+
+    /**
+     * Only outages count against the breaker: server errors, throttling and transport failures. Business errors such as
+     * a wrong OTP are answers from a healthy Cognito.
+     *
+     * @param throwable the exception thrown by the call
+     * @return true if the exception should be recorded as a failure
+     */
+    private static boolean isCognitoFailure(Throwable throwable) {
+        if (throwable instanceof AmazonServiceException serviceException) {
+            return serviceException.getErrorType() == AmazonServiceException.ErrorType.Service
+                    || serviceException.getStatusCode() >= 500
+                    || RetryUtils.isThrottlingException(serviceException);
+        }
+        return throwable instanceof SdkClientException;
+    }
+}
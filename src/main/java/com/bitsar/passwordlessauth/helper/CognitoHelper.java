@@ -1,22 +1,26 @@
 package com.bitsar.passwordlessauth.helper;
 
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProvider;
+import com.amazonaws.services.cognitoidp.AWSCognitoIdentityProviderAsync;
 import com.amazonaws.services.cognitoidp.model.*;
-import com.amazonaws.util.StringUtils;
 import com.bitsar.passwordlessauth.constants.AuthConstants;
+import com.bitsar.passwordlessauth.enums.CognitoOperation;
 import com.bitsar.passwordlessauth.exception.SecretHashGenerationException;
+import com.bitsar.passwordlessauth.phone.PhoneNumber;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
-import static com.bitsar.passwordlessauth.constants.AuthConstants.HMAC_SHA256_ALGORITHM;
+import static com.bitsar.passwordlessauth.enums.CognitoOperation.*;
 
 @Slf4j
 @Component
@@ -24,38 +28,34 @@ import static com.bitsar.passwordlessauth.constants.AuthConstants.HMAC_SHA256_AL
 public class CognitoHelper {
 
     private final AWSCognitoIdentityProvider cognitoClient;
+    private final SecretHashGenerator secretHashGenerator;
+    private final CognitoCircuitBreakers circuitBreakers;
     @Value("${cognito.clientId}")
     private String clientId;
-    @Value("${cognito.client-secret}")
-    private String clientSecret;
     @Value("${cognito.global-password}")
     private String globalPassword;
+    @Value("${cognito.user-pool-id}")
+    private String userPoolId;
 
     /**
-     * Signs up a user in Cognito using the specified country code and phone number.
+     * Signs up a user in Cognito with the specified phone number.
      *
-     * @param countryCode the country code of the user's phone number
      * @param phoneNumber the user's phone number
      * @return the result of the sign up process
      */
-    public SignUpResult cognitoSignUp(String countryCode, String phoneNumber) {
-        // Combine the country code and phone number to form the username
-        String username = countryCode + phoneNumber;
-
-        // Create a sign up request with the necessary parameters
-        SignUpRequest signUpRequest = new SignUpRequest()
-                .withClientId(clientId)
-                .withSecretHash(calculateSecretHash(username))
-                .withUsername(username)
-                .withPassword(globalPassword)
-                .withUserAttributes(
-                        new AttributeType()
-                                .withName("phone_number")
-                                .withValue(username)
-                );
-
+    public SignUpResult cognitoSignUp(PhoneNumber phoneNumber) {
         // Sign up the user using the Cognito client
-        return cognitoClient.signUp(signUpRequest);
+        return circuitBreakers.execute(SIGN_UP, () -> cognitoClient.signUp(signUpRequest(phoneNumber)));
+    }
+
+    /**
+     * Asynchronous variant of {@link #cognitoSignUp(PhoneNumber)}.
+     *
+     * @param phoneNumber the user's phone number
+     * @return a future completed with the result of the sign up process
+     */
+    public CompletableFuture<SignUpResult> cognitoSignUpAsync(PhoneNumber phoneNumber) {
+        return executeAsync(SIGN_UP, signUpRequest(phoneNumber), cognitoClient::signUp, AWSCognitoIdentityProviderAsync::signUpAsync);
     }
 
     /**
@@ -66,14 +66,19 @@ public class CognitoHelper {
      * @return The result of the sign-up confirmation
      */
     public ConfirmSignUpResult cognitoConfirmSignUp(String confirmationCode, String phoneNumber) {
-        // Create a confirm sign-up request
-        ConfirmSignUpRequest confirmSignUpRequest = new ConfirmSignUpRequest()
-                .withClientId(clientId)
-                .withSecretHash(calculateSecretHash(phoneNumber))
-                .withUsername(phoneNumber)
-                .withConfirmationCode(confirmationCode);
         // Confirm sign-up using Cognito client
-        return cognitoClient.confirmSignUp(confirmSignUpRequest);
+        return circuitBreakers.execute(CONFIRM_SIGN_UP, () -> cognitoClient.confirmSignUp(confirmSignUpRequest(confirmationCode, phoneNumber)));
+    }
+
+    /**
+     * Asynchronous variant of {@link #cognitoConfirmSignUp(String, String)}.
+     *
+     * @param confirmationCode The confirmation code
+     * @param phoneNumber      The phone number
+     * @return A future completed with the result of the sign-up confirmation
+     */
+    public CompletableFuture<ConfirmSignUpResult> cognitoConfirmSignUpAsync(String confirmationCode, String phoneNumber) {
+        return executeAsync(CONFIRM_SIGN_UP, confirmSignUpRequest(confirmationCode, phoneNumber), cognitoClient::confirmSignUp, AWSCognitoIdentityProviderAsync::confirmSignUpAsync);
     }
 
     /**
@@ -82,12 +87,17 @@ public class CognitoHelper {
      * @param phoneNumber The phone number for which to resend the confirmation code
      */
     public void cognitoResendConfirmCode(String phoneNumber) {
-        // Create a request to resend the confirmation code
-        ResendConfirmationCodeRequest request = new ResendConfirmationCodeRequest()
-                .withClientId(clientId) // Set the client ID
-                .withSecretHash(calculateSecretHash(phoneNumber)) // Calculate and set the secret hash
-                .withUsername(phoneNumber); // Set the username as the phone number
-        cognitoClient.resendConfirmationCode(request); // Send the request to the Amazon Cognito client
+        circuitBreakers.execute(RESEND_CONFIRMATION_CODE, () -> cognitoClient.resendConfirmationCode(resendConfirmationCodeRequest(phoneNumber))); // Send the request to the Amazon Cognito client
+    }
+
+    /**
+     * Asynchronous variant of {@link #cognitoResendConfirmCode(String)}.
+     *
+     * @param phoneNumber The phone number for which to resend the confirmation code
+     * @return A future completed once Cognito has accepted the request
+     */
+    public CompletableFuture<ResendConfirmationCodeResult> cognitoResendConfirmCodeAsync(String phoneNumber) {
+        return executeAsync(RESEND_CONFIRMATION_CODE, resendConfirmationCodeRequest(phoneNumber), cognitoClient::resendConfirmationCode, AWSCognitoIdentityProviderAsync::resendConfirmationCodeAsync);
     }
 
     /**
@@ -97,20 +107,18 @@ public class CognitoHelper {
      * @return the result of the authentication
      */
     public InitiateAuthResult cognitoSignIn(String phoneNumber) {
-        // Set up authentication parameters
-        Map<String, String> authParams = new HashMap<>();
-        authParams.put("USERNAME", phoneNumber);
-        authParams.put("PASSWORD", globalPassword); // Replace GLOBAL_PASSWORD with the actual global password
-        authParams.put(AuthConstants.SECRET_HASH_ATTRIBUTE, calculateSecretHash(phoneNumber));
-
-        // Set up the authentication request
-        InitiateAuthRequest authRequest = new InitiateAuthRequest()
-                .withAuthFlow(AuthFlowType.USER_PASSWORD_AUTH)
-                .withClientId(clientId) // Replace clientId with the actual client ID
-                .withAuthParameters(authParams);
-
         // Initiate the authentication and return the result
-        return cognitoClient.initiateAuth(authRequest);
+        return circuitBreakers.execute(INITIATE_AUTH, () -> cognitoClient.initiateAuth(signInRequest(phoneNumber)));
+    }
+
+    /**
+     * Asynchronous variant of {@link #cognitoSignIn(String)}.
+     *
+     * @param phoneNumber the user's phone number
+     * @return a future completed with the result of the authentication
+     */
+    public CompletableFuture<InitiateAuthResult> cognitoSignInAsync(String phoneNumber) {
+        return executeAsync(INITIATE_AUTH, signInRequest(phoneNumber), cognitoClient::initiateAuth, AWSCognitoIdentityProviderAsync::initiateAuthAsync);
     }
 
     /**
@@ -122,6 +130,142 @@ public class CognitoHelper {
      * @return the result of responding to the MFA challenge
      */
     public RespondToAuthChallengeResult respondToMFAChallenge(String phoneNumber, String confirmationCode, String session) {
+        // Send the challenge response request to Cognito and return the result
+        return circuitBreakers.execute(RESPOND_TO_AUTH_CHALLENGE, () -> cognitoClient.respondToAuthChallenge(mfaChallengeRequest(phoneNumber, confirmationCode, session)));
+    }
+
+    /**
+     * Asynchronous variant of {@link #respondToMFAChallenge(String, String, String)}.
+     *
+     * @param phoneNumber the phone number associated with the user
+     * @param confirmationCode the confirmation code received via SMS
+     * @param session the session string
+     * @return a future completed with the result of responding to the MFA challenge
+     */
+    public CompletableFuture<RespondToAuthChallengeResult> respondToMFAChallengeAsync(String phoneNumber, String confirmationCode, String session) {
+        return executeAsync(RESPOND_TO_AUTH_CHALLENGE, mfaChallengeRequest(phoneNumber, confirmationCode, session), cognitoClient::respondToAuthChallenge, AWSCognitoIdentityProviderAsync::respondToAuthChallengeAsync);
+    }
+
+    public InitiateAuthResult cognitoRefreshToken(String refreshToken, String cognitoUserName) {
+        return circuitBreakers.execute(INITIATE_AUTH, () -> cognitoClient.initiateAuth(refreshTokenRequest(refreshToken, cognitoUserName)));
+    }
+
+    /**
+     * Asynchronous variant of {@link #cognitoRefreshToken(String, String)}.
+     *
+     * @param refreshToken    the refresh token stored for the user's session
+     * @param cognitoUserName the Cognito username of the user
+     * @return a future completed with the refreshed tokens
+     */
+    public CompletableFuture<InitiateAuthResult> cognitoRefreshTokenAsync(String refreshToken, String cognitoUserName) {
+        return executeAsync(INITIATE_AUTH, refreshTokenRequest(refreshToken, cognitoUserName), cognitoClient::initiateAuth, AWSCognitoIdentityProviderAsync::initiateAuthAsync);
+    }
+
+    /**
+     * Calculates the secret hash for the given username.
+     *
+     * @param userName the username for which the secret hash is to be calculated
+     * @return the calculated secret hash
+     * @throws SecretHashGenerationException if an error occurs during the calculation
+     */
+    public String calculateSecretHash(String userName) {
+        // Pooled Mac instances and recently computed hashes live in the generator
+        return secretHashGenerator.generate(userName);
+    }
+
+    public void cognitoGlobalSignOut(String accessToken) {
+        circuitBreakers.execute(GLOBAL_SIGN_OUT, () -> cognitoClient.globalSignOut(globalSignOutRequest(accessToken)));
+    }
+
+    /**
+     * Asynchronous variant of {@link #cognitoGlobalSignOut(String)}.
+     *
+     * @param accessToken the access token to sign out
+     * @return a future completed once Cognito has revoked the tokens
+     */
+    public CompletableFuture<GlobalSignOutResult> cognitoGlobalSignOutAsync(String accessToken) {
+        return executeAsync(GLOBAL_SIGN_OUT, globalSignOutRequest(accessToken), cognitoClient::globalSignOut, AWSCognitoIdentityProviderAsync::globalSignOutAsync);
+    }
+
+    /**
+     * Creates an already verified user in the user pool without sending an invitation, used by the bulk import.
+     *
+     * @param phoneNumber the user's phone number with country code, which is also the username
+     * @return the result holding the created user and its attributes
+     */
+    public AdminCreateUserResult cognitoAdminCreateUser(String phoneNumber) {
+        AdminCreateUserRequest adminCreateUserRequest = new AdminCreateUserRequest()
+                .withUserPoolId(userPoolId)
+                .withUsername(phoneNumber)
+                .withMessageAction(MessageActionType.SUPPRESS)
+                .withUserAttributes(
+                        new AttributeType().withName("phone_number").withValue(phoneNumber),
+                        new AttributeType().withName("phone_number_verified").withValue("true"));
+        return circuitBreakers.execute(ADMIN_CREATE_USER, () -> cognitoClient.adminCreateUser(adminCreateUserRequest));
+    }
+
+    /**
+     * Sets the global password as permanent password, which confirms a user created by {@link #cognitoAdminCreateUser(String)}
+     * so it can sign in like a self registered user.
+     *
+     * @param phoneNumber the user's phone number with country code, which is also the username
+     */
+    public void cognitoAdminSetUserPassword(String phoneNumber) {
+        AdminSetUserPasswordRequest adminSetUserPasswordRequest = new AdminSetUserPasswordRequest()
+                .withUserPoolId(userPoolId)
+                .withUsername(phoneNumber)
+                .withPassword(globalPassword)
+                .withPermanent(true);
+        circuitBreakers.execute(ADMIN_SET_USER_PASSWORD, () -> cognitoClient.adminSetUserPassword(adminSetUserPasswordRequest));
+    }
+
+    private SignUpRequest signUpRequest(PhoneNumber phoneNumber) {
+        // The E.164 form of the phone number is the username
+        String username = phoneNumber.e164();
+
+        // Create a sign up request with the necessary parameters
+        return new SignUpRequest()
+                .withClientId(clientId)
+                .withSecretHash(calculateSecretHash(username))
+                .withUsername(username)
+                .withPassword(globalPassword)
+                .withUserAttributes(
+                        new AttributeType()
+                                .withName("phone_number")
+                                .withValue(username)
+                );
+    }
+
+    private ConfirmSignUpRequest confirmSignUpRequest(String confirmationCode, String phoneNumber) {
+        return new ConfirmSignUpRequest()
+                .withClientId(clientId)
+                .withSecretHash(calculateSecretHash(phoneNumber))
+                .withUsername(phoneNumber)
+                .withConfirmationCode(confirmationCode);
+    }
+
+    private ResendConfirmationCodeRequest resendConfirmationCodeRequest(String phoneNumber) {
+        return new ResendConfirmationCodeRequest()
+                .withClientId(clientId) // Set the client ID
+                .withSecretHash(calculateSecretHash(phoneNumber)) // Calculate and set the secret hash
+                .withUsername(phoneNumber); // Set the username as the phone number
+    }
+
+    private InitiateAuthRequest signInRequest(String phoneNumber) {
+        // Set up authentication parameters
+        Map<String, String> authParams = new HashMap<>();
+        authParams.put("USERNAME", phoneNumber);
+        authParams.put("PASSWORD", globalPassword); // Replace GLOBAL_PASSWORD with the actual global password
+        authParams.put(AuthConstants.SECRET_HASH_ATTRIBUTE, calculateSecretHash(phoneNumber));
+
+        // Set up the authentication request
+        return new InitiateAuthRequest()
+                .withAuthFlow(AuthFlowType.USER_PASSWORD_AUTH)
+                .withClientId(clientId) // Replace clientId with the actual client ID
+                .withAuthParameters(authParams);
+    }
+
+    private RespondToAuthChallengeRequest mfaChallengeRequest(String phoneNumber, String confirmationCode, String session) {
         // Create a map to hold the challenge responses
         Map<String, String> challengeResponses = new HashMap<>();
         challengeResponses.put("USERNAME", phoneNumber);
@@ -129,62 +273,67 @@ public class CognitoHelper {
         challengeResponses.put(AuthConstants.SECRET_HASH_ATTRIBUTE, calculateSecretHash(phoneNumber));
 
         // Create a request to respond to the MFA challenge
-        RespondToAuthChallengeRequest challengeRequest = new RespondToAuthChallengeRequest()
+        return new RespondToAuthChallengeRequest()
                 .withChallengeName(ChallengeNameType.SMS_MFA)
                 .withClientId(clientId)
                 .withChallengeResponses(challengeResponses)
                 .withSession(session);
-
-        // Send the challenge response request to Cognito and return the result
-        return cognitoClient.respondToAuthChallenge(challengeRequest);
     }
 
-
-    public InitiateAuthResult cognitoRefreshToken(String refreshToken, String cognitoUserName) {
+    private InitiateAuthRequest refreshTokenRequest(String refreshToken, String cognitoUserName) {
         Map<String, String> authParams = new HashMap<>();
         authParams.put("REFRESH_TOKEN", refreshToken);
         authParams.put(AuthConstants.SECRET_HASH_ATTRIBUTE, calculateSecretHash(cognitoUserName));
-        InitiateAuthRequest authRequest = new InitiateAuthRequest()
+        return new InitiateAuthRequest()
                 .withAuthFlow(AuthFlowType.REFRESH_TOKEN_AUTH)
                 .withClientId(clientId)
                 .withAuthParameters(authParams);
-        return cognitoClient.initiateAuth(authRequest);
     }
 
+    private GlobalSignOutRequest globalSignOutRequest(String accessToken) {
+        return new GlobalSignOutRequest()
+                .withAccessToken(accessToken);
+    }
 
     /**
-     * Calculates the secret hash for the given username.
+     * Sends the request through the async client when one is configured, bridging the SDK callback to a
+     * {@link CompletableFuture}. With the synchronous client the call runs inline and an already completed future is returned.
+     * Either way the call goes through the circuit breaker of the operation.
      *
-     * @param userName the username for which the secret hash is to be calculated
-     * @return the calculated secret hash
-     * @throws SecretHashGenerationException if an error occurs during the calculation
+     * @param operation the Cognito operation being called
+     * @param request   the Cognito request
+     * @param syncCall  the synchronous client operation
+     * @param asyncCall the asynchronous client operation
+     * @return a future completed with the Cognito result or the exception it failed with
      */
-    public String calculateSecretHash(String userName) {
-        // Create a secret key for the HMAC-SHA256 algorithm using the client secret
-        SecretKeySpec signingKey = new SecretKeySpec(
-                clientSecret.getBytes(StringUtils.UTF8),
-                HMAC_SHA256_ALGORITHM);
-
-        try {
-            // Initialize the MAC algorithm with the secret key
-            Mac mac = Mac.getInstance(HMAC_SHA256_ALGORITHM);
-            mac.init(signingKey);
+    private <Q extends AmazonWebServiceRequest, R> CompletableFuture<R> executeAsync(CognitoOperation operation, Q request, Function<Q, R> syncCall, AsyncCall<Q, R> asyncCall) {
+        return circuitBreakers.executeAsync(operation, () -> {
+            if (!(cognitoClient instanceof AWSCognitoIdentityProviderAsync asyncClient)) {
+                try {
+                    return CompletableFuture.completedFuture(syncCall.apply(request));
+                } catch (RuntimeException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
 
-            // Update the MAC with the user name bytes
-            mac.update(userName.getBytes(StringUtils.UTF8));
+            CompletableFuture<R> future = new CompletableFuture<>();
+            asyncCall.call(asyncClient, request, new AsyncHandler<>() {
+                @Override
+                public void onError(Exception exception) {
+                    future.completeExceptionally(exception);
+                }
 
-            // Calculate the HMAC-SHA256 and encode as Base64
-            byte[] rawHmac = mac.doFinal(clientId.getBytes(StringUtils.UTF8));
-            return Base64.getEncoder().encodeToString(rawHmac);
-        } catch (Exception e) {
-            // Throw an exception if an error occurs during the calculation
-            throw new SecretHashGenerationException("Error while calculating secret hash", e);
-        }
+                @Override
+                public void onSuccess(Q completedRequest, R result) {
+                    future.complete(result);
+                }
+            });
+            return future;
+        });
     }
 
-    public void cognitoGlobalSignOut(String accessToken) {
-        GlobalSignOutRequest signOutRequest = new GlobalSignOutRequest()
-                .withAccessToken(accessToken);
-        cognitoClient.globalSignOut(signOutRequest);
+    @FunctionalInterface
+    private interface AsyncCall<Q extends AmazonWebServiceRequest, R> {
+        Future<R> call(AWSCognitoIdentityProviderAsync client, Q request, AsyncHandler<Q, R> asyncHandler);
     }
 }
@@ -0,0 +1,46 @@
+package com.bitsar.passwordlessauth.helper;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-instance buckets. Each bucket is an {@link AtomicLong} updated with compare-and-set, held in a bounded Caffeine
+ * map whose striped structure keeps unrelated keys from contending. Idle buckets are full again, so evicting them
+ * loses nothing.
+ */
+@Component
+@ConditionalOnProperty(name = "rate-limit.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final Cache<String, AtomicLong> buckets;
+
+    public InMemoryRateLimitStore(@Value("${rate-limit.memory.max-buckets:500000}") long maxBuckets,
+                                  @Value("${rate-limit.memory.idle-expiry-ms:3600000}") long idleExpiryMs) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(Duration.ofMillis(idleExpiryMs))
+                .build();
+    }
+
+    @Override
+    public boolean tryAcquire(String key, BucketPolicy policy) {
+        AtomicLong theoreticalArrivalTime = buckets.get(policy.name() + ':' + key, k -> new AtomicLong(Long.MIN_VALUE));
+        long interval = TimeUnit.MILLISECONDS.toNanos(policy.refillPeriodMs());
+        long burst = interval * policy.capacity();
+        while (true) {
+            long now = System.nanoTime();
+            long tat = theoreticalArrivalTime.get();
+            // An unused or idle bucket starts from now, which means it is full
+            long newTat = (tat == Long.MIN_VALUE || tat - now < 0 ? now : tat) + interval;
+            if (newTat - now > burst) return false;
+            if (theoreticalArrivalTime.compareAndSet(tat, newTat)) return true;
+        }
+    }
+}
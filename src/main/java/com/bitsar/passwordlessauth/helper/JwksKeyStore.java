@@ -0,0 +1,138 @@
+package com.bitsar.passwordlessauth.helper;
+
+import com.auth0.jwt.interfaces.RSAKeyProvider;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory copy of the user pool's JSON Web Key Set. The key set is loaded on first use from a {@code file:} or
+ * {@code http(s):} URI and reloaded in the background when a token is signed with a key id we have not seen yet,
+ * which is how Cognito key rotation shows up.
+ */
+@Slf4j
+@Component
+public class JwksKeyStore implements RSAKeyProvider {
+
+    private final URI jwksUri;
+    private final long refreshCooldownMs;
+    private final long timeoutMs;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile Map<String, RSAPublicKey> keys = Map.of();
+    private volatile long lastRefreshStartedAt;
+    private CompletableFuture<Void> refresh;
+
+    public JwksKeyStore(@Value("${jwt.jwks-uri}") String jwksUri,
+                        @Value("${jwt.jwks-refresh-cooldown-ms:30000}") long refreshCooldownMs,
+                        @Value("${jwt.jwks-timeout-ms:2000}") long timeoutMs) {
+        this.jwksUri = URI.create(jwksUri);
+        this.refreshCooldownMs = refreshCooldownMs;
+        this.timeoutMs = timeoutMs;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+    }
+
+    /**
+     * Looks up the public key for a key id. An unknown key id triggers a reload of the key set, at most once per
+     * cooldown period, and waits for it up to the configured timeout.
+     *
+     * @param keyId the {@code kid} header of the token
+     * @return the public key, or null if the key set does not contain it
+     */
+    @Override
+    public RSAPublicKey getPublicKeyById(String keyId) {
+        RSAPublicKey publicKey = keys.get(keyId);
+        if (publicKey != null || keyId == null) return publicKey;
+
+        try {
+            refreshKeys().get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("JWKS refresh from {} did not complete: {}", jwksUri, e.toString());
+        }
+        return keys.get(keyId);
+    }
+
+    @Override
+    public RSAPrivateKey getPrivateKey() {
+        return null;
+    }
+
+    @Override
+    public String getPrivateKeyId() {
+        return null;
+    }
+
+    /**
+     * Starts a reload of the key set unless one is running or the last one started less than a cooldown ago, so a flood
+     * of tokens with a forged key id cannot turn into a flood of JWKS downloads.
+     *
+     * @return the running or most recent reload
+     */
+    private synchronized CompletableFuture<Void> refreshKeys() {
+        long now = System.currentTimeMillis();
+        if (refresh != null && (!refresh.isDone() || now - lastRefreshStartedAt < refreshCooldownMs)) {
+            return refresh;
+        }
+        lastRefreshStartedAt = now;
+        refresh = CompletableFuture.runAsync(() -> keys = loadKeys());
+        return refresh;
+    }
+
+    private Map<String, RSAPublicKey> loadKeys() {
+        try {
+            JsonNode jwks = objectMapper.readTree(readJwks());
+            Map<String, RSAPublicKey> loadedKeys = new HashMap<>();
+            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+            for (JsonNode jwk : jwks.path("keys")) {
+                // Cognito only publishes RS256 signing keys, anything else is skipped
+                if (!"RSA".equals(jwk.path("kty").asText())) continue;
+                BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.path("n").asText()));
+                BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.path("e").asText()));
+                loadedKeys.put(jwk.path("kid").asText(), (RSAPublicKey) keyFactory.generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+            }
+            log.info("Loaded {} signing keys from {}", loadedKeys.size(), jwksUri);
+            return Map.copyOf(loadedKeys);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to load JWKS from " + jwksUri, e);
+        }
+    }
+
+    private byte[] readJwks() throws IOException, InterruptedException {
+        if ("file".equals(jwksUri.getScheme())) {
+            return Files.readAllBytes(Path.of(jwksUri));
+        }
+        HttpRequest request = HttpRequest.newBuilder(jwksUri)
+                .timeout(Duration.ofMillis(timeoutMs))
+                .GET()
+                .build();
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException("JWKS endpoint answered with status " + response.statusCode());
+        }
+        return response.body();
+    }
+}
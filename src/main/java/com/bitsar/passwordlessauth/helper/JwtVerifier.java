@@ -0,0 +1,126 @@
+package com.bitsar.passwordlessauth.helper;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.bitsar.passwordlessauth.exception.InvalidTokenException;
+import com.bitsar.passwordlessauth.util.JwtUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies Cognito access tokens locally: RS256 signature against the cached {@link JwksKeyStore}, issuer, client id,
+ * token use and expiry. Verified tokens are cached by the end of their signature, so a token seen before is accepted
+ * again without any cryptography, not even a hash of the token.
+ */
+@Slf4j
+@Component
+public class JwtVerifier {
+
+    private static final String ACCESS_TOKEN_USE = "access";
+    // Base64url characters of the signature used as cache key, 256 bits of an RS256 signature
+    private static final int CACHE_KEY_LENGTH = 43;
+
+    private final JWTVerifier verifier;
+    private final long leewaySeconds;
+    private final long refreshGraceSeconds;
+    private final Cache<String, DecodedJWT> verifiedTokens;
+
+    public JwtVerifier(JwksKeyStore jwksKeyStore,
+                       @Value("${jwt.issuer}") String issuer,
+                       @Value("${cognito.clientId}") String clientId,
+                       @Value("${jwt.leeway-seconds:30}") long leewaySeconds,
+                       @Value("${jwt.refresh-grace-seconds:302400}") long refreshGraceSeconds,
+                       @Value("${jwt.claims-cache-size:100000}") long claimsCacheSize) {
+        this.leewaySeconds = leewaySeconds;
+        this.refreshGraceSeconds = refreshGraceSeconds;
+        // Expiry is checked per call, the verifier itself accepts anything that can still be refreshed
+        this.verifier = JWT.require(Algorithm.RSA256(jwksKeyStore))
+                .withIssuer(issuer)
+                .withClaim("client_id", clientId)
+                .withClaim("token_use", ACCESS_TOKEN_USE)
+                .acceptLeeway(leewaySeconds)
+                .acceptExpiresAt(refreshGraceSeconds)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(claimsCacheSize)
+                .expireAfter(new Expiry<String, DecodedJWT>() {
+                    @Override
+                    public long expireAfterCreate(String key, DecodedJWT jwt, long currentTime) {
+                        // Keep a token only while it can still be used for a refresh
+                        long remainingMs = jwt.getExpiresAt().getTime() + (refreshGraceSeconds * 1000) - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, DecodedJWT jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, DecodedJWT jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Verifies an access token for a call that needs a live token, such as logout.
+     *
+     * @param authorizationHeader the Authorization header value, with or without the Bearer prefix
+     * @return the verified token
+     * @throws InvalidTokenException if the token is malformed, not signed by the user pool, or expired
+     */
+    public DecodedJWT verify(String authorizationHeader) {
+        DecodedJWT jwt = verifyIgnoringExpiry(authorizationHeader);
+        if (isExpiredBy(jwt, leewaySeconds)) throw new InvalidTokenException("Token expired");
+        return jwt;
+    }
+
+    /**
+     * Verifies an access token for a refresh. The token may have expired, but not longer ago than the refresh grace
+     * period, since refreshing is how an expired access token gets replaced.
+     *
+     * @param authorizationHeader the Authorization header value, with or without the Bearer prefix
+     * @return the verified token
+     * @throws InvalidTokenException if the token is malformed, not signed by the user pool, or too old to refresh
+     */
+    public DecodedJWT verifyForRefresh(String authorizationHeader) {
+        DecodedJWT jwt = verifyIgnoringExpiry(authorizationHeader);
+        if (isExpiredBy(jwt, refreshGraceSeconds)) throw new InvalidTokenException("Token expired, please login again");
+        return jwt;
+    }
+
+    private DecodedJWT verifyIgnoringExpiry(String authorizationHeader) {
+        String token = JwtUtil.stripBearer(authorizationHeader);
+        String cacheKey = token.substring(Math.max(token.length() - CACHE_KEY_LENGTH, 0));
+
+        DecodedJWT jwt = verifiedTokens.getIfPresent(cacheKey);
+        // The signature of a verified token may have been pasted onto another header and payload
+        if (jwt == null || !token.equals(jwt.getToken())) {
+            try {
+                jwt = verifier.verify(token);
+            } catch (JWTVerificationException e) {
+                log.debug("Rejected access token: {}", e.getMessage());
+                throw new InvalidTokenException("Invalid access token");
+            }
+            // Tokens without an expiry never make it here, Cognito always sets one but a forged token might not
+            if (jwt.getExpiresAt() == null) throw new InvalidTokenException("Invalid access token");
+            verifiedTokens.put(cacheKey, jwt);
+        }
+        return jwt;
+    }
+
+    private static boolean isExpiredBy(DecodedJWT jwt, long toleranceSeconds) {
+        return jwt.getExpiresAt().getTime() + (toleranceSeconds * 1000) < System.currentTimeMillis();
+    }
+}
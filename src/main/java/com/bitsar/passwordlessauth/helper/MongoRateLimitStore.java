@@ -0,0 +1,62 @@
+package com.bitsar.passwordlessauth.helper;
+
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Buckets shared by every instance, stored in the {@code rate_limits} collection. Taking a token is a single
+ * conditional upsert: the filter only matches a bucket that has a token left, and when it does not match the upsert
+ * collides with the existing document, which is reported as a duplicate key and means "no token". Expired buckets
+ * are removed by a TTL index. Instances must have roughly synchronised clocks.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "rate-limit.store", havingValue = "mongo")
+public class MongoRateLimitStore implements RateLimitStore {
+
+    private static final String COLLECTION = "rate_limits";
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoRateLimitStore(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        mongoTemplate.indexOps(COLLECTION).ensureIndex(new Index().on("expiresAt", Sort.Direction.ASC).expire(Duration.ZERO));
+    }
+
+    @Override
+    public boolean tryAcquire(String key, BucketPolicy policy) {
+        long now = System.currentTimeMillis();
+        long interval = policy.refillPeriodMs();
+        long burst = interval * policy.capacity();
+
+        // Taking a token moves the arrival time to max(tat, now) + interval, allowed while that stays within the burst
+        Document filter = new Document("_id", policy.name() + ':' + key)
+                .append("tat", new Document("$lte", now + burst - interval));
+        Document newTat = new Document("$add", List.of(new Document("$max", List.of(new Document("$ifNull", List.of("$tat", now)), now)), interval));
+        List<Document> update = List.of(new Document("$set", new Document("tat", newTat)
+                .append("expiresAt", new Date(now + burst))));
+        try {
+            mongoTemplate.execute(COLLECTION, collection -> collection.findOneAndUpdate(filter, update, new FindOneAndUpdateOptions().upsert(true)));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
+}
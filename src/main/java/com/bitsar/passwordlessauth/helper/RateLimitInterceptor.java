@@ -0,0 +1,24 @@
+package com.bitsar.passwordlessauth.helper;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Applies the per IP and global limits of {@link RequestRateLimiter} before the handler runs.
+ */
+@Component
+@RequiredArgsConstructor
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final RequestRateLimiter requestRateLimiter;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // The remote address honours X-Forwarded-For only when server.forward-headers-strategy is set
+        requestRateLimiter.checkClient(request.getRemoteAddr());
+        return true;
+    }
+}
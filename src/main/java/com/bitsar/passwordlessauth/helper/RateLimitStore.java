@@ -0,0 +1,32 @@
+package com.bitsar.passwordlessauth.helper;
+
+/**
+ * Token bucket storage used by {@link RequestRateLimiter}. Buckets follow the generic cell rate algorithm: a bucket is
+ * a single "theoretical arrival time", so taking a token is one compare-and-set and no refill task is needed.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Takes one token from the bucket of a key.
+     *
+     * @param key    the bucket key, such as the phone number or client IP
+     * @param policy the capacity and refill rate of the bucket
+     * @return true if a token was available
+     */
+    boolean tryAcquire(String key, BucketPolicy policy);
+
+    /**
+     * @return true if {@link #tryAcquire(String, BucketPolicy)} does I/O and must not run on an event loop thread
+     */
+    default boolean isBlocking() {
+        return false;
+    }
+
+    /**
+     * @param name           the policy name, used to keep the buckets of different policies apart
+     * @param capacity       the number of requests allowed in a burst
+     * @param refillPeriodMs the time it takes to regain one token
+     */
+    record BucketPolicy(String name, long capacity, long refillPeriodMs) {
+    }
+}
@@ -0,0 +1,68 @@
+package com.bitsar.passwordlessauth.helper;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.bitsar.passwordlessauth.entity.UserSession;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * Decides whether a refresh can hand back the access token already stored in the session instead of asking Cognito
+ * for a new one. Clients refresh on every app resume, most of those refreshes happen while the stored token still has
+ * most of its lifetime left.
+ */
+@Component
+public class RefreshReusePolicy {
+
+    private final long minRemainingSeconds;
+    @Getter
+    private final boolean touchIdleTimestamp;
+    private final Counter reuseHits;
+    private final Counter reuseMisses;
+
+    public RefreshReusePolicy(MeterRegistry meterRegistry,
+                              @Value("${refresh.reuse.min-remaining-seconds:300}") long minRemainingSeconds,
+                              @Value("${refresh.reuse.touch-idle-timestamp:true}") boolean touchIdleTimestamp) {
+        this.minRemainingSeconds = minRemainingSeconds;
+        this.touchIdleTimestamp = touchIdleTimestamp;
+        this.reuseHits = Counter.builder("auth.refresh.reuse")
+                .description("Refreshes answered with the stored access token")
+                .tag("outcome", "hit")
+                .register(meterRegistry);
+        this.reuseMisses = Counter.builder("auth.refresh.reuse")
+                .description("Refreshes answered with the stored access token")
+                .tag("outcome", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks whether the stored access token expires further away than the reuse threshold. A negative threshold turns
+     * reuse off.
+     *
+     * @param userSession the session of the user refreshing
+     * @return true if the stored access token can be returned as is
+     */
+    public boolean canReuse(UserSession userSession) {
+        boolean reusable = minRemainingSeconds >= 0 && expiresAfterThreshold(userSession.getAccessToken());
+        (reusable ? reuseHits : reuseMisses).increment();
+        return reusable;
+    }
+
+    private boolean expiresAfterThreshold(String accessToken) {
+        if (Objects.isNull(accessToken)) return false;
+        try {
+            // The token was stored by us straight from Cognito, decoding it is enough
+            DecodedJWT jwt = JWT.decode(accessToken);
+            return Objects.nonNull(jwt.getExpiresAt())
+                    && jwt.getExpiresAt().getTime() - System.currentTimeMillis() > minRemainingSeconds * 1000;
+        } catch (JWTDecodeException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.bitsar.passwordlessauth.helper;
+
+import com.bitsar.passwordlessauth.exception.RateLimitExceededException;
+import com.bitsar.passwordlessauth.helper.RateLimitStore.BucketPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Token bucket limits for the endpoints that make Cognito send an SMS. Clients are limited per IP and globally before
+ * the request reaches a controller, phone numbers are limited in {@code AuthService} before any Mongo or Cognito call.
+ */
+@Slf4j
+@Component
+public class RequestRateLimiter {
+
+    private static final String GLOBAL_KEY = "all";
+
+    private final RateLimitStore rateLimitStore;
+    private final boolean enabled;
+    private final BucketPolicy phoneNumberPolicy;
+    private final BucketPolicy ipPolicy;
+    private final BucketPolicy globalPolicy;
+
+    public RequestRateLimiter(RateLimitStore rateLimitStore,
+                              @Value("${rate-limit.enabled:true}") boolean enabled,
+                              @Value("${rate-limit.phone.capacity:3}") long phoneCapacity,
+                              @Value("${rate-limit.phone.refill-period-ms:60000}") long phoneRefillPeriodMs,
+                              @Value("${rate-limit.ip.capacity:20}") long ipCapacity,
+                              @Value("${rate-limit.ip.refill-period-ms:3000}") long ipRefillPeriodMs,
+                              @Value("${rate-limit.global.capacity:200}") long globalCapacity,
+                              @Value("${rate-limit.global.refill-period-ms:10}") long globalRefillPeriodMs) {
+        this.rateLimitStore = rateLimitStore;
+        this.enabled = enabled;
+        this.phoneNumberPolicy = new BucketPolicy("phone", phoneCapacity, phoneRefillPeriodMs);
+        this.ipPolicy = new BucketPolicy("ip", ipCapacity, ipRefillPeriodMs);
+        this.globalPolicy = new BucketPolicy("global", globalCapacity, globalRefillPeriodMs);
+    }
+
+    /**
+     * Takes a token for an SMS sent to a phone number.
+     *
+     * @param phoneNumber the phone number, in E.164 form
+     * @throws RateLimitExceededException if the phone number has no token left
+     */
+    public void checkPhoneNumber(String phoneNumber) {
+        if (enabled && !rateLimitStore.tryAcquire(phoneNumber, phoneNumberPolicy)) {
+            log.warn("OTP rate limit exceeded for phone number ending {}", phoneNumber.substring(Math.max(0, phoneNumber.length() - 4)));
+            throw new RateLimitExceededException("Too many OTP requests for this phone number, please try again later");
+        }
+    }
+
+    /**
+     * Takes a token from the bucket of the client IP and from the global bucket.
+     *
+     * @param clientIp the remote address of the request
+     * @throws RateLimitExceededException if either bucket has no token left
+     */
+    public void checkClient(String clientIp) {
+        if (!enabled) return;
+        if (!rateLimitStore.tryAcquire(clientIp, ipPolicy)) {
+            log.warn("Rate limit exceeded for client {}", clientIp);
+            throw new RateLimitExceededException("Too many requests, please try again later");
+        }
+        if (!rateLimitStore.tryAcquire(GLOBAL_KEY, globalPolicy)) {
+            log.warn("Global rate limit exceeded");
+            throw new RateLimitExceededException("Service is busy, please try again later");
+        }
+    }
+
+    /**
+     * Reactive variant of {@link #checkPhoneNumber(String)} for the "reactive" profile.
+     *
+     * @param phoneNumber the phone number, in E.164 form
+     * @return a Mono completing empty, or failing with {@link RateLimitExceededException}
+     */
+    public Mono<Void> checkPhoneNumberReactive(String phoneNumber) {
+        return onStoreScheduler(Mono.fromRunnable(() -> checkPhoneNumber(phoneNumber)));
+    }
+
+    /**
+     * Reactive variant of {@link #checkClient(String)} for the "reactive" profile.
+     *
+     * @param clientIp the remote address of the request
+     * @return a Mono completing empty, or failing with {@link RateLimitExceededException}
+     */
+    public Mono<Void> checkClientReactive(String clientIp) {
+        return onStoreScheduler(Mono.fromRunnable(() -> checkClient(clientIp)));
+    }
+
+    private Mono<Void> onStoreScheduler(Mono<Void> check) {
+        // The in-memory store is a CAS and runs in place, a Mongo round trip is moved off the event loop
+        return rateLimitStore.isBlocking() ? check.subscribeOn(Schedulers.boundedElastic()) : check;
+    }
+}
@@ -0,0 +1,115 @@
+package com.bitsar.passwordlessauth.helper;
+
+import com.amazonaws.util.StringUtils;
+import com.bitsar.passwordlessauth.exception.SecretHashGenerationException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Base64;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.bitsar.passwordlessauth.constants.AuthConstants.HMAC_SHA256_ALGORITHM;
+
+@Slf4j
+@Component
+public class SecretHashGenerator {
+
+    private final byte[] clientIdBytes;
+    private final SecretKeySpec signingKey;
+    private final Mac prototypeMac;
+    private final Queue<Mac> macPool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledMacs = new AtomicInteger();
+    private final int maxPooledMacs;
+    private final Cache<String, String> secretHashCache;
+
+    public SecretHashGenerator(@Value("${cognito.clientId}") String clientId,
+                               @Value("${cognito.client-secret}") String clientSecret,
+                               @Value("${cognito.secret-hash.pool-size:64}") int maxPooledMacs,
+                               @Value("${cognito.secret-hash.cache-size:10000}") long cacheSize) {
+        this.clientIdBytes = clientId.getBytes(StringUtils.UTF8);
+        this.maxPooledMacs = maxPooledMacs;
+        this.secretHashCache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+        try {
+            // Resolve the provider and initialise the key once, every pooled Mac is cloned from this one
+            this.signingKey = new SecretKeySpec(clientSecret.getBytes(StringUtils.UTF8), HMAC_SHA256_ALGORITHM);
+            this.prototypeMac = Mac.getInstance(HMAC_SHA256_ALGORITHM);
+            this.prototypeMac.init(signingKey);
+        } catch (Exception e) {
+            throw new SecretHashGenerationException("Error while initialising secret hash generator", e);
+        }
+    }
+
+    /**
+     * Returns the Cognito secret hash for the given username, served from the cache when it was computed recently.
+     *
+     * @param userName the username for which the secret hash is to be calculated
+     * @return the Base64 encoded HMAC-SHA256 of the username and client id
+     * @throws SecretHashGenerationException if an error occurs during the calculation
+     */
+    public String generate(String userName) {
+        String secretHash = secretHashCache.getIfPresent(userName);
+        if (secretHash == null) {
+            secretHash = calculate(userName);
+            secretHashCache.put(userName, secretHash);
+        }
+        return secretHash;
+    }
+
+    /**
+     * Calculates the secret hash with a pooled, pre-initialised Mac so the hot path does no provider lookup or key setup.
+     *
+     * @param userName the username for which the secret hash is to be calculated
+     * @return the Base64 encoded HMAC-SHA256 of the username and client id
+     */
+    private String calculate(String userName) {
+        Mac mac = borrowMac();
+        try {
+            // doFinal resets the Mac, so it can go straight back to the pool afterwards
+            mac.update(userName.getBytes(StringUtils.UTF8));
+            return Base64.getEncoder().encodeToString(mac.doFinal(clientIdBytes));
+        } finally {
+            releaseMac(mac);
+        }
+    }
+
+    private Mac borrowMac() {
+        Mac mac = macPool.poll();
+        if (mac != null) {
+            pooledMacs.decrementAndGet();
+            return mac;
+        }
+        try {
+            return (Mac) prototypeMac.clone();
+        } catch (CloneNotSupportedException e) {
+            log.debug("Mac provider does not support clone, falling back to a new instance");
+            return newMac();
+        }
+    }
+
+    private void releaseMac(Mac mac) {
+        if (pooledMacs.incrementAndGet() <= maxPooledMacs) {
+            macPool.offer(mac);
+        } else {
+            pooledMacs.decrementAndGet();
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_SHA256_ALGORITHM);
+            mac.init(signingKey);
+            return mac;
+        } catch (Exception e) {
+            throw new SecretHashGenerationException("Error while calculating secret hash", e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.bitsar.passwordlessauth.helper;
+
+import com.bitsar.passwordlessauth.entity.UserSession;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Objects;
+
+/**
+ * Idle expiry of login sessions, from the {@code idle.timeout.*} settings. Every write that records activity on a
+ * session also stores the absolute instant it expires at, which the TTL index on {@code users_session} purges on.
+ */
+@Component
+public class SessionExpiryPolicy {
+
+    @Getter
+    private final Duration idleTimeout;
+
+    public SessionExpiryPolicy(@Value("${idle.timeout.day}") int idleTimeoutDay,
+                               @Value("${idle.timeout.hour}") int idleTimeoutHour,
+                               @Value("${idle.timeout.minute}") int idleTimeoutMinute,
+                               @Value("${idle.timeout.second}") int idleTimeoutSecond) {
+        this.idleTimeout = Duration.ofDays(idleTimeoutDay)
+                .plusHours(idleTimeoutHour)
+                .plusMinutes(idleTimeoutMinute)
+                .plusSeconds(idleTimeoutSecond);
+    }
+
+    /**
+     * @param lastActivity the idle timestamp of the session
+     * @return the instant the session expires at if there is no further activity
+     */
+    public Instant expiresAt(LocalDateTime lastActivity) {
+        return lastActivity.atZone(ZoneId.systemDefault()).toInstant().plus(idleTimeout);
+    }
+
+    /**
+     * Checks whether a session has been idle for longer than the idle timeout. Sessions written before the expiry
+     * instant was stored fall back to their idle timestamp.
+     *
+     * @param userSession the session to check
+     * @return true if the session has expired
+     */
+    public boolean isExpired(UserSession userSession) {
+        Instant expiresAt = Objects.nonNull(userSession.getExpiresAt()) ? userSession.getExpiresAt() : expiresAt(userSession.getTimeStamp());
+        return expiresAt.isBefore(Instant.now());
+    }
+}
@@ -0,0 +1,63 @@
+package com.bitsar.passwordlessauth.helper;
+
+import com.bitsar.passwordlessauth.dao.SessionStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * Deletes idle sessions in batches on a fixed delay, for deployments where the once a minute TTL monitor of Mongo is
+ * too coarse, or for sessions written before they carried an expiry instant. Off unless
+ * {@code session.reaper.enabled} is set, the TTL index alone is enough for most deployments.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "session.reaper.enabled", havingValue = "true")
+public class SessionReaper {
+
+    private final SessionStore sessionStore;
+    private final SessionExpiryPolicy sessionExpiryPolicy;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Counter reapedSessions;
+
+    public SessionReaper(SessionStore sessionStore,
+                         SessionExpiryPolicy sessionExpiryPolicy,
+                         MeterRegistry meterRegistry,
+                         @Value("${session.reaper.batch-size:500}") int batchSize,
+                         @Value("${session.reaper.max-batches-per-run:20}") int maxBatchesPerRun) {
+        this.sessionStore = sessionStore;
+        this.sessionExpiryPolicy = sessionExpiryPolicy;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.reapedSessions = Counter.builder("auth.sessions.reaped")
+                .description("Idle sessions deleted by the session reaper")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Deletes expired sessions one batch at a time until a batch comes back short or the per run limit is reached, so a
+     * large backlog is worked off over several runs instead of in one long burst of deletes.
+     *
+     * @return the number of sessions deleted
+     */
+    @Scheduled(fixedDelayString = "${session.reaper.interval-ms:15000}", initialDelayString = "${session.reaper.interval-ms:15000}")
+    public long reap() {
+        long reaped = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            long deleted = sessionStore.deleteExpired(Instant.now(), LocalDateTime.now().minus(sessionExpiryPolicy.getIdleTimeout()), batchSize);
+            reapedSessions.increment(deleted);
+            reaped += deleted;
+            if (deleted < batchSize) break;
+        }
+        if (reaped > 0) log.info("Reaped {} idle sessions", reaped);
+        return reaped;
+    }
+}
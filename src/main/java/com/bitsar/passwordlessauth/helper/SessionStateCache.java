@@ -0,0 +1,123 @@
+package com.bitsar.passwordlessauth.helper;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.bitsar.passwordlessauth.dao.UserDao;
+import com.bitsar.passwordlessauth.dao.SessionStore;
+import com.bitsar.passwordlessauth.entity.User;
+import com.bitsar.passwordlessauth.entity.UserSession;
+import com.bitsar.passwordlessauth.enums.UserStatus;
+import com.bitsar.passwordlessauth.util.JwtUtil;
+import com.bitsar.passwordlessauth.util.SingleFlight;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Short-lived, per-user view of the session store used by token introspection. Entries are invalidated on login and
+ * logout in this instance; other instances see the change once the TTL has passed, or when a token the entry does not
+ * know is introspected.
+ */
+@Component
+public class SessionStateCache {
+
+    private static final SessionState NO_SESSION = new SessionState(false, null, null, null, null);
+
+    private final UserDao userDao;
+    private final SessionStore sessionStore;
+    private final Cache<String, SessionState> sessionStates;
+    private final SingleFlight<String, SessionState> loads = new SingleFlight<>();
+
+    public SessionStateCache(UserDao userDao,
+                             SessionStore sessionStore,
+                             @Value("${introspection.session-cache-ttl-ms:5000}") long ttlMs,
+                             @Value("${introspection.session-cache-size:100000}") long cacheSize) {
+        this.userDao = userDao;
+        this.sessionStore = sessionStore;
+        this.sessionStates = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+    }
+
+    /**
+     * Returns the session state of a user, loading it from the session store on a miss. Concurrent misses for the same
+     * user share one load.
+     *
+     * @param cognitoUserName the Cognito username of the user
+     * @return the session state
+     */
+    public SessionState get(String cognitoUserName) {
+        SessionState sessionState = sessionStates.getIfPresent(cognitoUserName);
+        if (sessionState != null) return sessionState;
+
+        return reload(cognitoUserName);
+    }
+
+    /**
+     * Loads the session state of a user from the session store, replacing the cached one. Concurrent reloads for the
+     * same user share one load.
+     *
+     * @param cognitoUserName the Cognito username of the user
+     * @return the session state
+     */
+    public SessionState reload(String cognitoUserName) {
+        // Not a Caffeine loader: it would run the Mongo reads inside a map bin lock, pinning the carrier of a virtual thread
+        return loads.execute(cognitoUserName, () -> {
+            SessionState loaded = load(cognitoUserName);
+            sessionStates.put(cognitoUserName, loaded);
+            return loaded;
+        });
+    }
+
+    public void invalidate(String cognitoUserName) {
+        sessionStates.invalidate(cognitoUserName);
+    }
+
+    private SessionState load(String cognitoUserName) {
+        User user = userDao.findByCognitoUserName(cognitoUserName);
+        if (Objects.isNull(user)) return NO_SESSION;
+
+        // A session only counts once the MFA challenge was answered and tokens were issued
+        UserSession userSession = sessionStore.findByPhoneNumber(user.getPhoneNumber());
+        boolean loggedIn = Objects.nonNull(userSession) && Objects.nonNull(userSession.getAccessToken());
+        return new SessionState(loggedIn && user.getStatus() == UserStatus.VERIFIED, user.getStatus(), user.getFirstName(), user.getLastName(),
+                loggedIn ? loginId(userSession.getAccessToken()) : null);
+    }
+
+    /**
+     * Identifies the login a stored access token belongs to: its {@code origin_jti}, which survives refreshes, or the
+     * token itself when it has none.
+     */
+    private static String loginId(String accessToken) {
+        try {
+            return Objects.requireNonNullElse(JwtUtil.getOriginJti(JWT.decode(accessToken)), accessToken);
+        } catch (JWTDecodeException e) {
+            return accessToken;
+        }
+    }
+
+    /**
+     * @param loginId the {@code origin_jti} of the session's access token, or the token itself when it has none
+     */
+    public record SessionState(boolean active, UserStatus status, String firstName, String lastName, String loginId) {
+
+        /**
+         * Tells whether a token was issued to the current login of the user, a token of an earlier login stays revoked
+         * after the user logs in again.
+         *
+         * @param jwt   the verified token
+         * @param token the token as presented, without the Bearer prefix
+         * @return true if the token belongs to the stored session
+         */
+        public boolean issued(DecodedJWT jwt, String token) {
+            String originJti = JwtUtil.getOriginJti(jwt);
+            return Objects.nonNull(loginId) && loginId.equals(Objects.requireNonNullElse(originJti, token));
+        }
+    }
+}
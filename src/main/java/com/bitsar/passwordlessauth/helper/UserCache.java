@@ -0,0 +1,166 @@
+package com.bitsar.passwordlessauth.helper;
+
+import com.bitsar.passwordlessauth.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded near-cache of users, looked up by phone number or by Cognito username. Users are stored once by id, the two
+ * lookup keys only map to the id, so an invalidation by id drops every way of reaching a user. Writes of this instance
+ * are written through; writes of other instances are seen through {@link UserChangeStreamWatcher}, or once the TTL has
+ * passed when change streams are unavailable. Only users that exist are cached, a sign up never sees a stale miss.
+ */
+@Component
+public class UserCache {
+
+    private final boolean enabled;
+    private final Cache<String, CachedUser> usersById;
+    private final Cache<String, String> idsByPhoneNumber;
+    private final Cache<String, String> idsByCognitoUserName;
+    private final Counter hits;
+    private final Counter misses;
+    private final AtomicLong invalidations = new AtomicLong();
+    // Stamps every cached state, a load only replaces states stamped before it started
+    private final AtomicLong versions = new AtomicLong();
+
+    public UserCache(MeterRegistry meterRegistry,
+                     @Value("${user-cache.enabled:true}") boolean enabled,
+                     @Value("${user-cache.size:100000}") long cacheSize,
+                     @Value("${user-cache.ttl-ms:600000}") long ttlMs) {
+        this.enabled = enabled;
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+        // A key whose user was evicted is a miss, and is linked again on the next load
+        this.idsByPhoneNumber = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+        this.idsByCognitoUserName = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+        this.hits = Counter.builder("auth.user.cache")
+                .description("User lookups served by the user cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("auth.user.cache")
+                .description("User lookups served by the user cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("auth.user.cache.size", usersById, Cache::estimatedSize)
+                .description("Users held by the user cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns a user by phone number, loading it on a miss.
+     *
+     * @param phoneNumber the phone number with country code
+     * @param loader      reads the user from the database, may return null
+     * @return a copy of the user, or null if there is none
+     */
+    public User getByPhoneNumber(String phoneNumber, Function<String, User> loader) {
+        return get(idsByPhoneNumber, phoneNumber, User::getPhoneNumber, loader);
+    }
+
+    /**
+     * Returns a user by Cognito username, loading it on a miss.
+     *
+     * @param cognitoUserName the Cognito username
+     * @param loader          reads the user from the database, may return null
+     * @return a copy of the user, or null if there is none
+     */
+    public User getByCognitoUserName(String cognitoUserName, Function<String, User> loader) {
+        return get(idsByCognitoUserName, cognitoUserName, User::getCognitoUserName, loader);
+    }
+
+    /**
+     * Caches a user that was just saved, replacing the previous state of the same id.
+     *
+     * @param user the saved user, with its id
+     */
+    public void put(User user) {
+        if (!enabled) return;
+        store(user, Long.MAX_VALUE);
+    }
+
+    public void invalidate(String userId) {
+        invalidations.incrementAndGet();
+        CachedUser previous = usersById.asMap().remove(userId);
+        if (Objects.nonNull(previous)) unlinkKeys(previous.user());
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        usersById.invalidateAll();
+        idsByPhoneNumber.invalidateAll();
+        idsByCognitoUserName.invalidateAll();
+    }
+
+    private User get(Cache<String, String> ids, String key, Function<User, String> keyOf, Function<String, User> loader) {
+        if (!enabled) return loader.apply(key);
+
+        String userId = ids.getIfPresent(key);
+        CachedUser cached = Objects.isNull(userId) ? null : usersById.getIfPresent(userId);
+        // The key may point at a user whose phone number or username has since changed
+        if (Objects.nonNull(cached) && key.equals(keyOf.apply(cached.user()))) {
+            hits.increment();
+            return copy(cached.user());
+        }
+
+        misses.increment();
+        long invalidationsBeforeLoad = invalidations.get();
+        long versionBeforeLoad = versions.get();
+        User loaded = loader.apply(key);
+        // A change seen while loading may be newer than what was read, leave the next lookup to load again
+        if (invalidations.get() == invalidationsBeforeLoad) store(loaded, versionBeforeLoad);
+        return loaded;
+    }
+
+    /**
+     * Caches a user unless the cached state of its id is newer than {@code loadedAt}, so a load that read the user
+     * before a concurrent write-through does not overwrite it.
+     */
+    private void store(User user, long loadedAt) {
+        if (Objects.isNull(user) || Objects.isNull(user.getId())) return;
+        usersById.asMap().compute(user.getId(), (id, current) -> {
+            if (Objects.nonNull(current) && current.version() > loadedAt) return current;
+            if (Objects.nonNull(current)) unlinkKeys(current.user());
+            if (Objects.nonNull(user.getPhoneNumber())) idsByPhoneNumber.put(user.getPhoneNumber(), id);
+            if (Objects.nonNull(user.getCognitoUserName())) idsByCognitoUserName.put(user.getCognitoUserName(), id);
+            return new CachedUser(copy(user), versions.incrementAndGet());
+        });
+    }
+
+    private void unlinkKeys(User user) {
+        if (Objects.nonNull(user.getPhoneNumber())) idsByPhoneNumber.asMap().remove(user.getPhoneNumber(), user.getId());
+        if (Objects.nonNull(user.getCognitoUserName())) idsByCognitoUserName.asMap().remove(user.getCognitoUserName(), user.getId());
+    }
+
+    private record CachedUser(User user, long version) {
+    }
+
+    // Callers change status and names before saving, they must not change the cached user in place
+    private static User copy(User user) {
+        return User.builder()
+                .id(user.getId())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .phoneNumber(user.getPhoneNumber())
+                .cognitoUserName(user.getCognitoUserName())
+                .status(user.getStatus())
+                .build();
+    }
+}
@@ -0,0 +1,128 @@
+package com.bitsar.passwordlessauth.helper;
+
+import com.bitsar.passwordlessauth.entity.User;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invalidates {@link UserCache} entries when a user is updated, replaced or deleted by any instance, by following a
+ * change stream on the {@code users} collection. Change streams need a replica set; on a standalone server the watcher
+ * stops and the cache falls back to its TTL.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "user-cache.change-stream.enabled", havingValue = "true", matchIfMissing = true)
+public class UserChangeStreamWatcher {
+
+    // Returned by servers that are not part of a replica set
+    private static final int CHANGE_STREAM_NOT_SUPPORTED = 40573;
+    // Returned when the resume token has already rolled out of the oplog
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private final MongoTemplate mongoTemplate;
+    private final UserCache userCache;
+    private final Duration retryDelay;
+    private final ExecutorService watcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-change-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running = true;
+
+    public UserChangeStreamWatcher(MongoTemplate mongoTemplate,
+                                   UserCache userCache,
+                                   @Value("${user-cache.change-stream.retry-delay-ms:5000}") long retryDelayMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.userCache = userCache;
+        this.retryDelay = Duration.ofMillis(retryDelayMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        watcher.execute(this::watch);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        watcher.shutdownNow();
+    }
+
+    private void watch() {
+        BsonDocument resumeToken = null;
+        while (running) {
+            try {
+                ChangeStreamIterable<Document> changes = mongoTemplate.getCollection(mongoTemplate.getCollectionName(User.class))
+                        .watch(List.of(Aggregates.match(Filters.in("operationType", "update", "replace", "delete"))))
+                        .maxAwaitTime(1, TimeUnit.SECONDS);
+                if (Objects.nonNull(resumeToken)) changes = changes.resumeAfter(resumeToken);
+                try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = changes.cursor()) {
+                    while (running) {
+                        ChangeStreamDocument<Document> change = cursor.tryNext();
+                        if (Objects.nonNull(change)) apply(change);
+                        resumeToken = cursor.getResumeToken();
+                    }
+                }
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() == CHANGE_STREAM_NOT_SUPPORTED) {
+                    log.warn("Change streams are not supported by this Mongo deployment, cached users expire by TTL only");
+                    return;
+                }
+                resumeToken = recover(e, resumeToken);
+            } catch (MongoException e) {
+                resumeToken = recover(e, resumeToken);
+            } catch (IllegalStateException e) {
+                // The client was closed during shutdown
+                if (running) log.warn("User change stream stopped", e);
+                return;
+            }
+        }
+    }
+
+    private void apply(ChangeStreamDocument<Document> change) {
+        BsonValue id = Objects.isNull(change.getDocumentKey()) ? null : change.getDocumentKey().get("_id");
+        if (Objects.isNull(id)) {
+            userCache.invalidateAll();
+        } else {
+            userCache.invalidate(id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue());
+        }
+    }
+
+    /**
+     * Drops every cached user, since changes may have been missed while the stream was down, and waits before the
+     * stream is opened again. A resume token that is no longer in the oplog is discarded.
+     */
+    private BsonDocument recover(MongoException e, BsonDocument resumeToken) {
+        log.warn("User change stream failed, reopening in {} ms", retryDelay.toMillis(), e);
+        userCache.invalidateAll();
+        try {
+            Thread.sleep(retryDelay.toMillis());
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+        return e.getCode() == CHANGE_STREAM_HISTORY_LOST ? null : resumeToken;
+    }
+}
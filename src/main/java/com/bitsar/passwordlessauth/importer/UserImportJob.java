@@ -0,0 +1,94 @@
+package com.bitsar.passwordlessauth.importer;
+
+import com.bitsar.passwordlessauth.dto.response.UserImportErrorDto;
+import com.bitsar.passwordlessauth.dto.response.UserImportJobResponseDto;
+import com.bitsar.passwordlessauth.enums.ImportFormat;
+import com.bitsar.passwordlessauth.enums.ImportJobStatus;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one bulk import. Counters are updated by the import worker and read by the progress endpoint, only the
+ * first {@code maxReportedErrors} row errors are kept.
+ */
+public class UserImportJob {
+
+    @Getter
+    private final String jobId;
+    @Getter
+    private final Path file;
+    @Getter
+    private final ImportFormat format;
+    private final int maxReportedErrors;
+
+    private volatile ImportJobStatus status = ImportJobStatus.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong imported = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final Queue<UserImportErrorDto> errors = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger reportedErrors = new AtomicInteger();
+
+    public UserImportJob(String jobId, Path file, ImportFormat format, int maxReportedErrors) {
+        this.jobId = jobId;
+        this.file = file;
+        this.format = format;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    public void start() {
+        startedAt = LocalDateTime.now();
+        status = ImportJobStatus.RUNNING;
+    }
+
+    public void finish(ImportJobStatus finalStatus) {
+        finishedAt = LocalDateTime.now();
+        status = finalStatus;
+    }
+
+    public void rowsRead(int count) {
+        rowsRead.addAndGet(count);
+    }
+
+    public void imported(int count) {
+        imported.addAndGet(count);
+    }
+
+    public void duplicate() {
+        duplicates.incrementAndGet();
+    }
+
+    public void failed(long rowNumber, String phoneNumber, String reason) {
+        failed.incrementAndGet();
+        if (reportedErrors.incrementAndGet() <= maxReportedErrors) {
+            errors.add(UserImportErrorDto.builder()
+                    .row(rowNumber)
+                    .phoneNumber(phoneNumber)
+                    .reason(reason)
+                    .build());
+        }
+    }
+
+    public UserImportJobResponseDto toResponse() {
+        return UserImportJobResponseDto.builder()
+                .jobId(jobId)
+                .status(status)
+                .rowsRead(rowsRead.get())
+                .imported(imported.get())
+                .duplicates(duplicates.get())
+                .failed(failed.get())
+                .errors(List.copyOf(errors))
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .build();
+    }
+}
@@ -0,0 +1,142 @@
+package com.bitsar.passwordlessauth.importer;
+
+import com.bitsar.passwordlessauth.dto.request.RegisterRequestDto;
+import com.bitsar.passwordlessauth.enums.ImportFormat;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads import rows one line at a time, so the size of an import is bounded by disk and not by heap.
+ * NDJSON lines are objects with the fields of {@link RegisterRequestDto}; CSV files need a header naming the
+ * {@code phoneNumber}, {@code firstName} and {@code lastName} columns, in any order.
+ */
+public class UserImportReader implements Closeable {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final BufferedReader reader;
+    private final ImportFormat format;
+    private final Map<String, Integer> csvColumns = new HashMap<>();
+    private long rowNumber;
+
+    public UserImportReader(Path file, ImportFormat format) throws IOException {
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        this.format = format;
+        if (format == ImportFormat.CSV) readCsvHeader();
+    }
+
+    /**
+     * Reads up to {@code maxRows} rows, skipping blank lines.
+     *
+     * @param maxRows the maximum number of rows to read
+     * @return the rows read, empty once the input is exhausted
+     */
+    public List<ImportRow> nextBatch(int maxRows) {
+        List<ImportRow> rows = new ArrayList<>(maxRows);
+        try {
+            String line;
+            while (rows.size() < maxRows && (line = reader.readLine()) != null) {
+                rowNumber++;
+                if (line.isBlank()) continue;
+                rows.add(parse(line));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private ImportRow parse(String line) {
+        try {
+            RegisterRequestDto user = format == ImportFormat.NDJSON ? parseJson(line) : parseCsv(line);
+            return new ImportRow(rowNumber, user, null);
+        } catch (Exception e) {
+            return new ImportRow(rowNumber, null, "Malformed row");
+        }
+    }
+
+    private RegisterRequestDto parseJson(String line) throws IOException {
+        JsonNode node = OBJECT_MAPPER.readTree(line);
+        return RegisterRequestDto.builder()
+                .phoneNumber(node.path("phoneNumber").asText(null))
+                .firstName(node.path("firstName").asText(null))
+                .lastName(node.path("lastName").asText(null))
+                .build();
+    }
+
+    private RegisterRequestDto parseCsv(String line) {
+        List<String> values = splitCsv(line);
+        return RegisterRequestDto.builder()
+                .phoneNumber(csvValue(values, "phonenumber"))
+                .firstName(csvValue(values, "firstname"))
+                .lastName(csvValue(values, "lastname"))
+                .build();
+    }
+
+    private void readCsvHeader() throws IOException {
+        String header = reader.readLine();
+        rowNumber++;
+        if (header == null) return;
+        List<String> columns = splitCsv(header);
+        for (int i = 0; i < columns.size(); i++) {
+            csvColumns.put(columns.get(i).toLowerCase(Locale.ROOT), i);
+        }
+    }
+
+    private String csvValue(List<String> values, String column) {
+        Integer index = csvColumns.get(column);
+        return index == null || index >= values.size() || values.get(index).isEmpty() ? null : values.get(index);
+    }
+
+    /**
+     * Splits a CSV line, honouring double quoted values with {@code ""} as an escaped quote.
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString().trim());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString().trim());
+        return values;
+    }
+
+    public record ImportRow(long rowNumber, RegisterRequestDto user, String parseError) {
+    }
+}
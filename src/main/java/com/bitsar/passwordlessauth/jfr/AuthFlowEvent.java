@@ -0,0 +1,69 @@
+package com.bitsar.passwordlessauth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One auth flow, such as a sign in or a refresh, from the service method being called until it returns or its future
+ * completes. The stage and Cognito events of the flow carry its name.
+ */
+@Name(AuthFlowEvent.NAME)
+@Label("Auth Flow")
+@Category({"Passwordless Auth", "Flow"})
+@Description("An auth flow slower than the threshold")
+@StackTrace(false)
+@Threshold("50 ms")
+public class AuthFlowEvent extends Event {
+
+    public static final String NAME = "com.bitsar.passwordlessauth.AuthFlow";
+
+    // The flow running on the current thread, picked up by the events of its stages
+    private static final ThreadLocal<String> CURRENT_FLOW = new ThreadLocal<>();
+
+    @Label("Flow")
+    String flow;
+
+    @Label("Outcome")
+    @Description("none, or the simple name of the exception the flow failed with")
+    String outcome;
+
+    public void end(String flow, Throwable throwable) {
+        end();
+        if (shouldCommit()) {
+            this.flow = flow;
+            this.outcome = AuthStageEvent.outcome(throwable);
+            commit();
+        }
+    }
+
+    /**
+     * @return the flow running on the current thread, or null outside of a flow
+     */
+    public static String currentFlow() {
+        return CURRENT_FLOW.get();
+    }
+
+    /**
+     * Makes a flow the current flow of the thread.
+     *
+     * @return the flow it replaces, to be restored with {@link #restoreFlow(String)}
+     */
+    public static String enterFlow(String flow) {
+        String previous = CURRENT_FLOW.get();
+        CURRENT_FLOW.set(flow);
+        return previous;
+    }
+
+    public static void restoreFlow(String previous) {
+        if (previous == null) {
+            CURRENT_FLOW.remove();
+        } else {
+            CURRENT_FLOW.set(previous);
+        }
+    }
+}
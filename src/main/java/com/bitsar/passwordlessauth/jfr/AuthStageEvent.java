@@ -0,0 +1,58 @@
+package com.bitsar.passwordlessauth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One stage of an auth flow: validation of the request, or a user or session read or write.
+ */
+@Name(AuthStageEvent.NAME)
+@Label("Auth Stage")
+@Category({"Passwordless Auth", "Stage"})
+@Description("A stage of an auth flow slower than the threshold")
+@StackTrace(false)
+@Threshold("20 ms")
+public class AuthStageEvent extends Event {
+
+    public static final String NAME = "com.bitsar.passwordlessauth.AuthStage";
+
+    public static final String VALIDATION = "validation";
+    public static final String USER_LOOKUP = "user-lookup";
+    public static final String USER_WRITE = "user-write";
+    public static final String SESSION_READ = "session-read";
+    public static final String SESSION_WRITE = "session-write";
+
+    @Label("Flow")
+    String flow;
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Operation")
+    @Description("The class and method that ran the stage")
+    String operation;
+
+    @Label("Outcome")
+    @Description("none, or the simple name of the exception the stage failed with")
+    String outcome;
+
+    public void end(String stage, String operation, Throwable throwable) {
+        end();
+        if (shouldCommit()) {
+            this.flow = AuthFlowEvent.currentFlow();
+            this.stage = stage;
+            this.operation = operation;
+            this.outcome = outcome(throwable);
+            commit();
+        }
+    }
+
+    static String outcome(Throwable throwable) {
+        return throwable == null ? "none" : throwable.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,66 @@
+package com.bitsar.passwordlessauth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * One Cognito call, through its circuit breaker, from the request being sent until the answer is read.
+ */
+@Name(CognitoCallEvent.NAME)
+@Label("Cognito Call")
+@Category({"Passwordless Auth", "Cognito"})
+@Description("A Cognito call slower than the threshold")
+@StackTrace(false)
+@Threshold("20 ms")
+public class CognitoCallEvent extends Event {
+
+    public static final String NAME = "com.bitsar.passwordlessauth.CognitoCall";
+
+    @Label("Flow")
+    String flow;
+
+    @Label("Operation")
+    @Description("The Cognito API called")
+    String operation;
+
+    @Label("Outcome")
+    @Description("Success, CircuitOpen, Throttled, ClientError or the Cognito error code")
+    String outcome;
+
+    @Label("Response Size")
+    @Description("The Content-Length of the answer, -1 when unknown")
+    @DataAmount
+    long responseBytes;
+
+    /**
+     * Begins the event on the calling thread, which is still running the flow when an asynchronous call completes on
+     * another thread.
+     */
+    public static CognitoCallEvent start() {
+        CognitoCallEvent event = new CognitoCallEvent();
+        event.flow = AuthFlowEvent.currentFlow();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the event, the response size is only worked out when the event is recorded.
+     */
+    public <R> void end(String operation, String outcome, R response, ToLongFunction<R> responseBytes) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.outcome = outcome;
+            this.responseBytes = responseBytes.applyAsLong(response);
+            commit();
+        }
+    }
+}
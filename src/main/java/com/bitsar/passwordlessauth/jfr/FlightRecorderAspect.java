@@ -0,0 +1,76 @@
+package com.bitsar.passwordlessauth.jfr;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Emits an {@link AuthFlowEvent} for every {@code AuthService} method and an {@link AuthStageEvent} for every user and
+ * session store method. While no recording is running the events are disabled and cost a few field writes.
+ */
+@Aspect
+@Component
+public class FlightRecorderAspect {
+
+    @Around("execution(public * com.bitsar.passwordlessauth.service.AuthService.*(..))")
+    public Object recordFlow(ProceedingJoinPoint joinPoint) throws Throwable {
+        String flow = joinPoint.getSignature().getName();
+        AuthFlowEvent event = new AuthFlowEvent();
+        event.begin();
+        String previousFlow = AuthFlowEvent.enterFlow(flow);
+        try {
+            Object result = joinPoint.proceed();
+            // Asynchronous flows end when their future completes
+            if (result instanceof CompletableFuture<?> future) {
+                return future.whenComplete((value, throwable) -> event.end(flow, unwrap(throwable)));
+            }
+            event.end(flow, null);
+            return result;
+        } catch (Throwable throwable) {
+            event.end(flow, throwable);
+            throw throwable;
+        } finally {
+            AuthFlowEvent.restoreFlow(previousFlow);
+        }
+    }
+
+    @Around("execution(public * com.bitsar.passwordlessauth.dao.UserDao.*(..))")
+    public Object recordUserStage(ProceedingJoinPoint joinPoint) throws Throwable {
+        return recordStage(joinPoint, isRead(joinPoint) ? AuthStageEvent.USER_LOOKUP : AuthStageEvent.USER_WRITE);
+    }
+
+    @Around("execution(public * com.bitsar.passwordlessauth.dao.SessionStore+.*(..))")
+    public Object recordSessionStage(ProceedingJoinPoint joinPoint) throws Throwable {
+        return recordStage(joinPoint, isRead(joinPoint) ? AuthStageEvent.SESSION_READ : AuthStageEvent.SESSION_WRITE);
+    }
+
+    private static Object recordStage(ProceedingJoinPoint joinPoint, String stage) throws Throwable {
+        AuthStageEvent event = new AuthStageEvent();
+        event.begin();
+        try {
+            Object result = joinPoint.proceed();
+            event.end(stage, operation(joinPoint), null);
+            return result;
+        } catch (Throwable throwable) {
+            event.end(stage, operation(joinPoint), throwable);
+            throw throwable;
+        }
+    }
+
+    private static boolean isRead(ProceedingJoinPoint joinPoint) {
+        String method = joinPoint.getSignature().getName();
+        return method.startsWith("find") || method.startsWith("count") || method.startsWith("exists");
+    }
+
+    private static String operation(ProceedingJoinPoint joinPoint) {
+        return joinPoint.getTarget().getClass().getSimpleName() + "." + joinPoint.getSignature().getName();
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+}
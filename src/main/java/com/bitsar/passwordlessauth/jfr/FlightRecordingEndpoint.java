@@ -0,0 +1,145 @@
+package com.bitsar.passwordlessauth.jfr;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Starts, stops and dumps a flight recording of the running instance, at {@code /actuator/flightrecording}:
+ * <ul>
+ *     <li>{@code POST /start} starts a recording with the JDK {@code default} settings, below 1% overhead, or
+ *     {@code profile} for more detail. The auth events are recorded above {@code thresholdMs}.</li>
+ *     <li>{@code GET /dump} downloads what the running recording has collected so far.</li>
+ *     <li>{@code POST /stop} stops the recording and discards it.</li>
+ *     <li>{@code GET} tells whether a recording is running.</li>
+ * </ul>
+ * Only one recording is run at a time. It keeps the last {@code jfr.max-age-seconds} of events so a forgotten recording
+ * does not fill the disk. A recording holds the environment and system properties of the process, so the endpoint only
+ * exists in the "jfr" profile, which serves it on the loopback management port.
+ */
+@Slf4j
+@Component
+@Profile("jfr")
+@WebEndpoint(id = "flightrecording")
+public class FlightRecordingEndpoint {
+
+    private final long defaultThresholdMs;
+    private final Duration maxAge;
+    private Recording recording;
+
+    public FlightRecordingEndpoint(@Value("${jfr.threshold-ms:20}") long defaultThresholdMs,
+                                   @Value("${jfr.max-age-seconds:600}") long maxAgeSeconds) {
+        this.defaultThresholdMs = defaultThresholdMs;
+        this.maxAge = Duration.ofSeconds(maxAgeSeconds);
+    }
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("recording", isRunning());
+        if (isRunning()) {
+            status.put("name", recording.getName());
+            status.put("startTime", recording.getStartTime());
+            status.put("threshold", recording.getSettings().get(AuthFlowEvent.NAME + "#threshold"));
+        }
+        return status;
+    }
+
+    @WriteOperation
+    public synchronized WebEndpointResponse<Map<String, Object>> control(@Selector String action,
+                                                                        @Nullable String settings,
+                                                                        @Nullable Long thresholdMs) {
+        switch (action) {
+            case "start" -> {
+                if (isRunning()) return new WebEndpointResponse<>(status(), WebEndpointResponse.STATUS_BAD_REQUEST);
+                start(Objects.requireNonNullElse(settings, "default"), Objects.requireNonNullElse(thresholdMs, defaultThresholdMs));
+            }
+            case "stop" -> {
+                if (!isRunning()) return new WebEndpointResponse<>(status(), WebEndpointResponse.STATUS_BAD_REQUEST);
+                recording.close();
+                recording = null;
+                log.info("Flight recording stopped");
+            }
+            default -> {
+                return new WebEndpointResponse<>(Map.of("error", "Unknown action " + action), WebEndpointResponse.STATUS_NOT_FOUND);
+            }
+        }
+        return new WebEndpointResponse<>(status());
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized WebEndpointResponse<Resource> dump(@Selector String action) {
+        if (!"dump".equals(action) || !isRunning()) return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        Path file = null;
+        try {
+            file = Files.createTempFile("auth-", ".jfr");
+            recording.dump(file);
+            // Deleted no later than when the response has streamed it and closed the stream, nothing is left behind per call
+            return new WebEndpointResponse<>(new InputStreamResource(Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE)));
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw new UncheckedIOException("Unable to dump the flight recording", e);
+        }
+    }
+
+    private void start(String settings, long thresholdMs) {
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings);
+        } catch (IOException | ParseException e) {
+            throw new IllegalArgumentException("Unknown flight recorder settings " + settings, e);
+        }
+        recording = new Recording(configuration);
+        recording.setName("auth-" + Instant.now());
+        recording.setMaxAge(maxAge);
+        recording.setToDisk(true);
+        for (String event : new String[]{AuthFlowEvent.NAME, AuthStageEvent.NAME, CognitoCallEvent.NAME}) {
+            recording.enable(event).withThreshold(Duration.ofMillis(thresholdMs));
+        }
+        recording.start();
+        log.info("Flight recording started with {} settings, auth events above {} ms", settings, thresholdMs);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (Objects.nonNull(recording)) recording.close();
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (Objects.isNull(file)) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Unable to delete flight recording dump {}", file, e);
+        }
+    }
+
+    private boolean isRunning() {
+        return Objects.nonNull(recording) && recording.getState() == RecordingState.RUNNING;
+    }
+}
@@ -0,0 +1,11 @@
+package com.bitsar.passwordlessauth.phone;
+
+/**
+ * A phone number that passed the numbering plan, in canonical E.164 form. The E.164 form is the Cognito username, the
+ * key of users and sessions and the rate limiting key of the number.
+ *
+ * @param e164   the number with its calling code, like {@code +916625550144}
+ * @param region the region whose rules the number matched, like {@code IN}
+ */
+public record PhoneNumber(String e164, String region) {
+}
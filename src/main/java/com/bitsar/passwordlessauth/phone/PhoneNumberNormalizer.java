@@ -0,0 +1,163 @@
+package com.bitsar.passwordlessauth.phone;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Parses phone numbers as users enter them into canonical E.164. A number starting with {@code +} is matched against
+ * the calling codes of the configured regions, walking a trie of their digits; any other number is a national number
+ * of the default region, its trunk prefix dropped. The national number must then have one of the lengths of its region
+ * and start with one of its leading digits. Spaces, hyphens, dots and parentheses between digits are ignored.
+ * <p>
+ * The trie and the rules are built once from {@link PhoneNumberProperties}. Parsing is a single pass over the input
+ * without regular expressions, and a malformed number is answered with null rather than an exception.
+ */
+@Component
+@EnableConfigurationProperties(PhoneNumberProperties.class)
+public class PhoneNumberNormalizer {
+
+    // E.164 allows 15 digits, a trunk prefix may come on top of a national number
+    private static final int MAX_DIGITS = 17;
+
+    private final Node callingCodes = new Node();
+    private final Rule defaultRule;
+
+    public PhoneNumberNormalizer(PhoneNumberProperties properties) {
+        Rule defaultRegionRule = null;
+        for (Map.Entry<String, PhoneNumberProperties.Region> region : properties.getRegions().entrySet()) {
+            Rule rule = new Rule(region.getKey(), region.getValue());
+            Node node = callingCodes;
+            for (int i = 0; i < rule.callingCode.length(); i++) {
+                if (Objects.nonNull(node.rule)) throw new IllegalStateException("Calling code of " + rule.region + " starts with the one of " + node.rule.region);
+                node = node.child(rule.callingCode.charAt(i) - '0');
+            }
+            if (Objects.nonNull(node.rule) || node.hasChildren()) {
+                throw new IllegalStateException("Calling code of " + rule.region + " overlaps another region, one region per calling code");
+            }
+            node.rule = rule;
+            if (rule.region.equals(properties.getDefaultRegion())) defaultRegionRule = rule;
+        }
+        if (Objects.isNull(defaultRegionRule)) throw new IllegalStateException("Default phone region " + properties.getDefaultRegion() + " is not configured");
+        this.defaultRule = defaultRegionRule;
+    }
+
+    /**
+     * @param input a phone number as entered, with or without a calling code
+     * @return the number in canonical form, or null if it is not a valid number of a configured region
+     */
+    public PhoneNumber normalize(String input) {
+        if (Objects.isNull(input)) return null;
+        char[] digits = new char[MAX_DIGITS];
+        int count = 0;
+        boolean international = false;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (count == MAX_DIGITS) return null;
+                digits[count++] = c;
+            } else if (c == '+' && count == 0 && !international) {
+                international = true;
+            } else if (c != ' ' && c != '-' && c != '.' && c != '(' && c != ')') {
+                return null;
+            }
+        }
+        return international ? international(digits, count) : national(digits, count);
+    }
+
+    private PhoneNumber international(char[] digits, int count) {
+        Node node = callingCodes;
+        int i = 0;
+        while (Objects.isNull(node.rule)) {
+            if (i == count) return null;
+            node = node.children[digits[i++] - '0'];
+            if (Objects.isNull(node)) return null;
+        }
+        return node.rule.accepts(digits, i, count) ? node.rule.toE164(digits, i, count) : null;
+    }
+
+    private PhoneNumber national(char[] digits, int count) {
+        Rule rule = defaultRule;
+        // The trunk prefix is only dropped when what follows is a whole national number
+        int start = rule.startsWithTrunkPrefix(digits, count) && rule.accepts(digits, rule.trunkPrefix.length(), count) ? rule.trunkPrefix.length() : 0;
+        return rule.accepts(digits, start, count) ? rule.toE164(digits, start, count) : null;
+    }
+
+    private static final class Node {
+
+        private Node[] children;
+        private Rule rule;
+
+        Node child(int digit) {
+            if (Objects.isNull(children)) children = new Node[10];
+            if (Objects.isNull(children[digit])) children[digit] = new Node();
+            return children[digit];
+        }
+
+        boolean hasChildren() {
+            return Objects.nonNull(children);
+        }
+    }
+
+    private static final class Rule {
+
+        private final String region;
+        private final String callingCode;
+        // Bit n set when a national number may have n digits
+        private final int lengths;
+        // Bit d set when a national number may start with digit d
+        private final int leadingDigits;
+        private final String trunkPrefix;
+
+        Rule(String region, PhoneNumberProperties.Region properties) {
+            this.region = region;
+            if (Objects.isNull(properties.getCallingCode()) || properties.getCallingCode().isBlank()) throw new IllegalStateException("No calling code for " + region);
+            this.callingCode = digits(region, properties.getCallingCode());
+            int lengths = 0;
+            for (int length : properties.getNationalLengths()) {
+                if (length < 1 || length + callingCode.length() > 15) throw new IllegalStateException("Invalid national number length " + length + " for " + region);
+                lengths |= 1 << length;
+            }
+            if (lengths == 0) throw new IllegalStateException("No national number lengths for " + region);
+            this.lengths = lengths;
+            int leadingDigits = 0;
+            String leading = digits(region, properties.getLeadingDigits());
+            for (int i = 0; i < leading.length(); i++) leadingDigits |= 1 << (leading.charAt(i) - '0');
+            this.leadingDigits = leadingDigits == 0 ? 0x3FF : leadingDigits;
+            this.trunkPrefix = digits(region, properties.getTrunkPrefix());
+        }
+
+        boolean accepts(char[] digits, int start, int end) {
+            int length = end - start;
+            return length > 0 && length < 32 && (lengths & (1 << length)) != 0 && (leadingDigits & (1 << (digits[start] - '0'))) != 0;
+        }
+
+        boolean startsWithTrunkPrefix(char[] digits, int count) {
+            if (trunkPrefix.isEmpty() || count < trunkPrefix.length()) return false;
+            for (int i = 0; i < trunkPrefix.length(); i++) {
+                if (digits[i] != trunkPrefix.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        PhoneNumber toE164(char[] digits, int start, int end) {
+            char[] e164 = new char[1 + callingCode.length() + end - start];
+            e164[0] = '+';
+            callingCode.getChars(0, callingCode.length(), e164, 1);
+            System.arraycopy(digits, start, e164, 1 + callingCode.length(), end - start);
+            return new PhoneNumber(new String(e164), region);
+        }
+
+        // Blank when not configured
+        private static String digits(String region, String value) {
+            if (Objects.isNull(value)) return "";
+            value = value.trim();
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) < '0' || value.charAt(i) > '9') throw new IllegalStateException("Not a digit in " + value + " for " + region);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.bitsar.passwordlessauth.phone;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "phone")
+public class PhoneNumberProperties {
+    /**
+     * Region of numbers entered without a calling code.
+     */
+    private String defaultRegion = "IN";
+    private Map<String, Region> regions = new LinkedHashMap<>(Map.of("IN", Region.of("91", List.of(10), null, null)));
+
+    @Data
+    public static class Region {
+        private String callingCode;
+        /**
+         * Digit counts of a national number, without the trunk prefix.
+         */
+        private List<Integer> nationalLengths = List.of();
+        /**
+         * Digits a national number may start with, any digit when blank.
+         */
+        private String leadingDigits;
+        /**
+         * Prefix dialled before national numbers within the region, dropped from numbers entered without a calling code.
+         */
+        private String trunkPrefix;
+
+        static Region of(String callingCode, List<Integer> nationalLengths, String leadingDigits, String trunkPrefix) {
+            Region region = new Region();
+            region.setCallingCode(callingCode);
+            region.setNationalLengths(nationalLengths);
+            region.setLeadingDigits(leadingDigits);
+            region.setTrunkPrefix(trunkPrefix);
+            return region;
+        }
+    }
+}
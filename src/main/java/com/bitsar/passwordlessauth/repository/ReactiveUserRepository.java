@@ -0,0 +1,14 @@
+package com.bitsar.passwordlessauth.repository;
+
+import com.bitsar.passwordlessauth.entity.User;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ReactiveUserRepository extends ReactiveMongoRepository<User, String> {
+
+    Mono<User> findByPhoneNumber(String phoneNumber);
+
+    Mono<User> findByCognitoUserName(String cognitoUserName);
+}
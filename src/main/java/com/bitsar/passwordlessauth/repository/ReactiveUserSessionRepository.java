@@ -0,0 +1,20 @@
+package com.bitsar.passwordlessauth.repository;
+
+import com.bitsar.passwordlessauth.entity.UserSession;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ReactiveUserSessionRepository extends ReactiveMongoRepository<UserSession, String> {
+
+    Mono<Long> deleteAllByPhoneNumber(String phoneNumber);
+
+    Mono<Long> deleteAllByCognitoUserName(String cognitoUserName);
+
+    Mono<UserSession> findBySessionId(String sessionId);
+
+    Mono<UserSession> findByPhoneNumber(String phoneNumber);
+
+    Mono<UserSession> findByCognitoUserName(String cognitoUserName);
+}
@@ -9,7 +9,13 @@ public interface UserSessionRepository extends MongoRepository<UserSession, Stri
 
     boolean existsByPhoneNumber(String phoneNumber);
 
-    void deleteAllByPhoneNumber(String phoneNumber);
+    long deleteAllByPhoneNumber(String phoneNumber);
+
+    long deleteAllByCognitoUserName(String cognitoUserName);
+
+    UserSession findBySessionId(String sessionId);
 
     UserSession findByPhoneNumber(String phoneNumber);
+
+    UserSession findByCognitoUserName(String cognitoUserName);
 }
@@ -3,7 +3,7 @@ package com.bitsar.passwordlessauth.service;
 import com.amazonaws.services.cognitoidp.model.*;
 import com.bitsar.passwordlessauth.constants.AuthConstants;
 import com.bitsar.passwordlessauth.dao.UserDao;
-import com.bitsar.passwordlessauth.dao.UserSessionDao;
+import com.bitsar.passwordlessauth.dao.SessionStore;
 import com.bitsar.passwordlessauth.dto.request.ConfirmRegisterRequestDto;
 import com.bitsar.passwordlessauth.dto.request.RegisterRequestDto;
 import com.bitsar.passwordlessauth.dto.response.*;
@@ -11,36 +11,46 @@ import com.bitsar.passwordlessauth.entity.User;
 import com.bitsar.passwordlessauth.entity.UserSession;
 import com.bitsar.passwordlessauth.enums.UserStatus;
 import com.bitsar.passwordlessauth.exception.*;
+import com.bitsar.passwordlessauth.helper.AuthMetrics;
 import com.bitsar.passwordlessauth.helper.CognitoHelper;
+import com.bitsar.passwordlessauth.helper.RefreshReusePolicy;
+import com.bitsar.passwordlessauth.helper.RequestRateLimiter;
+import com.bitsar.passwordlessauth.helper.SessionExpiryPolicy;
+import com.bitsar.passwordlessauth.helper.SessionStateCache;
+import com.bitsar.passwordlessauth.jfr.AuthStageEvent;
+import com.bitsar.passwordlessauth.phone.PhoneNumber;
+import com.bitsar.passwordlessauth.phone.PhoneNumberNormalizer;
+import com.bitsar.passwordlessauth.util.SingleFlight;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Objects;
-
-import static com.bitsar.passwordlessauth.constants.AuthConstants.INDIAN_COUNTRY_CODE;
-import static com.bitsar.passwordlessauth.constants.AuthConstants.TEN_DIGIT_REGEX;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Slf4j
 @Service
+@Timed("auth.flow")
 @RequiredArgsConstructor
 public class AuthService {
 
     private final CognitoHelper cognitoHelper;
     private final UserDao userDao;
-    private final UserSessionDao userSessionDao;
-    @Value("${idle.timeout.day}")
-    private int idleTimeoutDay;
-    @Value("${idle.timeout.hour}")
-    private int idleTimeoutHour;
-    @Value("${idle.timeout.minute}")
-    private int idleTimeoutMinute;
-    @Value("${idle.timeout.second}")
-    private int idleTimeoutSecond;
+    private final SessionStore sessionStore;
+    private final SessionStateCache sessionStateCache;
+    private final RefreshReusePolicy refreshReusePolicy;
+    private final RequestRateLimiter requestRateLimiter;
+    private final SessionExpiryPolicy sessionExpiryPolicy;
+    private final AuthMetrics authMetrics;
+    private final PhoneNumberNormalizer phoneNumberNormalizer;
+    // Concurrent refreshes or logouts of the same user share one Cognito call and one session write
+    private final SingleFlight<String, ConfirmLoginResponseDto> refreshFlights = new SingleFlight<>();
+    private final SingleFlight<String, ConfirmLogoutResponseDto> logoutFlights = new SingleFlight<>();
 
     /**
      * Registers a user with the provided phone number.
@@ -51,34 +61,46 @@ public class AuthService {
      * @throws PhoneNumberAlreadyExistsException if the phone number is already registered.
      */
     public RegisterResponseDto signUp(RegisterRequestDto registerRequestDto) {
-        // Validate phone number format
-        String phoneNumber = registerRequestDto.getPhoneNumber();
-        if (!phoneNumber.matches(TEN_DIGIT_REGEX))
-            throw new InvalidPhoneNumberFormatException("Phone number should be 10 digits");
-
-        // Check if user already exists
-        User user = userDao.findByPhoneNumberInSignUp(phoneNumber);
-        if (Objects.nonNull(user) && !user.getStatus().equals(UserStatus.NEW))
-            throw new PhoneNumberAlreadyExistsException("Phone number already exists");
+        PhoneNumber phoneNumber = validatePhoneNumber(registerRequestDto.getPhoneNumber());
+        requestRateLimiter.checkPhoneNumber(phoneNumber.e164());
+        User user = findUserForSignUp(phoneNumber);
 
         String sessionId;
         // Sign up user if not already registered
         if (Objects.isNull(user)) {
-            SignUpResult signUpResult = cognitoHelper.cognitoSignUp(INDIAN_COUNTRY_CODE, phoneNumber);
-            sessionId = signUpResult.getUserSub();
-            userDao.dbSignUp(registerRequestDto, signUpResult.getUserSub());
+            SignUpResult signUpResult = cognitoHelper.cognitoSignUp(phoneNumber);
+            sessionId = completeSignUp(registerRequestDto, phoneNumber, signUpResult);
         }
         // Resend confirmation code if user already exists
         else {
             cognitoHelper.cognitoResendConfirmCode(user.getPhoneNumber());
+            authMetrics.otpResent(AuthMetrics.SIGN_UP);
             sessionId = user.getCognitoUserName();
         }
 
-        // Return response indicating successful registration
-        return RegisterResponseDto.builder()
-                .status(AuthConstants.SUCCESS_STATUS)
-                .sessionId(sessionId)
-                .build();
+        return registerResponse(sessionId);
+    }
+
+    /**
+     * Asynchronous variant of {@link #signUp(RegisterRequestDto)}, the Cognito call does not hold the calling thread.
+     *
+     * @param registerRequestDto The request object containing the user's phone number.
+     * @return A future completed with the registration response.
+     */
+    public CompletableFuture<RegisterResponseDto> signUpAsync(RegisterRequestDto registerRequestDto) {
+        PhoneNumber phoneNumber = validatePhoneNumber(registerRequestDto.getPhoneNumber());
+        requestRateLimiter.checkPhoneNumber(phoneNumber.e164());
+        User user = findUserForSignUp(phoneNumber);
+
+        if (Objects.isNull(user)) {
+            return cognitoHelper.cognitoSignUpAsync(phoneNumber)
+                    .thenApply(signUpResult -> registerResponse(completeSignUp(registerRequestDto, phoneNumber, signUpResult)));
+        }
+        return cognitoHelper.cognitoResendConfirmCodeAsync(user.getPhoneNumber())
+                .thenApply(result -> {
+                    authMetrics.otpResent(AuthMetrics.SIGN_UP);
+                    return registerResponse(user.getCognitoUserName());
+                });
     }
 
     /**
@@ -90,14 +112,7 @@ public class AuthService {
      * @throws IncorrectOTPException               if the OTP is incorrect
      */
     public ConfirmRegisterResponseDto confirmSignUp(ConfirmRegisterRequestDto confirmRegisterRequestDto) {
-        // Retrieve the cognito username from the request
-        String cognitoUserName = confirmRegisterRequestDto.getSessionId();
-
-        // Find the user by cognito username
-        User user = userDao.findByCognitoUserName(cognitoUserName);
-
-        // Throw exception if user is not found
-        if (Objects.isNull(user)) throw new InvalidRegistrationSessionException("Invalid registration session");
+        User user = findUserForConfirmSignUp(confirmRegisterRequestDto.getSessionId());
 
         ConfirmSignUpResult confirmSignUpResult;
         try {
@@ -105,23 +120,39 @@ public class AuthService {
             confirmSignUpResult = cognitoHelper.cognitoConfirmSignUp(confirmRegisterRequestDto.getConfirmationCode(), user.getPhoneNumber());
         } catch (CodeMismatchException e) {
             // Resend confirmation code and throw exception for incorrect OTP
+            authMetrics.otpFailed(AuthMetrics.SIGN_UP);
+            requestRateLimiter.checkPhoneNumber(user.getPhoneNumber());
             cognitoHelper.cognitoResendConfirmCode(user.getPhoneNumber());
+            authMetrics.otpResent(AuthMetrics.SIGN_UP);
             throw new IncorrectOTPException("Wrong OTP passed");
         }
 
-        // If confirmation is successful, update user status and save to database
-        if (confirmSignUpResult.getSdkHttpMetadata().getHttpStatusCode() == 200) {
-            user.setStatus(UserStatus.VERIFIED);
-            userDao.save(user);
-        }
-
-        // Log the confirmation sign up response
-        log.info("Confirm sign up response: {}", confirmSignUpResult);
+        return completeConfirmSignUp(user, confirmSignUpResult);
+    }
 
-        // Return the confirmation response with HTTP status code
-        return ConfirmRegisterResponseDto.builder()
-                .status(confirmSignUpResult.getSdkHttpMetadata().getHttpStatusCode())
-                .build();
+    /**
+     * Asynchronous variant of {@link #confirmSignUp(ConfirmRegisterRequestDto)}.
+     *
+     * @param confirmRegisterRequestDto the request containing the session id and confirmation code
+     * @return a future completed with the confirmation response
+     */
+    public CompletableFuture<ConfirmRegisterResponseDto> confirmSignUpAsync(ConfirmRegisterRequestDto confirmRegisterRequestDto) {
+        User user = findUserForConfirmSignUp(confirmRegisterRequestDto.getSessionId());
+
+        return cognitoHelper.cognitoConfirmSignUpAsync(confirmRegisterRequestDto.getConfirmationCode(), user.getPhoneNumber())
+                .exceptionallyCompose(ex -> {
+                    Throwable cause = unwrap(ex);
+                    if (!(cause instanceof CodeMismatchException)) return CompletableFuture.failedFuture(cause);
+                    // Resend confirmation code and fail with incorrect OTP
+                    authMetrics.otpFailed(AuthMetrics.SIGN_UP);
+                    requestRateLimiter.checkPhoneNumber(user.getPhoneNumber());
+                    return cognitoHelper.cognitoResendConfirmCodeAsync(user.getPhoneNumber())
+                            .<ConfirmSignUpResult>thenApply(result -> {
+                                authMetrics.otpResent(AuthMetrics.SIGN_UP);
+                                throw new IncorrectOTPException("Wrong OTP passed");
+                            });
+                })
+                .thenApply(confirmSignUpResult -> completeConfirmSignUp(user, confirmSignUpResult));
     }
 
     /**
@@ -133,28 +164,28 @@ public class AuthService {
      * @throws NotAuthorizedToLoginException     if the user is not authorized to log in
      */
     public LoginResponseDto signIn(String phoneNumber) {
-        // Validate phone number format
-        if (!phoneNumber.matches(TEN_DIGIT_REGEX))
-            throw new InvalidPhoneNumberFormatException("Phone number should be 10 digits");
-
-        // Find user by phone number in sign-up
-        User user = userDao.findByPhoneNumberInSignUp(phoneNumber);
-        // Check if user is null or in new status
-        if (Objects.isNull(user) || user.getStatus().equals(UserStatus.NEW))
-            throw new NotAuthorizedToLoginException("Phone number is not authorized to login");
+        PhoneNumber validPhoneNumber = validatePhoneNumber(phoneNumber);
+        requestRateLimiter.checkPhoneNumber(validPhoneNumber.e164());
+        User user = findUserForSignIn(validPhoneNumber);
 
         // Initiate sign-in with Cognito
-        InitiateAuthResult initiateAuthResult = cognitoHelper.cognitoSignIn(INDIAN_COUNTRY_CODE + phoneNumber);
+        InitiateAuthResult initiateAuthResult = cognitoHelper.cognitoSignIn(validPhoneNumber.e164());
+        return createLoginSession(user, initiateAuthResult);
+    }
 
-        // Log the login response
-        log.info("Login response: {}", initiateAuthResult);
+    /**
+     * Asynchronous variant of {@link #signIn(String)}.
+     *
+     * @param phoneNumber the phone number to sign in with
+     * @return a future completed with the login response
+     */
+    public CompletableFuture<LoginResponseDto> signInAsync(String phoneNumber) {
+        PhoneNumber validPhoneNumber = validatePhoneNumber(phoneNumber);
+        requestRateLimiter.checkPhoneNumber(validPhoneNumber.e164());
+        User user = findUserForSignIn(validPhoneNumber);
 
-        // Save user session and return response indicating successful login
-        UserSession userSession = userSessionDao.findAndUpdateAndSaveSession(UserSession.builder().session(initiateAuthResult.getSession()).phoneNumber(INDIAN_COUNTRY_CODE + phoneNumber).build());
-        return LoginResponseDto.builder()
-                .status(AuthConstants.SUCCESS_STATUS)
-                .sessionId(userSession.getId())
-                .build();
+        return cognitoHelper.cognitoSignInAsync(validPhoneNumber.e164())
+                .thenApply(initiateAuthResult -> createLoginSession(user, initiateAuthResult));
     }
 
     /**
@@ -167,9 +198,7 @@ public class AuthService {
      * @throws IncorrectOTPException if the OTP is incorrect
      */
     public ConfirmLoginResponseDto confirmSignIn(String sessionId, String otp) {
-        // Find user session by session ID
-        UserSession userSession = userSessionDao.findBySessionId(sessionId);
-        if (Objects.isNull(userSession)) throw new InvalidSessionException("Invalid session");
+        UserSession userSession = findLoginSession(sessionId);
 
         RespondToAuthChallengeResult respondToAuthChallengeResult;
         try {
@@ -178,99 +207,347 @@ public class AuthService {
         }
         catch (CodeMismatchException ex) {
             // If OTP is incorrect, sign in again and throw an IncorrectOTPException
-            LoginResponseDto loginResponseDto = signIn(userSession.getPhoneNumber().replace(INDIAN_COUNTRY_CODE, ""));
+            authMetrics.otpFailed(AuthMetrics.SIGN_IN);
+            LoginResponseDto loginResponseDto = signIn(userSession.getPhoneNumber());
+            authMetrics.otpResent(AuthMetrics.SIGN_IN);
             throw new IncorrectOTPException("Wrong OTP passed, new session created : " + loginResponseDto.getSessionId());
         }
 
-        // Update user session with access token, ID token, and refresh token
-        userSession.setAccessToken(respondToAuthChallengeResult.getAuthenticationResult().getAccessToken());
-        userSession.setIdToken(respondToAuthChallengeResult.getAuthenticationResult().getIdToken());
-        userSession.setRefreshToken(respondToAuthChallengeResult.getAuthenticationResult().getRefreshToken());
-        userSession.setTimeStamp(Instant.ofEpochMilli(System.currentTimeMillis()).atZone(ZoneId.systemDefault()).toLocalDateTime());
-        userSessionDao.updateSession(userSession);
-
-        User user = userDao.findByPhoneNumberInSignUp(userSession.getPhoneNumber().replace(INDIAN_COUNTRY_CODE, ""));
+        return completeLogin(userSession, respondToAuthChallengeResult);
+    }
 
-        // Return confirmation response DTO with status and access token
-        return ConfirmLoginResponseDto.builder()
-                .status(AuthConstants.SUCCESS_STATUS)
-                .accessToken(respondToAuthChallengeResult.getAuthenticationResult().getAccessToken())
-                .firstName(user.getFirstName())
-                .lastName(user.getLastName())
-                .build();
+    /**
+     * Asynchronous variant of {@link #confirmSignIn(String, String)}.
+     *
+     * @param sessionId the session ID
+     * @param otp the one-time password
+     * @return a future completed with the confirmation response DTO
+     */
+    public CompletableFuture<ConfirmLoginResponseDto> confirmSignInAsync(String sessionId, String otp) {
+        UserSession userSession = findLoginSession(sessionId);
+
+        return cognitoHelper.respondToMFAChallengeAsync(userSession.getPhoneNumber(), otp, userSession.getSession())
+                .exceptionallyCompose(ex -> {
+                    Throwable cause = unwrap(ex);
+                    if (!(cause instanceof CodeMismatchException)) return CompletableFuture.failedFuture(cause);
+                    // If OTP is incorrect, sign in again and fail with an IncorrectOTPException
+                    authMetrics.otpFailed(AuthMetrics.SIGN_IN);
+                    return signInAsync(userSession.getPhoneNumber())
+                            .<RespondToAuthChallengeResult>thenApply(loginResponseDto -> {
+                                authMetrics.otpResent(AuthMetrics.SIGN_IN);
+                                throw new IncorrectOTPException("Wrong OTP passed, new session created : " + loginResponseDto.getSessionId());
+                            });
+                })
+                .thenApply(respondToAuthChallengeResult -> completeLogin(userSession, respondToAuthChallengeResult));
     }
 
     /**
      * Refreshes the user's access token and updates the user's session.
      * Throws an exception if the session has expired.
+     * Concurrent refreshes of the same user are coalesced and all callers get the same result.
      *
      * @param cognitoUserName the Cognito username of the user
      * @return the confirmation login response DTO with the updated access token and user information
      * @throws IdleTimeExpiredException if the session has expired
      */
     public ConfirmLoginResponseDto refreshToken(String cognitoUserName) {
-        // Retrieve user and user session from the database
+        return refreshFlights.execute(cognitoUserName, () -> {
+            // Retrieve the user session, which carries the name of the user
+            UserSession userSession = findRefreshableSession(cognitoUserName);
+
+            // Hand back the stored access token while it is still fresh enough
+            if (refreshReusePolicy.canReuse(userSession)) return reuseAccessToken(userSession);
+
+            // Refresh the access token using the refresh token
+            InitiateAuthResult initiateAuthResult = cognitoHelper.cognitoRefreshToken(userSession.getRefreshToken(), cognitoUserName);
+            return completeRefresh(userSession, initiateAuthResult);
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #refreshToken(String)}.
+     *
+     * @param cognitoUserName the Cognito username of the user
+     * @return a future completed with the updated access token and user information
+     */
+    public CompletableFuture<ConfirmLoginResponseDto> refreshTokenAsync(String cognitoUserName) {
+        return refreshFlights.executeAsync(cognitoUserName, () -> {
+            UserSession userSession = findRefreshableSession(cognitoUserName);
+
+            if (refreshReusePolicy.canReuse(userSession)) return CompletableFuture.completedFuture(reuseAccessToken(userSession));
+            return cognitoHelper.cognitoRefreshTokenAsync(userSession.getRefreshToken(), cognitoUserName)
+                    .thenApply(initiateAuthResult -> completeRefresh(userSession, initiateAuthResult));
+        });
+    }
+
+    /**
+     * Logs out the user by deleting the user session and performing a global sign-out from Cognito.
+     * Concurrent logouts of the same user are coalesced and all callers get the same result.
+     *
+     * @param accessToken the access token of the user
+     * @param cognitoUserName the Cognito username of the user
+     * @return ConfirmLogoutResponseDto with the status of the logout operation
+     */
+    public ConfirmLogoutResponseDto logout(String accessToken, String cognitoUserName) {
+        return logoutFlights.execute(cognitoUserName, () -> {
+            deleteSession(cognitoUserName);
+
+            // Perform global sign out from Cognito
+            cognitoHelper.cognitoGlobalSignOut(accessToken);
+
+            return logoutResponse();
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #logout(String, String)}.
+     *
+     * @param accessToken the access token of the user
+     * @param cognitoUserName the Cognito username of the user
+     * @return a future completed once Cognito has signed the user out
+     */
+    public CompletableFuture<ConfirmLogoutResponseDto> logoutAsync(String accessToken, String cognitoUserName) {
+        return logoutFlights.executeAsync(cognitoUserName, () -> {
+            deleteSession(cognitoUserName);
+
+            return cognitoHelper.cognitoGlobalSignOutAsync(accessToken)
+                    .thenApply(result -> logoutResponse());
+        });
+    }
+
+    private PhoneNumber validatePhoneNumber(String phoneNumber) {
+        AuthStageEvent event = new AuthStageEvent();
+        event.begin();
+        // Normalize the phone number to E.164, null when it is not valid
+        PhoneNumber validPhoneNumber = phoneNumberNormalizer.normalize(phoneNumber);
+        if (Objects.isNull(validPhoneNumber)) {
+            InvalidPhoneNumberFormatException e = new InvalidPhoneNumberFormatException("Phone number is not valid");
+            event.end(AuthStageEvent.VALIDATION, "AuthService.validatePhoneNumber", e);
+            throw e;
+        }
+        event.end(AuthStageEvent.VALIDATION, "AuthService.validatePhoneNumber", null);
+        return validPhoneNumber;
+    }
+
+    private User findUserForSignUp(PhoneNumber phoneNumber) {
+        // Check if user already exists
+        User user = userDao.findByPhoneNumberInSignUp(phoneNumber);
+        if (Objects.nonNull(user) && !user.getStatus().equals(UserStatus.NEW))
+            throw new PhoneNumberAlreadyExistsException("Phone number already exists");
+        return user;
+    }
+
+    private String completeSignUp(RegisterRequestDto registerRequestDto, PhoneNumber phoneNumber, SignUpResult signUpResult) {
+        userDao.dbSignUp(registerRequestDto, phoneNumber, signUpResult.getUserSub());
+        return signUpResult.getUserSub();
+    }
+
+    private RegisterResponseDto registerResponse(String sessionId) {
+        // Return response indicating successful registration
+        return RegisterResponseDto.builder()
+                .status(AuthConstants.SUCCESS_STATUS)
+                .sessionId(sessionId)
+                .build();
+    }
+
+    private User findUserForConfirmSignUp(String cognitoUserName) {
+        // Find the user by cognito username
         User user = userDao.findByCognitoUserName(cognitoUserName);
-        UserSession userSession = userSessionDao.findByPhoneNumber(user.getPhoneNumber());
+
+        // Throw exception if user is not found
+        if (Objects.isNull(user)) throw new InvalidRegistrationSessionException("Invalid registration session");
+        return user;
+    }
+
+    private ConfirmRegisterResponseDto completeConfirmSignUp(User user, ConfirmSignUpResult confirmSignUpResult) {
+        // If confirmation is successful, update user status and save to database
+        if (confirmSignUpResult.getSdkHttpMetadata().getHttpStatusCode() == 200) {
+            user.setStatus(UserStatus.VERIFIED);
+            userDao.save(user);
+        }
+
+        // Log the confirmation sign up response
+        log.info("Confirm sign up response: {}", confirmSignUpResult);
+
+        // Return the confirmation response with HTTP status code
+        return ConfirmRegisterResponseDto.builder()
+                .status(confirmSignUpResult.getSdkHttpMetadata().getHttpStatusCode())
+                .build();
+    }
+
+    private User findUserForSignIn(PhoneNumber phoneNumber) {
+        // Find user by phone number in sign-up
+        User user = userDao.findByPhoneNumberInSignUp(phoneNumber);
+        // Check if user is null or in new status
+        if (Objects.isNull(user) || user.getStatus().equals(UserStatus.NEW))
+            throw new NotAuthorizedToLoginException("Phone number is not authorized to login");
+        return user;
+    }
+
+    private LoginResponseDto createLoginSession(User user, InitiateAuthResult initiateAuthResult) {
+        // Log the login response
+        log.info("Login response: {}", initiateAuthResult);
+
+        // Save user session with a copy of the user's name and return response indicating successful login
+        UserSession userSession = sessionStore.findAndUpdateAndSaveSession(UserSession.builder()
+                .session(initiateAuthResult.getSession())
+                .phoneNumber(user.getPhoneNumber())
+                .cognitoUserName(user.getCognitoUserName())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .expiresAt(sessionExpiryPolicy.expiresAt(LocalDateTime.now()))
+                .build());
+        authMetrics.sessionCreated();
+        return LoginResponseDto.builder()
+                .status(AuthConstants.SUCCESS_STATUS)
+                .sessionId(userSession.getSessionId())
+                .build();
+    }
+
+    private UserSession findLoginSession(String sessionId) {
+        // Find user session by session ID
+        UserSession userSession = sessionStore.findBySessionId(sessionId);
+        if (Objects.isNull(userSession)) throw new InvalidSessionException("Invalid session");
+        return userSession;
+    }
+
+    private ConfirmLoginResponseDto completeLogin(UserSession userSession, RespondToAuthChallengeResult respondToAuthChallengeResult) {
+        // Sessions started before the user was copied onto them get the copy now
+        boolean copyProfile = Objects.isNull(userSession.getCognitoUserName());
+        if (copyProfile) {
+            copyProfile(userDao.findByPhoneNumberInSignUp(phoneNumberNormalizer.normalize(userSession.getPhoneNumber())), userSession);
+        }
+
+        // Update user session with access token, ID token, and refresh token, and the user when it was just copied
+        LocalDateTime timeStamp = Instant.ofEpochMilli(System.currentTimeMillis()).atZone(ZoneId.systemDefault()).toLocalDateTime();
+        UserSession.UserSessionBuilder update = UserSession.builder()
+                .id(userSession.getId())
+                .sessionId(userSession.getSessionId())
+                .accessToken(respondToAuthChallengeResult.getAuthenticationResult().getAccessToken())
+                .idToken(respondToAuthChallengeResult.getAuthenticationResult().getIdToken())
+                .refreshToken(respondToAuthChallengeResult.getAuthenticationResult().getRefreshToken())
+                .timeStamp(timeStamp)
+                .expiresAt(sessionExpiryPolicy.expiresAt(timeStamp));
+        if (copyProfile) {
+            update.cognitoUserName(userSession.getCognitoUserName())
+                    .firstName(userSession.getFirstName())
+                    .lastName(userSession.getLastName());
+        }
+        sessionStore.updateSession(update.build());
+
+        // Drop the cached session state so introspection sees the new session
+        sessionStateCache.invalidate(userSession.getCognitoUserName());
+
+        // Return confirmation response DTO with status and access token
+        return ConfirmLoginResponseDto.builder()
+                .status(AuthConstants.SUCCESS_STATUS)
+                .accessToken(respondToAuthChallengeResult.getAuthenticationResult().getAccessToken())
+                .firstName(userSession.getFirstName())
+                .lastName(userSession.getLastName())
+                .build();
+    }
+
+    private UserSession findRefreshableSession(String cognitoUserName) {
+        UserSession userSession = sessionStore.findByCognitoUserName(cognitoUserName);
+        if (Objects.isNull(userSession)) userSession = findSessionThroughUser(cognitoUserName);
 
         if (Objects.isNull(userSession)) {
             throw new UserAlreadyLoggedOutException("User already logged out!");
         }
 
-        // Check if the session has expired
-        LocalDateTime currentLocalDateTime = LocalDateTime.now();
-        if (userSession.getTimeStamp().plusDays(idleTimeoutDay).plusHours(idleTimeoutHour)
-                .plusMinutes(idleTimeoutMinute).plusSeconds(idleTimeoutSecond).isBefore(currentLocalDateTime)) {
+        // Check if the session has expired, the TTL index may not have purged it yet
+        if (sessionExpiryPolicy.isExpired(userSession)) {
             throw new IdleTimeExpiredException("Session Expired! Please login again");
         }
+        return userSession;
+    }
+
+    /**
+     * Finds a session started before the user was copied onto sessions, by the phone number of the user, and copies the
+     * user onto it so the next lookup finds it by Cognito username.
+     */
+    private UserSession findSessionThroughUser(String cognitoUserName) {
+        User user = userDao.findByCognitoUserName(cognitoUserName);
+        if (Objects.isNull(user)) return null;
+        UserSession userSession = sessionStore.findByPhoneNumber(user.getPhoneNumber());
+        if (Objects.isNull(userSession)) return null;
+
+        sessionStore.updateProfile(user);
+        copyProfile(user, userSession);
+        return userSession;
+    }
 
-        // Refresh the access token using the refresh token
-        String refreshToken = userSession.getRefreshToken();
-        InitiateAuthResult initiateAuthResult = cognitoHelper.cognitoRefreshToken(refreshToken, cognitoUserName);
+    private static void copyProfile(User user, UserSession userSession) {
+        userSession.setCognitoUserName(user.getCognitoUserName());
+        userSession.setFirstName(user.getFirstName());
+        userSession.setLastName(user.getLastName());
+    }
 
+    private ConfirmLoginResponseDto completeRefresh(UserSession userSession, InitiateAuthResult initiateAuthResult) {
         // Log the refresh token response
         log.info("Refresh token response: {}", initiateAuthResult);
 
-        // Update user session with the new access token, ID token, and refresh token
-        userSession.setAccessToken(initiateAuthResult.getAuthenticationResult().getAccessToken());
-        userSession.setIdToken(initiateAuthResult.getAuthenticationResult().getIdToken());
-        userSession.setTimeStamp(Instant.ofEpochMilli(System.currentTimeMillis()).atZone(ZoneId.systemDefault()).toLocalDateTime());
-        userSessionDao.updateSession(userSession);
+        // Update user session with the new access token and ID token, the refresh token stays the same
+        LocalDateTime timeStamp = Instant.ofEpochMilli(System.currentTimeMillis()).atZone(ZoneId.systemDefault()).toLocalDateTime();
+        sessionStore.updateSession(UserSession.builder()
+                .id(userSession.getId())
+                .sessionId(userSession.getSessionId())
+                .accessToken(initiateAuthResult.getAuthenticationResult().getAccessToken())
+                .idToken(initiateAuthResult.getAuthenticationResult().getIdToken())
+                .timeStamp(timeStamp)
+                .expiresAt(sessionExpiryPolicy.expiresAt(timeStamp))
+                .build());
 
+        return refreshResponse(userSession, initiateAuthResult.getAuthenticationResult().getAccessToken());
+    }
+
+    private ConfirmLoginResponseDto reuseAccessToken(UserSession userSession) {
+        // Only the idle timestamp moves, the stored tokens stay as they are
+        if (refreshReusePolicy.isTouchIdleTimestamp()) {
+            LocalDateTime timeStamp = Instant.ofEpochMilli(System.currentTimeMillis()).atZone(ZoneId.systemDefault()).toLocalDateTime();
+            sessionStore.updateSession(UserSession.builder()
+                    .id(userSession.getId())
+                    .sessionId(userSession.getSessionId())
+                    .timeStamp(timeStamp)
+                    .expiresAt(sessionExpiryPolicy.expiresAt(timeStamp))
+                    .build());
+        }
+        return refreshResponse(userSession, userSession.getAccessToken());
+    }
+
+    private ConfirmLoginResponseDto refreshResponse(UserSession userSession, String accessToken) {
         // Return the confirmation login response DTO with the updated access token and user information
         return ConfirmLoginResponseDto.builder()
                 .status(AuthConstants.SUCCESS_STATUS)
-                .accessToken(initiateAuthResult.getAuthenticationResult().getAccessToken())
-                .firstName(user.getFirstName())
-                .lastName(user.getLastName())
+                .accessToken(accessToken)
+                .firstName(userSession.getFirstName())
+                .lastName(userSession.getLastName())
                 .build();
     }
 
-    /**
-     * Logs out the user by deleting the user session and performing a global sign-out from Cognito.
-     *
-     * @param accessToken the access token of the user
-     * @param cognitoUserName the Cognito username of the user
-     * @return ConfirmLogoutResponseDto with the status of the logout operation
-     */
-    public ConfirmLogoutResponseDto logout(String accessToken, String cognitoUserName) {
-
-        // Retrieve user and user session from the database
-        User user = userDao.findByCognitoUserName(cognitoUserName);
-        UserSession userSession = userSessionDao.findByPhoneNumber(user.getPhoneNumber());
-
-        // Check if the user session exists
-        if (Objects.isNull(userSession)) throw new UserAlreadyLoggedOutException("User already logged out!");
+    private void deleteSession(String cognitoUserName) {
+        // Delete the user session in one write, the deleted count tells whether there was one
+        long deleted = sessionStore.deleteByCognitoUserName(cognitoUserName);
 
-        // Delete the user session by phone number
-        userSessionDao.deleteByPhoneNumber(user.getPhoneNumber());
+        // Sessions started before the user was copied onto them are deleted by phone number
+        if (deleted == 0) {
+            User user = userDao.findByCognitoUserName(cognitoUserName);
+            if (Objects.nonNull(user)) deleted = sessionStore.deleteByPhoneNumber(user.getPhoneNumber());
+        }
 
-        // Perform global sign out from Cognito
-        cognitoHelper.cognitoGlobalSignOut(accessToken);
+        // Check if the user session existed
+        if (deleted == 0) throw new UserAlreadyLoggedOutException("User already logged out!");
+        sessionStateCache.invalidate(cognitoUserName);
+    }
 
+    private ConfirmLogoutResponseDto logoutResponse() {
         // Return the response with a success status
         return ConfirmLogoutResponseDto.builder()
                 .status(AuthConstants.SUCCESS_STATUS)
                 .build();
     }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
 }
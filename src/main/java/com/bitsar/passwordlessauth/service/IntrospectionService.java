@@ -0,0 +1,89 @@
+package com.bitsar.passwordlessauth.service;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.bitsar.passwordlessauth.dto.request.BatchIntrospectRequestDto;
+import com.bitsar.passwordlessauth.dto.response.BatchIntrospectResponseDto;
+import com.bitsar.passwordlessauth.dto.response.IntrospectResponseDto;
+import com.bitsar.passwordlessauth.exception.InvalidTokenException;
+import com.bitsar.passwordlessauth.helper.JwtVerifier;
+import com.bitsar.passwordlessauth.helper.SessionStateCache;
+import com.bitsar.passwordlessauth.util.JwtUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@Service
+@RequiredArgsConstructor
+public class IntrospectionService {
+
+    private static final IntrospectResponseDto INACTIVE = IntrospectResponseDto.builder().active(false).build();
+
+    private final JwtVerifier jwtVerifier;
+    private final SessionStateCache sessionStateCache;
+    @Value("${introspection.max-batch-size:100}")
+    private int maxBatchSize;
+
+    /**
+     * Tells a downstream service whether an access token is usable. The token is verified locally and the user's
+     * session state comes from a short-lived cache, so no call is made to Cognito.
+     *
+     * @param token the access token, with or without the Bearer prefix
+     * @return the introspection result, inactive for invalid, expired or logged out tokens, and for tokens of an earlier
+     * login
+     */
+    public IntrospectResponseDto introspect(String token) {
+        if (Objects.isNull(token) || token.isBlank()) return INACTIVE;
+
+        DecodedJWT jwt;
+        try {
+            jwt = jwtVerifier.verify(token);
+        } catch (InvalidTokenException e) {
+            return INACTIVE;
+        }
+
+        // A verified token is only active while the user still has the session it was issued to, logout removes it and
+        // a later login replaces it
+        String cognitoUserName = JwtUtil.getUsername(jwt);
+        String presented = JwtUtil.stripBearer(token);
+        SessionStateCache.SessionState sessionState = sessionStateCache.get(cognitoUserName);
+        // The cached state may predate a refresh or login made on another instance
+        if (sessionState.active() && !sessionState.issued(jwt, presented)) sessionState = sessionStateCache.reload(cognitoUserName);
+        if (!sessionState.active() || !sessionState.issued(jwt, presented)) return INACTIVE;
+
+        return IntrospectResponseDto.builder()
+                .active(true)
+                .username(cognitoUserName)
+                .status(sessionState.status())
+                .firstName(sessionState.firstName())
+                .lastName(sessionState.lastName())
+                .expiresAt(jwt.getExpiresAt().getTime() / 1000)
+                .build();
+    }
+
+    /**
+     * Introspects several tokens at once, results are in the order of the request. Repeated tokens are only
+     * introspected once.
+     *
+     * @param batchIntrospectRequestDto the tokens to introspect
+     * @return one result per requested token
+     * @throws IllegalArgumentException if more than the configured maximum number of tokens is requested
+     */
+    public BatchIntrospectResponseDto introspectBatch(BatchIntrospectRequestDto batchIntrospectRequestDto) {
+        List<String> tokens = Objects.requireNonNullElse(batchIntrospectRequestDto.getTokens(), List.of());
+        if (tokens.size() > maxBatchSize)
+            throw new IllegalArgumentException("At most " + maxBatchSize + " tokens can be introspected at once");
+
+        Map<String, IntrospectResponseDto> resultsByToken = new HashMap<>();
+        List<IntrospectResponseDto> results = tokens.stream()
+                .map(token -> resultsByToken.computeIfAbsent(Objects.requireNonNullElse(token, ""), this::introspect))
+                .toList();
+        return BatchIntrospectResponseDto.builder()
+                .results(results)
+                .build();
+    }
+}
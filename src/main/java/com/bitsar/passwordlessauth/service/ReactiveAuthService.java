@@ -0,0 +1,358 @@
+package com.bitsar.passwordlessauth.service;
+
+import com.amazonaws.services.cognitoidp.model.CodeMismatchException;
+import com.amazonaws.services.cognitoidp.model.ConfirmSignUpResult;
+import com.amazonaws.services.cognitoidp.model.InitiateAuthResult;
+import com.amazonaws.services.cognitoidp.model.RespondToAuthChallengeResult;
+import com.bitsar.passwordlessauth.constants.AuthConstants;
+import com.bitsar.passwordlessauth.dao.ReactiveUserSessionDao;
+import com.bitsar.passwordlessauth.dto.request.ConfirmRegisterRequestDto;
+import com.bitsar.passwordlessauth.dto.request.RegisterRequestDto;
+import com.bitsar.passwordlessauth.dto.response.*;
+import com.bitsar.passwordlessauth.entity.User;
+import com.bitsar.passwordlessauth.entity.UserSession;
+import com.bitsar.passwordlessauth.enums.UserStatus;
+import com.bitsar.passwordlessauth.exception.*;
+import com.bitsar.passwordlessauth.helper.CognitoHelper;
+import com.bitsar.passwordlessauth.helper.RefreshReusePolicy;
+import com.bitsar.passwordlessauth.helper.RequestRateLimiter;
+import com.bitsar.passwordlessauth.helper.SessionExpiryPolicy;
+import com.bitsar.passwordlessauth.helper.SessionStateCache;
+import com.bitsar.passwordlessauth.phone.PhoneNumber;
+import com.bitsar.passwordlessauth.phone.PhoneNumberNormalizer;
+import com.bitsar.passwordlessauth.repository.ReactiveUserRepository;
+import com.bitsar.passwordlessauth.repository.ReactiveUserSessionRepository;
+import com.bitsar.passwordlessauth.util.SingleFlight;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Non-blocking counterpart of {@link AuthService} for the "reactive" profile. Mongo is read and written through the
+ * reactive repositories and Cognito through the async client, so a request never holds a thread while waiting on I/O.
+ * The flows, checks and error codes are the same as in {@link AuthService}.
+ */
+@Slf4j
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveAuthService {
+
+    private final CognitoHelper cognitoHelper;
+    private final ReactiveUserRepository userRepository;
+    private final ReactiveUserSessionRepository userSessionRepository;
+    private final ReactiveUserSessionDao userSessionDao;
+    private final SessionStateCache sessionStateCache;
+    private final RefreshReusePolicy refreshReusePolicy;
+    private final RequestRateLimiter requestRateLimiter;
+    private final SessionExpiryPolicy sessionExpiryPolicy;
+    private final PhoneNumberNormalizer phoneNumberNormalizer;
+    // Concurrent refreshes or logouts of the same user share one Cognito call and one session write
+    private final SingleFlight<String, ConfirmLoginResponseDto> refreshFlights = new SingleFlight<>();
+    private final SingleFlight<String, ConfirmLogoutResponseDto> logoutFlights = new SingleFlight<>();
+
+    /**
+     * Registers a user with the provided phone number, or resends the confirmation code to a user who has not
+     * confirmed yet.
+     *
+     * @param registerRequestDto The request object containing the user's phone number.
+     * @return A Mono emitting the registration response.
+     */
+    public Mono<RegisterResponseDto> signUp(RegisterRequestDto registerRequestDto) {
+        return Mono.defer(() -> {
+            PhoneNumber phoneNumber = validatePhoneNumber(registerRequestDto.getPhoneNumber());
+            return requestRateLimiter.checkPhoneNumberReactive(phoneNumber.e164())
+                    .then(findUserForSignUp(phoneNumber))
+                    // Resend confirmation code if user already exists
+                    .flatMap(user -> Mono.fromFuture(() -> cognitoHelper.cognitoResendConfirmCodeAsync(user.getPhoneNumber()))
+                            .thenReturn(registerResponse(user.getCognitoUserName())))
+                    // Sign up user if not already registered
+                    .switchIfEmpty(Mono.defer(() -> Mono.fromFuture(() -> cognitoHelper.cognitoSignUpAsync(phoneNumber))
+                            .flatMap(signUpResult -> userRepository.save(newUser(registerRequestDto, phoneNumber, signUpResult.getUserSub())))
+                            .map(user -> registerResponse(user.getCognitoUserName()))));
+        });
+    }
+
+    /**
+     * Confirms user sign up with the provided confirmation code. A wrong code resends a new one.
+     *
+     * @param confirmRegisterRequestDto the request containing the session id and confirmation code
+     * @return a Mono emitting the confirmation response
+     */
+    public Mono<ConfirmRegisterResponseDto> confirmSignUp(ConfirmRegisterRequestDto confirmRegisterRequestDto) {
+        return findUserForConfirmSignUp(confirmRegisterRequestDto.getSessionId())
+                .flatMap(user -> Mono.fromFuture(() -> cognitoHelper.cognitoConfirmSignUpAsync(confirmRegisterRequestDto.getConfirmationCode(), user.getPhoneNumber()))
+                        .onErrorResume(CodeMismatchException.class, e -> requestRateLimiter.checkPhoneNumberReactive(user.getPhoneNumber())
+                                .then(Mono.fromFuture(() -> cognitoHelper.cognitoResendConfirmCodeAsync(user.getPhoneNumber())))
+                                .then(Mono.error(new IncorrectOTPException("Wrong OTP passed"))))
+                        .flatMap(confirmSignUpResult -> completeConfirmSignUp(user, confirmSignUpResult)));
+    }
+
+    /**
+     * Signs in a user with the given phone number.
+     *
+     * @param phoneNumber the phone number to sign in with
+     * @return a Mono emitting the login response with the session id
+     */
+    public Mono<LoginResponseDto> signIn(String phoneNumber) {
+        return Mono.defer(() -> {
+            PhoneNumber validPhoneNumber = validatePhoneNumber(phoneNumber);
+            return requestRateLimiter.checkPhoneNumberReactive(validPhoneNumber.e164())
+                    .then(findUserForSignIn(validPhoneNumber))
+                    .flatMap(user -> Mono.fromFuture(() -> cognitoHelper.cognitoSignInAsync(validPhoneNumber.e164()))
+                            .flatMap(initiateAuthResult -> createLoginSession(user, initiateAuthResult)));
+        });
+    }
+
+    /**
+     * Confirms user sign-in with session ID and OTP. A wrong OTP starts a new login session.
+     *
+     * @param sessionId the session ID
+     * @param otp the one-time password
+     * @return a Mono emitting the confirmation response with the access token
+     */
+    public Mono<ConfirmLoginResponseDto> confirmSignIn(String sessionId, String otp) {
+        return findLoginSession(sessionId)
+                .flatMap(userSession -> Mono.fromFuture(() -> cognitoHelper.respondToMFAChallengeAsync(userSession.getPhoneNumber(), otp, userSession.getSession()))
+                        .onErrorResume(CodeMismatchException.class, e -> signIn(userSession.getPhoneNumber())
+                                .flatMap(loginResponseDto -> Mono.error(new IncorrectOTPException("Wrong OTP passed, new session created : " + loginResponseDto.getSessionId()))))
+                        .flatMap(respondToAuthChallengeResult -> completeLogin(userSession, respondToAuthChallengeResult)));
+    }
+
+    /**
+     * Refreshes the user's access token, or hands back the stored one while it is still fresh enough.
+     * Concurrent refreshes of the same user are coalesced and all subscribers get the same result.
+     *
+     * @param cognitoUserName the Cognito username of the user
+     * @return a Mono emitting the access token and user information
+     */
+    public Mono<ConfirmLoginResponseDto> refreshToken(String cognitoUserName) {
+        // Cancellation is suppressed, one subscriber going away must not cancel the flight the others are waiting on
+        return Mono.fromFuture(() -> refreshFlights.executeAsync(cognitoUserName, () -> findRefreshableSession(cognitoUserName)
+                .flatMap(userSession -> refreshReusePolicy.canReuse(userSession)
+                        ? reuseAccessToken(userSession)
+                        : Mono.fromFuture(() -> cognitoHelper.cognitoRefreshTokenAsync(userSession.getRefreshToken(), cognitoUserName))
+                                .flatMap(initiateAuthResult -> completeRefresh(userSession, initiateAuthResult)))
+                .toFuture()), true);
+    }
+
+    /**
+     * Logs out the user by deleting the user session and performing a global sign-out from Cognito.
+     * Concurrent logouts of the same user are coalesced and all subscribers get the same result.
+     *
+     * @param accessToken the access token of the user
+     * @param cognitoUserName the Cognito username of the user
+     * @return a Mono emitting the logout response once Cognito has signed the user out
+     */
+    public Mono<ConfirmLogoutResponseDto> logout(String accessToken, String cognitoUserName) {
+        return Mono.fromFuture(() -> logoutFlights.executeAsync(cognitoUserName, () -> deleteSession(cognitoUserName)
+                .then(Mono.fromFuture(() -> cognitoHelper.cognitoGlobalSignOutAsync(accessToken)))
+                .thenReturn(logoutResponse())
+                .toFuture()), true);
+    }
+
+    private PhoneNumber validatePhoneNumber(String phoneNumber) {
+        // Normalize the phone number to E.164, null when it is not valid
+        PhoneNumber validPhoneNumber = phoneNumberNormalizer.normalize(phoneNumber);
+        if (Objects.isNull(validPhoneNumber))
+            throw new InvalidPhoneNumberFormatException("Phone number is not valid");
+        return validPhoneNumber;
+    }
+
+    private Mono<User> findUserForSignUp(PhoneNumber phoneNumber) {
+        // Check if user already exists
+        return userRepository.findByPhoneNumber(phoneNumber.e164())
+                .flatMap(user -> user.getStatus().equals(UserStatus.NEW)
+                        ? Mono.just(user)
+                        : Mono.error(new PhoneNumberAlreadyExistsException("Phone number already exists")));
+    }
+
+    private User newUser(RegisterRequestDto registerRequestDto, PhoneNumber phoneNumber, String cognitoUserName) {
+        return User.builder()
+                .cognitoUserName(cognitoUserName)
+                .firstName(registerRequestDto.getFirstName())
+                .lastName(registerRequestDto.getLastName())
+                .phoneNumber(phoneNumber.e164())
+                .status(UserStatus.NEW)
+                .build();
+    }
+
+    private RegisterResponseDto registerResponse(String sessionId) {
+        // Return response indicating successful registration
+        return RegisterResponseDto.builder()
+                .status(AuthConstants.SUCCESS_STATUS)
+                .sessionId(sessionId)
+                .build();
+    }
+
+    private Mono<User> findUserForConfirmSignUp(String cognitoUserName) {
+        // Fail if user is not found
+        return userRepository.findByCognitoUserName(cognitoUserName)
+                .switchIfEmpty(Mono.error(() -> new InvalidRegistrationSessionException("Invalid registration session")));
+    }
+
+    private Mono<ConfirmRegisterResponseDto> completeConfirmSignUp(User user, ConfirmSignUpResult confirmSignUpResult) {
+        log.info("Confirm sign up response: {}", confirmSignUpResult);
+        ConfirmRegisterResponseDto confirmRegisterResponseDto = ConfirmRegisterResponseDto.builder()
+                .status(confirmSignUpResult.getSdkHttpMetadata().getHttpStatusCode())
+                .build();
+
+        // If confirmation is successful, update user status and save to database
+        if (confirmSignUpResult.getSdkHttpMetadata().getHttpStatusCode() != 200) return Mono.just(confirmRegisterResponseDto);
+        user.setStatus(UserStatus.VERIFIED);
+        return userRepository.save(user)
+                // Keep the copy of the user's name on its session in sync
+                .flatMap(userSessionDao::updateProfile)
+                .thenReturn(confirmRegisterResponseDto);
+    }
+
+    private Mono<User> findUserForSignIn(PhoneNumber phoneNumber) {
+        // Fail if user is missing or in new status
+        return userRepository.findByPhoneNumber(phoneNumber.e164())
+                .filter(user -> !user.getStatus().equals(UserStatus.NEW))
+                .switchIfEmpty(Mono.error(() -> new NotAuthorizedToLoginException("Phone number is not authorized to login")));
+    }
+
+    private Mono<LoginResponseDto> createLoginSession(User user, InitiateAuthResult initiateAuthResult) {
+        log.info("Login response: {}", initiateAuthResult);
+
+        // Replace any previous session of the user, with a copy of the user's name, and return the session id
+        return userSessionDao.findAndUpdateAndSaveSession(UserSession.builder()
+                        .session(initiateAuthResult.getSession())
+                        .phoneNumber(user.getPhoneNumber())
+                        .cognitoUserName(user.getCognitoUserName())
+                        .firstName(user.getFirstName())
+                        .lastName(user.getLastName())
+                        .expiresAt(sessionExpiryPolicy.expiresAt(LocalDateTime.now()))
+                        .build())
+                .map(userSession -> LoginResponseDto.builder()
+                        .status(AuthConstants.SUCCESS_STATUS)
+                        .sessionId(userSession.getSessionId())
+                        .build());
+    }
+
+    private Mono<UserSession> findLoginSession(String sessionId) {
+        return userSessionRepository.findBySessionId(sessionId)
+                .switchIfEmpty(Mono.error(() -> new InvalidSessionException("Invalid session")));
+    }
+
+    private Mono<ConfirmLoginResponseDto> completeLogin(UserSession userSession, RespondToAuthChallengeResult respondToAuthChallengeResult) {
+        // Sessions started before the user was copied onto them get the copy now
+        Mono<UserSession> withProfile = Objects.nonNull(userSession.getCognitoUserName())
+                ? Mono.just(userSession)
+                : userRepository.findByPhoneNumber(userSession.getPhoneNumber()).map(user -> copyProfile(user, userSession));
+
+        // Update user session with access token, ID token, and refresh token
+        LocalDateTime timeStamp = LocalDateTime.now();
+        return withProfile.flatMap(session -> userSessionDao.updateSession(UserSession.builder()
+                                .id(session.getId())
+                                .sessionId(session.getSessionId())
+                                .accessToken(respondToAuthChallengeResult.getAuthenticationResult().getAccessToken())
+                                .idToken(respondToAuthChallengeResult.getAuthenticationResult().getIdToken())
+                                .refreshToken(respondToAuthChallengeResult.getAuthenticationResult().getRefreshToken())
+                                .timeStamp(timeStamp)
+                                .expiresAt(sessionExpiryPolicy.expiresAt(timeStamp))
+                                .cognitoUserName(session.getCognitoUserName())
+                                .firstName(session.getFirstName())
+                                .lastName(session.getLastName())
+                                .build())
+                        // Drop the cached session state so introspection sees the new session
+                        .then(Mono.fromRunnable(() -> sessionStateCache.invalidate(session.getCognitoUserName())))
+                        .thenReturn(ConfirmLoginResponseDto.builder()
+                                .status(AuthConstants.SUCCESS_STATUS)
+                                .accessToken(respondToAuthChallengeResult.getAuthenticationResult().getAccessToken())
+                                .firstName(session.getFirstName())
+                                .lastName(session.getLastName())
+                                .build()));
+    }
+
+    private Mono<UserSession> findRefreshableSession(String cognitoUserName) {
+        return userSessionRepository.findByCognitoUserName(cognitoUserName)
+                .switchIfEmpty(Mono.defer(() -> findSessionThroughUser(cognitoUserName)))
+                .switchIfEmpty(Mono.error(() -> new UserAlreadyLoggedOutException("User already logged out!")))
+                // Check if the session has expired, the TTL index may not have purged it yet
+                .flatMap(userSession -> sessionExpiryPolicy.isExpired(userSession)
+                        ? Mono.error(new IdleTimeExpiredException("Session Expired! Please login again"))
+                        : Mono.just(userSession));
+    }
+
+    /**
+     * Finds a session started before the user was copied onto sessions, by the phone number of the user, and copies the
+     * user onto it so the next lookup finds it by Cognito username.
+     */
+    private Mono<UserSession> findSessionThroughUser(String cognitoUserName) {
+        return userRepository.findByCognitoUserName(cognitoUserName)
+                .flatMap(user -> userSessionRepository.findByPhoneNumber(user.getPhoneNumber())
+                        .flatMap(userSession -> userSessionDao.updateProfile(user).thenReturn(copyProfile(user, userSession))));
+    }
+
+    private static UserSession copyProfile(User user, UserSession userSession) {
+        userSession.setCognitoUserName(user.getCognitoUserName());
+        userSession.setFirstName(user.getFirstName());
+        userSession.setLastName(user.getLastName());
+        return userSession;
+    }
+
+    private Mono<ConfirmLoginResponseDto> completeRefresh(UserSession userSession, InitiateAuthResult initiateAuthResult) {
+        log.info("Refresh token response: {}", initiateAuthResult);
+
+        // Update user session with the new access token and ID token, the refresh token stays the same
+        LocalDateTime timeStamp = LocalDateTime.now();
+        return userSessionDao.updateSession(UserSession.builder()
+                        .id(userSession.getId())
+                        .sessionId(userSession.getSessionId())
+                        .accessToken(initiateAuthResult.getAuthenticationResult().getAccessToken())
+                        .idToken(initiateAuthResult.getAuthenticationResult().getIdToken())
+                        .timeStamp(timeStamp)
+                        .expiresAt(sessionExpiryPolicy.expiresAt(timeStamp))
+                        .build())
+                .thenReturn(refreshResponse(userSession, initiateAuthResult.getAuthenticationResult().getAccessToken()));
+    }
+
+    private Mono<ConfirmLoginResponseDto> reuseAccessToken(UserSession userSession) {
+        ConfirmLoginResponseDto confirmLoginResponseDto = refreshResponse(userSession, userSession.getAccessToken());
+        // Only the idle timestamp moves, the stored tokens stay as they are
+        if (!refreshReusePolicy.isTouchIdleTimestamp()) return Mono.just(confirmLoginResponseDto);
+        LocalDateTime timeStamp = LocalDateTime.now();
+        return userSessionDao.updateSession(UserSession.builder()
+                        .id(userSession.getId())
+                        .sessionId(userSession.getSessionId())
+                        .timeStamp(timeStamp)
+                        .expiresAt(sessionExpiryPolicy.expiresAt(timeStamp))
+                        .build())
+                .thenReturn(confirmLoginResponseDto);
+    }
+
+    private ConfirmLoginResponseDto refreshResponse(UserSession userSession, String accessToken) {
+        return ConfirmLoginResponseDto.builder()
+                .status(AuthConstants.SUCCESS_STATUS)
+                .accessToken(accessToken)
+                .firstName(userSession.getFirstName())
+                .lastName(userSession.getLastName())
+                .build();
+    }
+
+    private Mono<Void> deleteSession(String cognitoUserName) {
+        // Delete the user session in one write, the deleted count tells whether there was one
+        return userSessionRepository.deleteAllByCognitoUserName(cognitoUserName)
+                // Sessions started before the user was copied onto them are deleted by phone number
+                .flatMap(deleted -> deleted > 0 ? Mono.just(deleted) : userRepository.findByCognitoUserName(cognitoUserName)
+                        .flatMap(user -> userSessionRepository.deleteAllByPhoneNumber(user.getPhoneNumber()))
+                        .defaultIfEmpty(0L))
+                .filter(deleted -> deleted > 0)
+                .switchIfEmpty(Mono.error(() -> new UserAlreadyLoggedOutException("User already logged out!")))
+                .doOnSuccess(ignored -> sessionStateCache.invalidate(cognitoUserName))
+                .then();
+    }
+
+    private ConfirmLogoutResponseDto logoutResponse() {
+        return ConfirmLogoutResponseDto.builder()
+                .status(AuthConstants.SUCCESS_STATUS)
+                .build();
+    }
+}
@@ -0,0 +1,294 @@
+package com.bitsar.passwordlessauth.service;
+
+import com.amazonaws.services.cognitoidp.model.AdminCreateUserResult;
+import com.amazonaws.services.cognitoidp.model.AttributeType;
+import com.amazonaws.services.cognitoidp.model.UsernameExistsException;
+import com.bitsar.passwordlessauth.dao.UserDao;
+import com.bitsar.passwordlessauth.dto.request.RegisterRequestDto;
+import com.bitsar.passwordlessauth.dto.response.UserImportJobResponseDto;
+import com.bitsar.passwordlessauth.entity.User;
+import com.bitsar.passwordlessauth.enums.ImportFormat;
+import com.bitsar.passwordlessauth.enums.ImportJobStatus;
+import com.bitsar.passwordlessauth.enums.UserStatus;
+import com.bitsar.passwordlessauth.exception.ImportJobNotFoundException;
+import com.bitsar.passwordlessauth.exception.ImportQueueFullException;
+import com.bitsar.passwordlessauth.exception.ImportTooLargeException;
+import com.bitsar.passwordlessauth.exception.UnsupportedImportFormatException;
+import com.bitsar.passwordlessauth.helper.CognitoHelper;
+import com.bitsar.passwordlessauth.importer.UserImportJob;
+import com.bitsar.passwordlessauth.importer.UserImportReader;
+import com.bitsar.passwordlessauth.importer.UserImportReader.ImportRow;
+import com.bitsar.passwordlessauth.phone.PhoneNumber;
+import com.bitsar.passwordlessauth.phone.PhoneNumberNormalizer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+@Slf4j
+@Service
+public class UserImportService {
+
+    private final UserDao userDao;
+    private final CognitoHelper cognitoHelper;
+    private final PhoneNumberNormalizer phoneNumberNormalizer;
+    private final Path spoolDirectory;
+    private final int batchSize;
+    private final int maxReportedErrors;
+    private final long maxBodyBytes;
+    private final Semaphore jobSlots;
+    private final RateLimiter cognitoRateLimiter;
+    private final ExecutorService jobExecutor;
+    private final ExecutorService cognitoExecutor;
+    private final Cache<String, UserImportJob> jobs;
+
+    public UserImportService(UserDao userDao,
+                             CognitoHelper cognitoHelper,
+                             PhoneNumberNormalizer phoneNumberNormalizer,
+                             @Value("${user-import.spool-directory:${java.io.tmpdir}/user-import}") String spoolDirectory,
+                             @Value("${user-import.batch-size:500}") int batchSize,
+                             @Value("${user-import.max-reported-errors:1000}") int maxReportedErrors,
+                             @Value("${user-import.max-body-bytes:104857600}") long maxBodyBytes,
+                             @Value("${user-import.max-concurrent-jobs:1}") int maxConcurrentJobs,
+                             @Value("${user-import.max-queued-jobs:4}") int maxQueuedJobs,
+                             @Value("${user-import.job-retention-hours:24}") long jobRetentionHours,
+                             @Value("${user-import.cognito.rate-per-second:20}") int cognitoRatePerSecond,
+                             @Value("${user-import.cognito.max-concurrency:8}") int cognitoMaxConcurrency) {
+        this.userDao = userDao;
+        this.cognitoHelper = cognitoHelper;
+        this.phoneNumberNormalizer = phoneNumberNormalizer;
+        this.spoolDirectory = Path.of(spoolDirectory);
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+        this.maxBodyBytes = maxBodyBytes;
+        // Running and queued jobs, each one holds a spooled body on disk until it finishes
+        this.jobSlots = new Semaphore(maxConcurrentJobs + maxQueuedJobs);
+        // Shared by every job, the admin API quota belongs to the user pool and not to a single import
+        this.cognitoRateLimiter = RateLimiter.of("cognito-user-import", RateLimiterConfig.custom()
+                .limitForPeriod(cognitoRatePerSecond)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(Duration.ofMinutes(1))
+                .build());
+        this.jobExecutor = Executors.newFixedThreadPool(maxConcurrentJobs);
+        this.cognitoExecutor = Executors.newFixedThreadPool(cognitoMaxConcurrency);
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofHours(jobRetentionHours))
+                .build();
+    }
+
+    /**
+     * Accepts a bulk import. The body is spooled to disk while the request is open, the import itself runs in the
+     * background and its progress is read with {@link #getJob(String)}.
+     *
+     * @param body        the NDJSON or CSV request body
+     * @param contentType the content type of the body
+     * @return the queued job
+     * @throws UnsupportedImportFormatException if the body is neither NDJSON nor CSV
+     * @throws ImportQueueFullException         if the running and queued jobs already fill every slot
+     * @throws ImportTooLargeException          if the body is larger than {@code user-import.max-body-bytes}
+     */
+    public UserImportJobResponseDto submit(InputStream body, String contentType) {
+        ImportFormat format = importFormat(contentType);
+        // Taken before spooling, a full queue rejects the body without writing it
+        if (!jobSlots.tryAcquire()) throw new ImportQueueFullException("Too many imports are queued, retry once one completes");
+        try {
+            String jobId = UUID.randomUUID().toString();
+            Path file = spool(body, jobId);
+
+            UserImportJob job = new UserImportJob(jobId, file, format, maxReportedErrors);
+            jobs.put(jobId, job);
+            jobExecutor.execute(() -> run(job));
+            return job.toResponse();
+        } catch (RuntimeException e) {
+            jobSlots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the progress of an import.
+     *
+     * @param jobId the id returned when the import was submitted
+     * @return the progress and the first row errors
+     * @throws ImportJobNotFoundException if the job is unknown or its retention has passed
+     */
+    public UserImportJobResponseDto getJob(String jobId) {
+        UserImportJob job = jobs.getIfPresent(jobId);
+        if (Objects.isNull(job)) throw new ImportJobNotFoundException("Import job not found");
+        return job.toResponse();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        cognitoExecutor.shutdownNow();
+    }
+
+    private void run(UserImportJob job) {
+        job.start();
+        // Phone numbers seen earlier in the same file, a later row with the same number is a duplicate
+        Set<String> seenPhoneNumbers = new HashSet<>();
+        ImportJobStatus status = ImportJobStatus.FAILED;
+        try (UserImportReader reader = new UserImportReader(job.getFile(), job.getFormat())) {
+            List<ImportRow> rows;
+            while (!(rows = reader.nextBatch(batchSize)).isEmpty()) {
+                job.rowsRead(rows.size());
+                importBatch(job, rows, seenPhoneNumbers);
+            }
+            status = ImportJobStatus.COMPLETED;
+            log.info("User import {} completed", job.getJobId());
+        } catch (Exception e) {
+            log.error("User import {} failed", job.getJobId(), e);
+        } finally {
+            // File and slot are released before the job reads as finished, a client may resubmit right away
+            deleteQuietly(job.getFile());
+            jobSlots.release();
+            job.finish(status);
+        }
+    }
+
+    private void importBatch(UserImportJob job, List<ImportRow> rows, Set<String> seenPhoneNumbers) {
+        // Validate rows and drop duplicates within the file
+        List<ImportRow> candidates = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            if (Objects.nonNull(row.parseError())) {
+                job.failed(row.rowNumber(), null, row.parseError());
+                continue;
+            }
+            PhoneNumber phoneNumber = phoneNumberNormalizer.normalize(row.user().getPhoneNumber());
+            if (Objects.isNull(phoneNumber)) {
+                job.failed(row.rowNumber(), row.user().getPhoneNumber(), "Phone number is not valid");
+            } else if (!seenPhoneNumbers.add(phoneNumber.e164())) {
+                job.duplicate();
+            } else {
+                // Rows are keyed by the E.164 form from here on, however the number was written in the file
+                row.user().setPhoneNumber(phoneNumber.e164());
+                candidates.add(row);
+            }
+        }
+        if (candidates.isEmpty()) return;
+
+        // One $in lookup for the whole batch instead of one query per row
+        Set<String> existingPhoneNumbers = userDao.findExistingPhoneNumbers(candidates.stream()
+                .map(row -> row.user().getPhoneNumber())
+                .toList());
+        List<ImportRow> newRows = new ArrayList<>(candidates.size());
+        for (ImportRow row : candidates) {
+            if (existingPhoneNumbers.contains(row.user().getPhoneNumber())) job.duplicate();
+            else newRows.add(row);
+        }
+
+        // Provision in Cognito with bounded concurrency, then write the batch with a single unordered bulk insert
+        List<CompletableFuture<User>> provisioning = newRows.stream()
+                .map(row -> CompletableFuture.supplyAsync(() -> provision(job, row), cognitoExecutor))
+                .toList();
+        List<ImportRow> provisionedRows = new ArrayList<>(newRows.size());
+        List<User> users = new ArrayList<>(newRows.size());
+        for (int i = 0; i < newRows.size(); i++) {
+            User user = provisioning.get(i).join();
+            if (Objects.isNull(user)) continue;
+            provisionedRows.add(newRows.get(i));
+            users.add(user);
+        }
+
+        Map<Integer, String> failures = userDao.bulkInsert(users);
+        failures.forEach((index, message) -> job.failed(provisionedRows.get(index).rowNumber(), users.get(index).getPhoneNumber(),
+                "Created in Cognito but not saved: " + message));
+        job.imported(users.size() - failures.size());
+    }
+
+    /**
+     * Creates the user in Cognito, waiting for a permit of the shared rate limiter first.
+     *
+     * @return the user document to insert, or null if provisioning failed and the row error was recorded
+     */
+    private User provision(UserImportJob job, ImportRow row) {
+        RegisterRequestDto registerRequestDto = row.user();
+        String username = registerRequestDto.getPhoneNumber();
+        try {
+            RateLimiter.waitForPermission(cognitoRateLimiter);
+            AdminCreateUserResult adminCreateUserResult = cognitoHelper.cognitoAdminCreateUser(username);
+            cognitoHelper.cognitoAdminSetUserPassword(username);
+
+            String sub = adminCreateUserResult.getUser().getAttributes().stream()
+                    .filter(attribute -> "sub".equals(attribute.getName()))
+                    .map(AttributeType::getValue)
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Cognito did not return a sub"));
+            return User.builder()
+                    .cognitoUserName(sub)
+                    .firstName(registerRequestDto.getFirstName())
+                    .lastName(registerRequestDto.getLastName())
+                    .phoneNumber(username)
+                    .status(UserStatus.VERIFIED)
+                    .build();
+        } catch (UsernameExistsException e) {
+            job.failed(row.rowNumber(), username, "Phone number already exists in Cognito");
+        } catch (RuntimeException e) {
+            job.failed(row.rowNumber(), username, e.getMessage());
+        }
+        return null;
+    }
+
+    private static ImportFormat importFormat(String contentType) {
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            for (ImportFormat format : ImportFormat.values()) {
+                if (MediaType.parseMediaType(format.getContentType()).includes(mediaType)) return format;
+            }
+        } catch (IllegalArgumentException e) {
+            log.debug("Unparseable import content type {}", contentType);
+        }
+        throw new UnsupportedImportFormatException("Import body must be application/x-ndjson or text/csv");
+    }
+
+    private Path spool(InputStream body, String jobId) {
+        try {
+            Files.createDirectories(spoolDirectory);
+            Path file = spoolDirectory.resolve(jobId);
+            long copied = 0;
+            try (OutputStream out = Files.newOutputStream(file)) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = body.read(buffer)) != -1) {
+                    copied += read;
+                    if (copied > maxBodyBytes) break;
+                    out.write(buffer, 0, read);
+                }
+            }
+            if (copied > maxBodyBytes) {
+                deleteQuietly(file);
+                throw new ImportTooLargeException("Import body is larger than " + maxBodyBytes + " bytes");
+            }
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to store import body", e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Unable to delete import file {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.bitsar.passwordlessauth.simulator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Replaces the AWS Cognito client with {@link SimulatedCognitoIdentityProvider} under the "simulated" profile.
+ * The simulator implements the async API too, so it also backs the "async" and "reactive" profiles.
+ */
+@Configuration
+@Profile("simulated")
+@EnableConfigurationProperties(SimulatedCognitoProperties.class)
+public class SimulatedCognitoConfig {
+
+    @Bean
+    public SimulatedTokenSigner simulatedTokenSigner(SimulatedCognitoProperties properties, @Value("${cognito.clientId}") String clientId) {
+        return new SimulatedTokenSigner(properties, clientId);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public SimulatedCognitoIdentityProvider simulatedCognitoClient(SimulatedCognitoProperties properties, SimulatedTokenSigner simulatedTokenSigner) {
+        return new SimulatedCognitoIdentityProvider(properties, simulatedTokenSigner);
+    }
+}
@@ -0,0 +1,378 @@
+package com.bitsar.passwordlessauth.simulator;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.AmazonWebServiceResult;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.http.SdkHttpMetadata;
+import com.amazonaws.services.cognitoidp.AbstractAWSCognitoIdentityProviderAsync;
+import com.amazonaws.services.cognitoidp.model.*;
+import com.auth0.jwt.JWT;
+import com.bitsar.passwordlessauth.enums.CognitoOperation;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import static com.bitsar.passwordlessauth.enums.CognitoOperation.*;
+
+/**
+ * In-memory stand-in for the Cognito user pool operations used by the service, for load tests and offline runs.
+ * OTPs are deterministic (see {@link #otpFor(String)}), tokens are RS256 JWTs signed by {@link SimulatedTokenSigner}
+ * and every call is delayed according to the configured latency distribution of its operation.
+ */
+@Slf4j
+public class SimulatedCognitoIdentityProvider extends AbstractAWSCognitoIdentityProviderAsync {
+
+    private static final String SERVICE_NAME = "AWSCognitoIdentityProviderService";
+
+    private final SimulatedCognitoProperties properties;
+    private final SimulatedLatency latency;
+    private final SimulatedTokenSigner tokenSigner;
+    private final ScheduledExecutorService scheduler;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final Map<String, SimulatedUser> usersByUsername = new ConcurrentHashMap<>();
+    private final Map<String, PendingChallenge> pendingChallenges = new ConcurrentHashMap<>();
+    private final Map<String, RefreshGrant> refreshGrants = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> refreshTokensBySub = new ConcurrentHashMap<>();
+
+    public SimulatedCognitoIdentityProvider(SimulatedCognitoProperties properties, SimulatedTokenSigner tokenSigner) {
+        this.properties = properties;
+        this.latency = new SimulatedLatency(properties);
+        this.tokenSigner = tokenSigner;
+        this.scheduler = Executors.newScheduledThreadPool(properties.getSchedulerThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "simulated-cognito");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::purgeExpired, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * The OTP the simulator expects for a user: the configured fixed OTP, or the last six digits of the phone number.
+     *
+     * @param username the Cognito username, which is the phone number in E.164 format
+     * @return the OTP accepted for the user
+     */
+    public String otpFor(String username) {
+        if (properties.getFixedOtp() != null && !properties.getFixedOtp().isBlank()) return properties.getFixedOtp();
+        StringBuilder digits = new StringBuilder(6);
+        for (int i = username.length() - 1; i >= 0 && digits.length() < 6; i--) {
+            char c = username.charAt(i);
+            if (c >= '0' && c <= '9') digits.append(c);
+        }
+        while (digits.length() < 6) digits.append('0');
+        return digits.reverse().toString();
+    }
+
+    public SimulatedTokenSigner getTokenSigner() {
+        return tokenSigner;
+    }
+
+    @Override
+    public SignUpResult signUp(SignUpRequest request) {
+        return respond(SIGN_UP, () -> doSignUp(request));
+    }
+
+    @Override
+    public Future<SignUpResult> signUpAsync(SignUpRequest request, AsyncHandler<SignUpRequest, SignUpResult> asyncHandler) {
+        return respondAsync(SIGN_UP, request, () -> doSignUp(request), asyncHandler);
+    }
+
+    @Override
+    public ConfirmSignUpResult confirmSignUp(ConfirmSignUpRequest request) {
+        return respond(CONFIRM_SIGN_UP, () -> doConfirmSignUp(request));
+    }
+
+    @Override
+    public Future<ConfirmSignUpResult> confirmSignUpAsync(ConfirmSignUpRequest request, AsyncHandler<ConfirmSignUpRequest, ConfirmSignUpResult> asyncHandler) {
+        return respondAsync(CONFIRM_SIGN_UP, request, () -> doConfirmSignUp(request), asyncHandler);
+    }
+
+    @Override
+    public ResendConfirmationCodeResult resendConfirmationCode(ResendConfirmationCodeRequest request) {
+        return respond(RESEND_CONFIRMATION_CODE, () -> doResendConfirmationCode(request));
+    }
+
+    @Override
+    public Future<ResendConfirmationCodeResult> resendConfirmationCodeAsync(ResendConfirmationCodeRequest request, AsyncHandler<ResendConfirmationCodeRequest, ResendConfirmationCodeResult> asyncHandler) {
+        return respondAsync(RESEND_CONFIRMATION_CODE, request, () -> doResendConfirmationCode(request), asyncHandler);
+    }
+
+    @Override
+    public InitiateAuthResult initiateAuth(InitiateAuthRequest request) {
+        return respond(INITIATE_AUTH, () -> doInitiateAuth(request));
+    }
+
+    @Override
+    public Future<InitiateAuthResult> initiateAuthAsync(InitiateAuthRequest request, AsyncHandler<InitiateAuthRequest, InitiateAuthResult> asyncHandler) {
+        return respondAsync(INITIATE_AUTH, request, () -> doInitiateAuth(request), asyncHandler);
+    }
+
+    @Override
+    public RespondToAuthChallengeResult respondToAuthChallenge(RespondToAuthChallengeRequest request) {
+        return respond(RESPOND_TO_AUTH_CHALLENGE, () -> doRespondToAuthChallenge(request));
+    }
+
+    @Override
+    public Future<RespondToAuthChallengeResult> respondToAuthChallengeAsync(RespondToAuthChallengeRequest request, AsyncHandler<RespondToAuthChallengeRequest, RespondToAuthChallengeResult> asyncHandler) {
+        return respondAsync(RESPOND_TO_AUTH_CHALLENGE, request, () -> doRespondToAuthChallenge(request), asyncHandler);
+    }
+
+    @Override
+    public GlobalSignOutResult globalSignOut(GlobalSignOutRequest request) {
+        return respond(GLOBAL_SIGN_OUT, () -> doGlobalSignOut(request));
+    }
+
+    @Override
+    public Future<GlobalSignOutResult> globalSignOutAsync(GlobalSignOutRequest request, AsyncHandler<GlobalSignOutRequest, GlobalSignOutResult> asyncHandler) {
+        return respondAsync(GLOBAL_SIGN_OUT, request, () -> doGlobalSignOut(request), asyncHandler);
+    }
+
+    @Override
+    public AdminCreateUserResult adminCreateUser(AdminCreateUserRequest request) {
+        return respond(ADMIN_CREATE_USER, () -> doAdminCreateUser(request));
+    }
+
+    @Override
+    public Future<AdminCreateUserResult> adminCreateUserAsync(AdminCreateUserRequest request, AsyncHandler<AdminCreateUserRequest, AdminCreateUserResult> asyncHandler) {
+        return respondAsync(ADMIN_CREATE_USER, request, () -> doAdminCreateUser(request), asyncHandler);
+    }
+
+    @Override
+    public AdminSetUserPasswordResult adminSetUserPassword(AdminSetUserPasswordRequest request) {
+        return respond(ADMIN_SET_USER_PASSWORD, () -> doAdminSetUserPassword(request));
+    }
+
+    @Override
+    public Future<AdminSetUserPasswordResult> adminSetUserPasswordAsync(AdminSetUserPasswordRequest request, AsyncHandler<AdminSetUserPasswordRequest, AdminSetUserPasswordResult> asyncHandler) {
+        return respondAsync(ADMIN_SET_USER_PASSWORD, request, () -> doAdminSetUserPassword(request), asyncHandler);
+    }
+
+    @Override
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private SignUpResult doSignUp(SignUpRequest request) {
+        String username = request.getUsername();
+        SimulatedUser user = new SimulatedUser(username, subFor(username));
+        if (usersByUsername.putIfAbsent(username, user) != null) {
+            throw clientError(new UsernameExistsException("User already exists"));
+        }
+        log.debug("Simulated sign up for {}, confirmation code {}", username, otpFor(username));
+        return ok(new SignUpResult().withUserSub(user.sub).withUserConfirmed(false));
+    }
+
+    private ConfirmSignUpResult doConfirmSignUp(ConfirmSignUpRequest request) {
+        SimulatedUser user = requireUser(request.getUsername());
+        if (!otpFor(user.username).equals(request.getConfirmationCode())) {
+            throw clientError(new CodeMismatchException("Invalid verification code provided, please try again."));
+        }
+        user.confirmed = true;
+        return ok(new ConfirmSignUpResult());
+    }
+
+    private ResendConfirmationCodeResult doResendConfirmationCode(ResendConfirmationCodeRequest request) {
+        requireUser(request.getUsername());
+        return ok(new ResendConfirmationCodeResult());
+    }
+
+    private AdminCreateUserResult doAdminCreateUser(AdminCreateUserRequest request) {
+        String username = request.getUsername();
+        SimulatedUser user = new SimulatedUser(username, subFor(username));
+        if (usersByUsername.putIfAbsent(username, user) != null) {
+            throw clientError(new UsernameExistsException("User account already exists"));
+        }
+        return ok(new AdminCreateUserResult()
+                .withUser(new UserType()
+                        .withUsername(username)
+                        .withEnabled(true)
+                        .withUserStatus("FORCE_CHANGE_PASSWORD")
+                        .withAttributes(
+                                new AttributeType().withName("sub").withValue(user.sub),
+                                new AttributeType().withName("phone_number").withValue(username))));
+    }
+
+    private AdminSetUserPasswordResult doAdminSetUserPassword(AdminSetUserPasswordRequest request) {
+        SimulatedUser user = requireUser(request.getUsername());
+        // A permanent password moves the user out of FORCE_CHANGE_PASSWORD, like a confirmed sign up
+        if (Boolean.TRUE.equals(request.getPermanent())) user.confirmed = true;
+        return ok(new AdminSetUserPasswordResult());
+    }
+
+    private InitiateAuthResult doInitiateAuth(InitiateAuthRequest request) {
+        AuthFlowType authFlow = AuthFlowType.fromValue(request.getAuthFlow());
+        return switch (authFlow) {
+            case USER_PASSWORD_AUTH -> startSmsChallenge(request.getAuthParameters().get("USERNAME"));
+            case REFRESH_TOKEN_AUTH, REFRESH_TOKEN -> refreshTokens(request.getAuthParameters().get("REFRESH_TOKEN"));
+            default -> throw clientError(new InvalidParameterException("Auth flow not supported by the simulator: " + authFlow));
+        };
+    }
+
+    private InitiateAuthResult startSmsChallenge(String username) {
+        SimulatedUser user = requireUser(username);
+        if (!user.confirmed) throw clientError(new NotAuthorizedException("User is not confirmed."));
+
+        String session = randomToken();
+        pendingChallenges.put(session, new PendingChallenge(user, Instant.now().plusSeconds(properties.getSessionValiditySeconds())));
+        return ok(new InitiateAuthResult()
+                .withChallengeName(ChallengeNameType.SMS_MFA)
+                .withSession(session)
+                .withChallengeParameters(Map.of(
+                        "CODE_DELIVERY_DELIVERY_MEDIUM", "SMS",
+                        "CODE_DELIVERY_DESTINATION", "+*******" + username.substring(Math.max(0, username.length() - 4)),
+                        "USER_ID_FOR_SRP", user.sub)));
+    }
+
+    private InitiateAuthResult refreshTokens(String refreshToken) {
+        RefreshGrant grant = refreshToken == null ? null : refreshGrants.get(refreshToken);
+        if (grant == null || grant.expiresAt.isBefore(Instant.now())) {
+            throw clientError(new NotAuthorizedException("Invalid Refresh Token"));
+        }
+        return ok(new InitiateAuthResult()
+                .withChallengeParameters(Map.of())
+                .withAuthenticationResult(new AuthenticationResultType()
+                        .withAccessToken(tokenSigner.accessToken(grant.user.sub))
+                        .withIdToken(tokenSigner.idToken(grant.user.sub, grant.user.username))
+                        .withExpiresIn(tokenSigner.getAccessTokenValiditySeconds())
+                        .withTokenType("Bearer")));
+    }
+
+    private RespondToAuthChallengeResult doRespondToAuthChallenge(RespondToAuthChallengeRequest request) {
+        if (!ChallengeNameType.SMS_MFA.toString().equals(request.getChallengeName())) {
+            throw clientError(new InvalidParameterException("Challenge not supported by the simulator: " + request.getChallengeName()));
+        }
+        PendingChallenge challenge = pendingChallenges.get(request.getSession());
+        if (challenge == null || challenge.expiresAt.isBefore(Instant.now())) {
+            throw clientError(new NotAuthorizedException("Invalid session for the user, session is expired."));
+        }
+        if (!otpFor(challenge.user.username).equals(request.getChallengeResponses().get("SMS_MFA_CODE"))) {
+            throw clientError(new CodeMismatchException("Invalid code or auth state for the user."));
+        }
+        pendingChallenges.remove(request.getSession());
+
+        String refreshToken = randomToken();
+        refreshGrants.put(refreshToken, new RefreshGrant(challenge.user, Instant.now().plusSeconds(properties.getRefreshTokenValiditySeconds())));
+        refreshTokensBySub.computeIfAbsent(challenge.user.sub, sub -> ConcurrentHashMap.newKeySet()).add(refreshToken);
+        return ok(new RespondToAuthChallengeResult()
+                .withChallengeParameters(Map.of())
+                .withAuthenticationResult(new AuthenticationResultType()
+                        .withAccessToken(tokenSigner.accessToken(challenge.user.sub))
+                        .withIdToken(tokenSigner.idToken(challenge.user.sub, challenge.user.username))
+                        .withRefreshToken(refreshToken)
+                        .withExpiresIn(tokenSigner.getAccessTokenValiditySeconds())
+                        .withTokenType("Bearer")));
+    }
+
+    private GlobalSignOutResult doGlobalSignOut(GlobalSignOutRequest request) {
+        String sub;
+        try {
+            sub = JWT.decode(request.getAccessToken()).getSubject();
+        } catch (RuntimeException e) {
+            throw clientError(new NotAuthorizedException("Invalid Access Token"));
+        }
+        // Revoke every refresh token of the user, like Cognito does
+        Set<String> refreshTokens = refreshTokensBySub.remove(sub);
+        if (refreshTokens != null) refreshTokens.forEach(refreshGrants::remove);
+        return ok(new GlobalSignOutResult());
+    }
+
+    private SimulatedUser requireUser(String username) {
+        SimulatedUser user = username == null ? null : usersByUsername.get(username);
+        if (user == null) throw clientError(new UserNotFoundException("User does not exist."));
+        return user;
+    }
+
+    private <R> R respond(CognitoOperation operation, Supplier<R> call) {
+        long delay = latency.nextDelayMillis(operation);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SdkClientException("Interrupted while waiting for simulated Cognito", e);
+            }
+        }
+        return call.get();
+    }
+
+    private <Q extends AmazonWebServiceRequest, R> Future<R> respondAsync(CognitoOperation operation, Q request, Supplier<R> call, AsyncHandler<Q, R> asyncHandler) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        // The delay is served by the scheduler, so no thread is held while the simulated call is in flight
+        scheduler.schedule(() -> {
+            try {
+                R result = call.get();
+                if (asyncHandler != null) asyncHandler.onSuccess(request, result);
+                future.complete(result);
+            } catch (RuntimeException e) {
+                if (asyncHandler != null) asyncHandler.onError(e);
+                future.completeExceptionally(e);
+            }
+        }, latency.nextDelayMillis(operation), TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    private void purgeExpired() {
+        Instant now = Instant.now();
+        pendingChallenges.values().removeIf(challenge -> challenge.expiresAt.isBefore(now));
+        refreshGrants.entrySet().removeIf(entry -> {
+            if (!entry.getValue().expiresAt.isBefore(now)) return false;
+            Set<String> tokens = refreshTokensBySub.get(entry.getValue().user.sub);
+            if (tokens != null) tokens.remove(entry.getKey());
+            return true;
+        });
+    }
+
+    private String randomToken() {
+        byte[] bytes = new byte[32];
+        secureRandom.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static String subFor(String username) {
+        return UUID.nameUUIDFromBytes(username.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static <R extends AmazonWebServiceResult<?>> R ok(R result) {
+        HttpResponse httpResponse = new HttpResponse(null, null);
+        httpResponse.setStatusCode(200);
+        result.setSdkHttpMetadata(SdkHttpMetadata.from(httpResponse));
+        return result;
+    }
+
+    private static <E extends AmazonServiceException> E clientError(E exception) {
+        exception.setServiceName(SERVICE_NAME);
+        exception.setErrorCode(exception.getClass().getSimpleName());
+        exception.setErrorType(AmazonServiceException.ErrorType.Client);
+        exception.setStatusCode(400);
+        return exception;
+    }
+
+    private static final class SimulatedUser {
+        private final String username;
+        private final String sub;
+        private volatile boolean confirmed;
+
+        private SimulatedUser(String username, String sub) {
+            this.username = username;
+            this.sub = sub;
+        }
+    }
+
+    private record PendingChallenge(SimulatedUser user, Instant expiresAt) {
+    }
+
+    private record RefreshGrant(SimulatedUser user, Instant expiresAt) {
+    }
+}
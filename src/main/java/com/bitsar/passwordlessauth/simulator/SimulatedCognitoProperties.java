@@ -0,0 +1,40 @@
+package com.bitsar.passwordlessauth.simulator;
+
+import com.bitsar.passwordlessauth.enums.CognitoOperation;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "simulator.cognito")
+public class SimulatedCognitoProperties {
+    /**
+     * OTP accepted for every user. When blank, the OTP is the last six digits of the phone number.
+     */
+    private String fixedOtp;
+    private String issuer = "https://cognito-idp.simulated.local/local_simulated";
+    private String jwksFile;
+    private long accessTokenValiditySeconds = 3600;
+    private long refreshTokenValiditySeconds = 30L * 24 * 3600;
+    private long sessionValiditySeconds = 180;
+    private int schedulerThreads = 4;
+    private LatencyProfile defaultLatency = new LatencyProfile();
+    private Map<CognitoOperation, LatencyProfile> latency = new EnumMap<>(CognitoOperation.class);
+
+    @Data
+    public static class LatencyProfile {
+        private Distribution distribution = Distribution.FIXED;
+        private long minMs;
+        private long maxMs;
+        private long medianMs;
+        private long p99Ms;
+    }
+
+    public enum Distribution {
+        FIXED,
+        UNIFORM,
+        LOG_NORMAL
+    }
+}
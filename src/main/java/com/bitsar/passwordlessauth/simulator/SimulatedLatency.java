@@ -0,0 +1,49 @@
+package com.bitsar.passwordlessauth.simulator;
+
+import com.bitsar.passwordlessauth.enums.CognitoOperation;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Draws per-operation response times for the simulated Cognito provider.
+ */
+@RequiredArgsConstructor
+public class SimulatedLatency {
+
+    // z-score of the 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.3263;
+
+    private final SimulatedCognitoProperties properties;
+
+    /**
+     * Samples the latency of one call to the given operation.
+     *
+     * @param operation the simulated Cognito operation
+     * @return the delay in milliseconds, never negative
+     */
+    public long nextDelayMillis(CognitoOperation operation) {
+        SimulatedCognitoProperties.LatencyProfile profile = properties.getLatency().getOrDefault(operation, properties.getDefaultLatency());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (profile.getDistribution()) {
+            case FIXED -> Math.max(0, profile.getMedianMs());
+            case UNIFORM -> profile.getMaxMs() > profile.getMinMs()
+                    ? random.nextLong(profile.getMinMs(), profile.getMaxMs() + 1)
+                    : Math.max(0, profile.getMinMs());
+            case LOG_NORMAL -> logNormal(profile, random);
+        };
+    }
+
+    /**
+     * Log-normal distribution fitted to the configured median and 99th percentile, which matches the long right tail
+     * of real network calls.
+     */
+    private static long logNormal(SimulatedCognitoProperties.LatencyProfile profile, ThreadLocalRandom random) {
+        if (profile.getMedianMs() <= 0) return 0;
+        double mu = Math.log(profile.getMedianMs());
+        double sigma = profile.getP99Ms() > profile.getMedianMs()
+                ? Math.log((double) profile.getP99Ms() / profile.getMedianMs()) / Z_99
+                : 0;
+        return Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+    }
+}
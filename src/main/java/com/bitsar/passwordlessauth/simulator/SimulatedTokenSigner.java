@@ -0,0 +1,138 @@
+package com.bitsar.passwordlessauth.simulator;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Signs Cognito-shaped access and ID tokens with an RSA key generated at startup, and publishes the public key as a
+ * JWKS document so the tokens can be verified like real Cognito tokens.
+ */
+@Slf4j
+public class SimulatedTokenSigner {
+
+    public static final String KEY_ID = "simulated-cognito-key";
+
+    private final Algorithm algorithm;
+    @Getter
+    private final RSAPublicKey publicKey;
+    private final String issuer;
+    private final String clientId;
+    private final long accessTokenValiditySeconds;
+
+    public SimulatedTokenSigner(SimulatedCognitoProperties properties, String clientId) {
+        KeyPair keyPair = generateKeyPair();
+        this.publicKey = (RSAPublicKey) keyPair.getPublic();
+        this.algorithm = Algorithm.RSA256(publicKey, (RSAPrivateKey) keyPair.getPrivate());
+        this.issuer = properties.getIssuer();
+        this.clientId = clientId;
+        this.accessTokenValiditySeconds = properties.getAccessTokenValiditySeconds();
+        if (properties.getJwksFile() != null && !properties.getJwksFile().isBlank()) {
+            writeJwks(Path.of(properties.getJwksFile()));
+        }
+    }
+
+    public int getAccessTokenValiditySeconds() {
+        return (int) accessTokenValiditySeconds;
+    }
+
+    public String accessToken(String sub) {
+        Instant now = Instant.now();
+        return JWT.create()
+                .withKeyId(KEY_ID)
+                .withIssuer(issuer)
+                .withSubject(sub)
+                .withClaim("client_id", clientId)
+                .withClaim("token_use", "access")
+                .withClaim("scope", "aws.cognito.signin.user.admin")
+                .withClaim("username", sub)
+                .withClaim("auth_time", now.getEpochSecond())
+                .withIssuedAt(Date.from(now))
+                .withExpiresAt(Date.from(now.plusSeconds(accessTokenValiditySeconds)))
+                .withJWTId(UUID.randomUUID().toString())
+                .sign(algorithm);
+    }
+
+    public String idToken(String sub, String phoneNumber) {
+        Instant now = Instant.now();
+        return JWT.create()
+                .withKeyId(KEY_ID)
+                .withIssuer(issuer)
+                .withSubject(sub)
+                .withAudience(clientId)
+                .withClaim("token_use", "id")
+                .withClaim("cognito:username", sub)
+                .withClaim("phone_number", phoneNumber)
+                .withClaim("phone_number_verified", true)
+                .withClaim("auth_time", now.getEpochSecond())
+                .withIssuedAt(Date.from(now))
+                .withExpiresAt(Date.from(now.plusSeconds(accessTokenValiditySeconds)))
+                .withJWTId(UUID.randomUUID().toString())
+                .sign(algorithm);
+    }
+
+    /**
+     * Renders the public key as a JWKS document, in the same shape as Cognito's {@code .well-known/jwks.json}.
+     *
+     * @return the JWKS document
+     */
+    public Map<String, Object> jwks() {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return Map.of("keys", List.of(Map.of(
+                "kid", KEY_ID,
+                "kty", "RSA",
+                "alg", "RS256",
+                "use", "sig",
+                "n", encoder.encodeToString(unsigned(publicKey.getModulus())),
+                "e", encoder.encodeToString(unsigned(publicKey.getPublicExponent())))));
+    }
+
+    private void writeJwks(Path jwksFile) {
+        try {
+            if (jwksFile.getParent() != null) Files.createDirectories(jwksFile.getParent());
+            new ObjectMapper().writeValue(jwksFile.toFile(), jwks());
+            log.info("Simulated Cognito JWKS written to {}", jwksFile.toAbsolutePath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write simulated JWKS to " + jwksFile, e);
+        }
+    }
+
+    private static byte[] unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] trimmed = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, trimmed, 0, trimmed.length);
+            return trimmed;
+        }
+        return bytes;
+    }
+
+    private static KeyPair generateKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("RSA is not available", e);
+        }
+    }
+}
@@ -9,16 +9,32 @@ public class JwtUtil {
     private JwtUtil() {}
 
     public static String getUsernameFromToken(String token) {
-        token = token.replace("Bearer ", "").trim();
         try {
-            DecodedJWT jwt = JWT.decode(token);
-            String username = jwt.getClaim("username").asString();
-            if (username == null) {
-                username = jwt.getSubject();
-            }
-            return username;
+            return getUsername(JWT.decode(stripBearer(token)));
         } catch (Exception e) {
             throw new TokenParseException("Failed to get username from token", e);
         }
     }
+
+    public static String getUsername(DecodedJWT jwt) {
+        String username = jwt.getClaim("username").asString();
+        if (username == null) {
+            username = jwt.getSubject();
+        }
+        return username;
+    }
+
+    /**
+     * Returns the id Cognito gives an authentication, shared by the access tokens of one login and its refreshes.
+     *
+     * @param jwt the decoded access token
+     * @return the {@code origin_jti} claim, or null for tokens without it
+     */
+    public static String getOriginJti(DecodedJWT jwt) {
+        return jwt.getClaim("origin_jti").asString();
+    }
+
+    public static String stripBearer(String token) {
+        return token.replace("Bearer ", "").trim();
+    }
 }
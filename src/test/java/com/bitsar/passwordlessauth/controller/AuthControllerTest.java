@@ -3,12 +3,17 @@ package com.bitsar.passwordlessauth.controller;
 import static org.mockito.Mockito.when;
 
 import com.bitsar.passwordlessauth.dto.request.ConfirmRegisterRequestDto;
+import com.bitsar.passwordlessauth.dto.request.IntrospectRequestDto;
 import com.bitsar.passwordlessauth.dto.request.RegisterRequestDto;
 import com.bitsar.passwordlessauth.dto.response.ConfirmLoginResponseDto;
 import com.bitsar.passwordlessauth.dto.response.ConfirmRegisterResponseDto;
+import com.bitsar.passwordlessauth.dto.response.IntrospectResponseDto;
 import com.bitsar.passwordlessauth.dto.response.LoginResponseDto;
 import com.bitsar.passwordlessauth.dto.response.RegisterResponseDto;
+import com.bitsar.passwordlessauth.enums.UserStatus;
+import com.bitsar.passwordlessauth.helper.JwtVerifier;
 import com.bitsar.passwordlessauth.service.AuthService;
+import com.bitsar.passwordlessauth.service.IntrospectionService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -35,6 +40,12 @@ class AuthControllerTest {
     @MockBean
     private AuthService authService;
 
+    @MockBean
+    private JwtVerifier jwtVerifier;
+
+    @MockBean
+    private IntrospectionService introspectionService;
+
     /**
      * Method under test: {@link AuthController#confirmLogin(String, String)}
      */
@@ -145,4 +156,33 @@ class AuthControllerTest {
                                 "{\"status\":{\"code\":1000,\"status\":\"SUCCESS\",\"description\":\"\"},\"data\":{\"status\":\"Status\",\"sessionId"
                                         + "\":\"42\"}}"));
     }
+
+    /**
+     * Method under test: {@link AuthController#introspect(IntrospectRequestDto)}
+     */
+    @Test
+    void testIntrospect() throws Exception {
+        // Arrange
+        IntrospectResponseDto buildResult = IntrospectResponseDto.builder()
+                .active(true)
+                .username("42")
+                .status(UserStatus.VERIFIED)
+                .firstName("Jane")
+                .build();
+        when(introspectionService.introspect("ABC123")).thenReturn(buildResult);
+        MockHttpServletRequestBuilder requestBuilder = MockMvcRequestBuilders.post("/api/v1/auth/introspect")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"token\":\"ABC123\"}");
+
+        // Act and Assert
+        MockMvcBuilders.standaloneSetup(authController)
+                .build()
+                .perform(requestBuilder)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType("application/json"))
+                .andExpect(MockMvcResultMatchers.content()
+                        .string(
+                                "{\"status\":{\"code\":1000,\"status\":\"SUCCESS\",\"description\":\"\"},\"data\":{\"active\":true,\"username\":"
+                                        + "\"42\",\"status\":\"VERIFIED\",\"firstName\":\"Jane\"}}"));
+    }
 }
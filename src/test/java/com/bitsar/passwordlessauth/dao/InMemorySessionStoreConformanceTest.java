@@ -0,0 +1,9 @@
+package com.bitsar.passwordlessauth.dao;
+
+class InMemorySessionStoreConformanceTest extends SessionStoreConformanceTest {
+
+    @Override
+    protected SessionStore createSessionStore() {
+        return new InMemorySessionStore();
+    }
+}
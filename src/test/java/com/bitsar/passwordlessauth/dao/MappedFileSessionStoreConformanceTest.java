@@ -0,0 +1,20 @@
+package com.bitsar.passwordlessauth.dao;
+
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedFileSessionStoreConformanceTest extends SessionStoreConformanceTest {
+    @TempDir
+    Path directory;
+
+    @Override
+    protected SessionStore createSessionStore() {
+        return new MappedFileSessionStore(directory.resolve("sessions.dat").toString(), 4096, 16, 4096, false, 500, 20);
+    }
+
+    @AfterEach
+    void closeSessionStore() {
+        ((MappedFileSessionStore) sessionStore).close();
+    }
+}
@@ -0,0 +1,149 @@
+package com.bitsar.passwordlessauth.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.bitsar.passwordlessauth.entity.UserSession;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedFileSessionStoreTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Method under test: {@link MappedFileSessionStore#MappedFileSessionStore(String, long, int, long, boolean, int, int)} on an
+     * existing file
+     */
+    @Test
+    void testSessionsSurviveReopen() {
+        // Arrange
+        MappedFileSessionStore sessionStore = open();
+        UserSession first = sessionStore.findAndUpdateAndSaveSession(loginSession("+916625550144", "sub-1"));
+        sessionStore.updateSession(UserSession.builder().id(first.getId()).sessionId(first.getSessionId()).refreshToken("refresh-token").build());
+        sessionStore.findAndUpdateAndSaveSession(loginSession("+916625550145", "sub-2"));
+        sessionStore.deleteByPhoneNumber("+916625550145");
+        sessionStore.close();
+
+        // Act
+        MappedFileSessionStore reopened = open();
+
+        // Assert
+        assertEquals("refresh-token", reopened.findByCognitoUserName("sub-1").getRefreshToken());
+        assertEquals(first.getId(), reopened.findByPhoneNumber("+916625550144").getId());
+        assertNull(reopened.findByPhoneNumber("+916625550145"));
+        reopened.close();
+    }
+
+    /**
+     * Method under test: {@link MappedFileSessionStore#MappedFileSessionStore(String, long, int, long, boolean, int, int)} on a
+     * file whose last write was interrupted
+     */
+    @Test
+    void testIncompleteLastRecordIsDiscarded() throws IOException {
+        // Arrange
+        MappedFileSessionStore sessionStore = open();
+        sessionStore.findAndUpdateAndSaveSession(loginSession("+916625550144", "sub-1"));
+        sessionStore.findAndUpdateAndSaveSession(loginSession("+916625550145", "sub-2"));
+        sessionStore.close();
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("sessions.dat").toFile(), "rw")) {
+            // Corrupt the body of the last record, as if the crash came before it was fully written
+            file.seek(lastRecordOffset(file) + 20);
+            file.write(new byte[]{1, 2, 3, 4});
+        }
+
+        // Act
+        MappedFileSessionStore reopened = open();
+        reopened.findAndUpdateAndSaveSession(loginSession("+916625550146", "sub-3"));
+
+        // Assert
+        assertEquals("sub-1", reopened.findByPhoneNumber("+916625550144").getCognitoUserName());
+        assertNull(reopened.findByPhoneNumber("+916625550145"));
+        assertEquals("sub-3", reopened.findByPhoneNumber("+916625550146").getCognitoUserName());
+        reopened.close();
+    }
+
+    /**
+     * Method under test: {@link MappedFileSessionStore#compact()}
+     */
+    @Test
+    void testCompactionKeepsLiveSessions() {
+        // Arrange
+        MappedFileSessionStore sessionStore = open();
+        UserSession userSession = sessionStore.findAndUpdateAndSaveSession(loginSession("+916625550144", "sub-1"));
+        for (int i = 0; i < 200; i++) {
+            sessionStore.updateSession(UserSession.builder().id(userSession.getId()).sessionId(userSession.getSessionId()).accessToken("access-token-" + i).build());
+        }
+
+        // Act
+        sessionStore.compact();
+
+        // Assert
+        assertEquals(0, sessionStore.deadBytes());
+        assertEquals("access-token-199", sessionStore.findBySessionId(userSession.getSessionId()).getAccessToken());
+        sessionStore.close();
+        MappedFileSessionStore reopened = open();
+        assertEquals("access-token-199", reopened.findByCognitoUserName("sub-1").getAccessToken());
+        assertTrue(Files.notExists(directory.resolve("sessions.dat.compact")));
+        reopened.close();
+    }
+
+    /**
+     * Method under test: {@link MappedFileSessionStore#purgeExpired()}
+     */
+    @Test
+    void testPurgeExpiredStopsAtBatchesPerRun() {
+        // Arrange
+        MappedFileSessionStore sessionStore = new MappedFileSessionStore(directory.resolve("sessions.dat").toString(), 4096, 16, Long.MAX_VALUE, false, 2, 2);
+        for (int i = 0; i < 5; i++) {
+            sessionStore.findAndUpdateAndSaveSession(loginSession("+91662555014" + i, "sub-" + i).toBuilder()
+                    .expiresAt(Instant.now().minusSeconds(60))
+                    .build());
+        }
+        sessionStore.findAndUpdateAndSaveSession(loginSession("+916625550149", "sub-9"));
+
+        // Act
+        sessionStore.purgeExpired();
+
+        // Assert
+        // Two batches of two, the fifth expired session is left to the next run
+        assertEquals(2, sessionStore.countActive(Instant.now().minusSeconds(120)));
+        assertEquals(1, sessionStore.deleteExpired(Instant.now(), LocalDateTime.MIN, 500));
+        assertEquals("sub-9", sessionStore.findByPhoneNumber("+916625550149").getCognitoUserName());
+        sessionStore.close();
+    }
+
+    private MappedFileSessionStore open() {
+        // Compaction is left to the test, the threshold is beyond what the tests write
+        return new MappedFileSessionStore(directory.resolve("sessions.dat").toString(), 4096, 16, Long.MAX_VALUE, false, 500, 20);
+    }
+
+    // Walks the record frames from the file header to the last record
+    private static long lastRecordOffset(RandomAccessFile file) throws IOException {
+        long last = 8;
+        for (long position = 8; ; ) {
+            file.seek(position);
+            int length = file.readInt();
+            if (length == 0) return last;
+            last = position;
+            position += 8 + length;
+        }
+    }
+
+    private static UserSession loginSession(String phoneNumber, String cognitoUserName) {
+        return UserSession.builder()
+                .session("cognito-session")
+                .phoneNumber(phoneNumber)
+                .cognitoUserName(cognitoUserName)
+                .expiresAt(Instant.now().plus(1, ChronoUnit.DAYS).truncatedTo(ChronoUnit.MILLIS))
+                .build();
+    }
+}
@@ -0,0 +1,45 @@
+package com.bitsar.passwordlessauth.dao;
+
+import com.bitsar.passwordlessauth.repository.UserSessionRepository;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import java.util.Objects;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+/**
+ * Runs the conformance suite against an in-process Mongo server, or against the Mongo server of {@code MONGODB_URL}
+ * when the variable is set, in a throwaway database.
+ */
+class MongoSessionStoreConformanceTest extends SessionStoreConformanceTest {
+    private MongoServer mongoServer;
+    private MongoClient mongoClient;
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    protected SessionStore createSessionStore() {
+        String mongoUrl = System.getenv("MONGODB_URL");
+        if (Objects.isNull(mongoUrl) || mongoUrl.isBlank()) {
+            mongoServer = new MongoServer(new MemoryBackend());
+            mongoUrl = mongoServer.bindAndGetConnectionString();
+        }
+
+        mongoClient = MongoClients.create(mongoUrl);
+        mongoTemplate = new MongoTemplate(mongoClient, "session_store_conformance_" + UUID.randomUUID().toString().replace("-", ""));
+        UserSessionRepository userSessionRepository = new MongoRepositoryFactory(mongoTemplate).getRepository(UserSessionRepository.class);
+        MongoSessionStore mongoSessionStore = new MongoSessionStore(userSessionRepository, mongoTemplate, false, 10000, 500);
+        mongoSessionStore.ensureIndexes();
+        return mongoSessionStore;
+    }
+
+    @AfterEach
+    void dropDatabase() {
+        mongoTemplate.getDb().drop();
+        mongoClient.close();
+        if (Objects.nonNull(mongoServer)) mongoServer.shutdownNow();
+    }
+}
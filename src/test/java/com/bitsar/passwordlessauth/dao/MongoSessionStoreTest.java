@@ -0,0 +1,200 @@
+package com.bitsar.passwordlessauth.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.bitsar.passwordlessauth.entity.UserSession;
+import com.bitsar.passwordlessauth.repository.UserSessionRepository;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import com.mongodb.client.result.DeleteResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+class MongoSessionStoreTest {
+    private MongoTemplate mongoTemplate;
+    private MongoSessionStore mongoSessionStore;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        mongoSessionStore = new MongoSessionStore(mock(UserSessionRepository.class), mongoTemplate, false, 10000, 500);
+    }
+
+    /**
+     * Method under test: {@link MongoSessionStore#findAndUpdateAndSaveSession(UserSession)}
+     */
+    @Test
+    void testFindAndUpdateAndSaveSession() {
+        // Arrange
+        Instant expiresAt = Instant.now().plusSeconds(300);
+
+        // Act
+        mongoSessionStore.findAndUpdateAndSaveSession(UserSession.builder()
+                .session("cognito-session")
+                .phoneNumber("+916625550144")
+                .cognitoUserName("sub-1")
+                .firstName("Jane")
+                .expiresAt(expiresAt)
+                .accessToken("access-token")
+                .build());
+
+        // Assert
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        ArgumentCaptor<FindAndModifyOptions> options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), options.capture(), eq(UserSession.class));
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(UserSession.class));
+        assertEquals(new Document("phoneNumber", "+916625550144"), query.getValue().getQueryObject());
+        assertTrue(options.getValue().isUpsert());
+        assertTrue(options.getValue().isReturnNew());
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertNotNull(set.getString("sessionId"));
+        assertEquals("cognito-session", set.get("session"));
+        assertEquals(expiresAt, set.get("expiresAt"));
+        assertEquals("sub-1", set.get("cognitoUserName"));
+        assertFalse(set.containsKey("accessToken"));
+        Document unset = (Document) update.getValue().getUpdateObject().get("$unset");
+        assertTrue(unset.containsKey("accessToken"));
+        assertTrue(unset.containsKey("lastName"));
+        assertNotNull(((Document) update.getValue().getUpdateObject().get("$setOnInsert")).getString("_id"));
+    }
+
+    /**
+     * Method under test: {@link MongoSessionStore#findAndUpdateAndSaveSession(UserSession)} racing another login of
+     * the same phone number
+     */
+    @Test
+    void testFindAndUpdateAndSaveSessionRetriesDuplicateKey() {
+        // Arrange
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(UserSession.class)))
+                .thenThrow(new DuplicateKeyException("phoneNumber"))
+                .thenReturn(UserSession.builder().session("cognito-session").build());
+
+        // Act
+        UserSession userSession = mongoSessionStore.findAndUpdateAndSaveSession(UserSession.builder()
+                .session("cognito-session")
+                .phoneNumber("+916625550144")
+                .build());
+
+        // Assert
+        assertEquals("cognito-session", userSession.getSession());
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(UserSession.class));
+    }
+
+    /**
+     * Method under test: {@link MongoSessionStore#updateSession(UserSession)}
+     */
+    @Test
+    void testUpdateSessionSetsOnlyChangedFields() {
+        // Arrange
+        LocalDateTime timeStamp = LocalDateTime.now();
+
+        // Act
+        mongoSessionStore.updateSession(UserSession.builder().id("session-1").timeStamp(timeStamp).build());
+
+        // Assert
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(UserSession.class));
+        assertEquals(new Document("$set", new Document("timeStamp", timeStamp)), update.getValue().getUpdateObject());
+    }
+
+    /**
+     * Method under test: {@link MongoSessionStore#deleteExpired(Instant, LocalDateTime, int)}
+     */
+    @Test
+    void testDeleteExpiredRechecksExpiryOnDelete() {
+        // Arrange
+        when(mongoTemplate.find(any(Query.class), eq(UserSession.class))).thenReturn(List.of(UserSession.builder().id("session-1").build()));
+        when(mongoTemplate.remove(any(Query.class), eq(UserSession.class))).thenReturn(DeleteResult.acknowledged(1));
+
+        // Act
+        long deleted = mongoSessionStore.deleteExpired(Instant.now(), LocalDateTime.now().minusHours(84), 500);
+
+        // Assert
+        assertEquals(1, deleted);
+        ArgumentCaptor<Query> selected = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(selected.capture(), eq(UserSession.class));
+        verify(mongoTemplate).remove(removed.capture(), eq(UserSession.class));
+        assertEquals(500, selected.getValue().getLimit());
+        assertTrue(removed.getValue().getQueryObject().containsKey("$or"));
+        assertTrue(removed.getValue().getQueryObject().containsKey("id"));
+    }
+
+    /**
+     * Method under test: {@link MongoSessionStore#updateSession(UserSession)} with write-behind
+     */
+    @Test
+    void testWriteBehindMergesUpdatesOfSessionIntoOneBulkWrite() {
+        // Arrange
+        UserSessionRepository userSessionRepository = mock(UserSessionRepository.class);
+        BulkOperations bulkOperations = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserSession.class)).thenReturn(bulkOperations);
+        when(userSessionRepository.findBySessionId("login-1")).thenReturn(UserSession.builder().id("session-1").sessionId("login-1").refreshToken("refresh-token").build());
+        MongoSessionStore writeBehindStore = new MongoSessionStore(userSessionRepository, mongoTemplate, true, 10000, 500);
+        LocalDateTime timeStamp = LocalDateTime.now();
+
+        // Act
+        writeBehindStore.updateSession(UserSession.builder().id("session-1").sessionId("login-1").accessToken("access-token-1").timeStamp(timeStamp.minusMinutes(1)).build());
+        writeBehindStore.updateSession(UserSession.builder().id("session-1").sessionId("login-1").accessToken("access-token-2").timeStamp(timeStamp).build());
+        UserSession buffered = writeBehindStore.findBySessionId("login-1");
+        writeBehindStore.flushPendingWrites();
+
+        // Assert
+        assertEquals("access-token-2", buffered.getAccessToken());
+        assertEquals("refresh-token", buffered.getRefreshToken());
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(UserSession.class));
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations).updateOne(any(Query.class), update.capture());
+        verify(bulkOperations).execute();
+        assertEquals(new Document("accessToken", "access-token-2").append("timeStamp", timeStamp), update.getValue().getUpdateObject().get("$set"));
+    }
+
+    /**
+     * Method under test: {@link MongoSessionStore#findAndUpdateAndSaveSession(UserSession)} with write-behind
+     */
+    @Test
+    void testWriteBehindLoginIsNotOverlaidWithBufferedUpdates() {
+        // Arrange
+        UserSessionRepository userSessionRepository = mock(UserSessionRepository.class);
+        BulkOperations bulkOperations = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserSession.class)).thenReturn(bulkOperations);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(UserSession.class)))
+                .thenReturn(UserSession.builder().id("session-1").sessionId("login-2").session("new-cognito-session").build());
+        when(userSessionRepository.findBySessionId("login-2")).thenReturn(UserSession.builder().id("session-1").sessionId("login-2").build());
+        MongoSessionStore writeBehindStore = new MongoSessionStore(userSessionRepository, mongoTemplate, true, 10000, 500);
+        writeBehindStore.updateSession(UserSession.builder().id("session-1").sessionId("login-1").accessToken("access-token").build());
+
+        // Act
+        UserSession userSession = writeBehindStore.findAndUpdateAndSaveSession(UserSession.builder().session("new-cognito-session").phoneNumber("+916625550144").build());
+        writeBehindStore.flushPendingWrites();
+
+        // Assert
+        // The buffered update belongs to the replaced login, its write only matches that login
+        assertEquals("session-1", userSession.getId());
+        assertNull(writeBehindStore.findBySessionId("login-2").getAccessToken());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(bulkOperations).updateOne(query.capture(), any(Update.class));
+        assertEquals("login-1", query.getValue().getQueryObject().get("sessionId"));
+    }
+}
@@ -0,0 +1,259 @@
+package com.bitsar.passwordlessauth.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.bitsar.passwordlessauth.entity.User;
+import com.bitsar.passwordlessauth.entity.UserSession;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Behaviour every {@link SessionStore} must have, run against each implementation by a subclass.
+ */
+abstract class SessionStoreConformanceTest {
+    private static final String PHONE_NUMBER = "+916625550144";
+
+    protected SessionStore sessionStore;
+
+    protected abstract SessionStore createSessionStore();
+
+    @BeforeEach
+    void setUpSessionStore() {
+        sessionStore = createSessionStore();
+    }
+
+    /**
+     * Method under test: {@link SessionStore#findAndUpdateAndSaveSession(UserSession)}
+     */
+    @Test
+    void testLoginSessionIsFoundByEveryKey() {
+        // Act
+        UserSession userSession = sessionStore.findAndUpdateAndSaveSession(loginSession("cognito-session", "sub-1"));
+
+        // Assert
+        assertNotNull(userSession.getId());
+        assertNotNull(userSession.getSessionId());
+        assertEquals("cognito-session", userSession.getSession());
+        assertEquals(userSession, sessionStore.findBySessionId(userSession.getSessionId()));
+        assertEquals(userSession, sessionStore.findByPhoneNumber(PHONE_NUMBER));
+        assertEquals(userSession, sessionStore.findByCognitoUserName("sub-1"));
+        assertNull(sessionStore.findByCognitoUserName("sub-2"));
+    }
+
+    /**
+     * Method under test: {@link SessionStore#findAndUpdateAndSaveSession(UserSession)} for a phone number with a session
+     */
+    @Test
+    void testNewLoginReplacesSessionOfPhoneNumber() {
+        // Arrange
+        UserSession first = sessionStore.findAndUpdateAndSaveSession(loginSession("cognito-session", "sub-1"));
+        sessionStore.updateSession(UserSession.builder()
+                .id(first.getId())
+                .sessionId(first.getSessionId())
+                .accessToken("access-token")
+                .refreshToken("refresh-token")
+                .timeStamp(now())
+                .build());
+
+        // Act
+        UserSession second = sessionStore.findAndUpdateAndSaveSession(loginSession("new-cognito-session", "sub-1"));
+
+        // Assert
+        // The same id under a new session id, the session id of the earlier login no longer finds a session
+        assertEquals(first.getId(), second.getId());
+        assertNotEquals(first.getSessionId(), second.getSessionId());
+        assertNull(sessionStore.findBySessionId(first.getSessionId()));
+        UserSession stored = sessionStore.findByPhoneNumber(PHONE_NUMBER);
+        assertEquals(second.getSessionId(), stored.getSessionId());
+        assertEquals("new-cognito-session", stored.getSession());
+        assertNull(stored.getAccessToken());
+        assertNull(stored.getRefreshToken());
+        assertNull(stored.getTimeStamp());
+    }
+
+    /**
+     * Method under test: {@link SessionStore#updateSession(UserSession)} of a login replaced by a later one
+     */
+    @Test
+    void testUpdateOfReplacedLoginIsDropped() {
+        // Arrange
+        UserSession first = sessionStore.findAndUpdateAndSaveSession(loginSession("cognito-session", "sub-1"));
+        sessionStore.findAndUpdateAndSaveSession(loginSession("new-cognito-session", "sub-1"));
+
+        // Act
+        sessionStore.updateSession(UserSession.builder()
+                .id(first.getId())
+                .sessionId(first.getSessionId())
+                .accessToken("access-token")
+                .build());
+
+        // Assert
+        UserSession stored = sessionStore.findByPhoneNumber(PHONE_NUMBER);
+        assertEquals("new-cognito-session", stored.getSession());
+        assertNull(stored.getAccessToken());
+    }
+
+    /**
+     * Method under test: {@link SessionStore#updateSession(UserSession)}
+     */
+    @Test
+    void testUpdateSessionSetsOnlyGivenFields() {
+        // Arrange
+        UserSession userSession = sessionStore.findAndUpdateAndSaveSession(loginSession("cognito-session", "sub-1"));
+        LocalDateTime timeStamp = now();
+        sessionStore.updateSession(UserSession.builder()
+                .id(userSession.getId())
+                .sessionId(userSession.getSessionId())
+                .accessToken("access-token")
+                .refreshToken("refresh-token")
+                .build());
+
+        // Act
+        sessionStore.updateSession(UserSession.builder()
+                .id(userSession.getId())
+                .sessionId(userSession.getSessionId())
+                .accessToken("new-access-token")
+                .timeStamp(timeStamp)
+                .build());
+
+        // Assert
+        UserSession stored = sessionStore.findBySessionId(userSession.getSessionId());
+        assertEquals("new-access-token", stored.getAccessToken());
+        assertEquals("refresh-token", stored.getRefreshToken());
+        assertEquals(timeStamp, stored.getTimeStamp());
+        assertEquals("cognito-session", stored.getSession());
+    }
+
+    /**
+     * Method under test: {@link SessionStore#updateProfile(User)}
+     */
+    @Test
+    void testUpdateProfileCopiesUser() {
+        // Arrange
+        sessionStore.findAndUpdateAndSaveSession(loginSession("cognito-session", null));
+
+        // Act
+        sessionStore.updateProfile(User.builder()
+                .phoneNumber(PHONE_NUMBER)
+                .cognitoUserName("sub-1")
+                .firstName("John")
+                .lastName("Doe")
+                .build());
+
+        // Assert
+        UserSession stored = sessionStore.findByCognitoUserName("sub-1");
+        assertEquals("John", stored.getFirstName());
+        assertEquals("Doe", stored.getLastName());
+    }
+
+    /**
+     * Method under test: {@link SessionStore#deleteByCognitoUserName(String)}
+     */
+    @Test
+    void testDeleteByCognitoUserName() {
+        // Arrange
+        UserSession userSession = sessionStore.findAndUpdateAndSaveSession(loginSession("cognito-session", "sub-1"));
+
+        // Act and Assert
+        assertEquals(1, sessionStore.deleteByCognitoUserName("sub-1"));
+        assertEquals(0, sessionStore.deleteByCognitoUserName("sub-1"));
+        assertNull(sessionStore.findBySessionId(userSession.getSessionId()));
+        assertNull(sessionStore.findByPhoneNumber(PHONE_NUMBER));
+    }
+
+    /**
+     * Method under test: {@link SessionStore#deleteByPhoneNumber(String)}
+     */
+    @Test
+    void testDeleteByPhoneNumber() {
+        // Arrange
+        sessionStore.findAndUpdateAndSaveSession(loginSession("cognito-session", "sub-1"));
+
+        // Act and Assert
+        assertEquals(1, sessionStore.deleteByPhoneNumber(PHONE_NUMBER));
+        assertEquals(0, sessionStore.deleteByPhoneNumber(PHONE_NUMBER));
+        assertNull(sessionStore.findByCognitoUserName("sub-1"));
+    }
+
+    /**
+     * Method under test: {@link SessionStore#deleteExpired(Instant, LocalDateTime, int)}
+     */
+    @Test
+    void testDeleteExpiredHonoursLimitAndKeepsLiveSessions() {
+        // Arrange
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        for (int i = 0; i < 3; i++) {
+            sessionStore.findAndUpdateAndSaveSession(UserSession.builder()
+                    .session("expired-" + i)
+                    .phoneNumber(PHONE_NUMBER + i)
+                    .expiresAt(now.minusSeconds(60))
+                    .build());
+        }
+        sessionStore.findAndUpdateAndSaveSession(UserSession.builder()
+                .session("live")
+                .phoneNumber(PHONE_NUMBER)
+                .expiresAt(now.plusSeconds(60))
+                .build());
+
+        // Act and Assert
+        assertEquals(2, sessionStore.deleteExpired(now, now().minusHours(1), 2));
+        assertEquals(1, sessionStore.deleteExpired(now, now().minusHours(1), 2));
+        assertEquals(0, sessionStore.deleteExpired(now, now().minusHours(1), 2));
+        assertNotNull(sessionStore.findByPhoneNumber(PHONE_NUMBER));
+    }
+
+    /**
+     * Method under test: {@link SessionStore#countActive(Instant)}
+     */
+    @Test
+    void testCountActiveSkipsExpiredSessions() {
+        // Arrange
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        sessionStore.findAndUpdateAndSaveSession(UserSession.builder()
+                .session("expired")
+                .phoneNumber(PHONE_NUMBER + 0)
+                .expiresAt(now.minusSeconds(60))
+                .build());
+        sessionStore.findAndUpdateAndSaveSession(loginSession("cognito-session", "sub-1"));
+
+        // Act and Assert
+        assertEquals(1, sessionStore.countActive(now));
+    }
+
+    /**
+     * Method under test: {@link SessionStore#findBySessionId(String)}
+     */
+    @Test
+    void testReturnedSessionsAreCopies() {
+        // Arrange
+        UserSession userSession = sessionStore.findAndUpdateAndSaveSession(loginSession("cognito-session", "sub-1"));
+
+        // Act
+        sessionStore.findBySessionId(userSession.getSessionId()).setFirstName("Changed");
+
+        // Assert
+        assertEquals("Jane", sessionStore.findBySessionId(userSession.getSessionId()).getFirstName());
+    }
+
+    private static UserSession loginSession(String session, String cognitoUserName) {
+        return UserSession.builder()
+                .session(session)
+                .phoneNumber(PHONE_NUMBER)
+                .cognitoUserName(cognitoUserName)
+                .firstName("Jane")
+                .lastName("Roe")
+                .expiresAt(Instant.now().plusSeconds(300).truncatedTo(ChronoUnit.MILLIS))
+                .build();
+    }
+
+    // Mongo stores dates with millisecond precision
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+}
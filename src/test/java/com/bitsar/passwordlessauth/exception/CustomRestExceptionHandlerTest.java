@@ -0,0 +1,51 @@
+package com.bitsar.passwordlessauth.exception;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.bitsar.passwordlessauth.dto.ResponseWrap;
+import com.bitsar.passwordlessauth.enums.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+class CustomRestExceptionHandlerTest {
+
+    /**
+     * Method under test: {@link CustomRestExceptionHandler#handleAuthException(AuthException, org.springframework.web.context.request.WebRequest)}
+     */
+    @Test
+    void testHandleAuthException() {
+        // Arrange
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CustomRestExceptionHandler customRestExceptionHandler = new CustomRestExceptionHandler(new SampledErrorLogger(meterRegistry, 1, 60000));
+
+        // Act
+        ResponseEntity<ResponseWrap<Object>> response = null;
+        for (int i = 0; i < 3; i++) {
+            response = customRestExceptionHandler.handleAuthException(new IncorrectOTPException("Wrong OTP passed"), null);
+        }
+
+        // Assert
+        assertEquals(1993, response.getBody().getStatus().getCode());
+        assertEquals("Wrong OTP passed", response.getBody().getStatus().getDescription());
+        // Every failure is counted, logged or not
+        assertEquals(3, meterRegistry.get("auth.errors").tag("code", ErrorCode.INCORRECT_OTP.name()).counter().count());
+        assertEquals(0, meterRegistry.get("auth.errors").tag("code", ErrorCode.RATE_LIMIT_EXCEEDED.name()).counter().count());
+    }
+
+    /**
+     * Method under test: {@link AuthException#getStackTrace()}
+     */
+    @Test
+    void testStackTraceOfExpectedFailuresOnly() {
+        // Arrange and Act
+        AuthException expected = new InvalidSessionException("Invalid session");
+        AuthException unexpected = new CognitoUnavailableException("Cognito unavailable", new IllegalStateException("open"));
+
+        // Assert
+        assertEquals(0, expected.getStackTrace().length);
+        assertTrue(unexpected.getStackTrace().length > 0);
+        assertEquals(ErrorCode.COGNITO_UNAVAILABLE, unexpected.getErrorCode());
+    }
+}
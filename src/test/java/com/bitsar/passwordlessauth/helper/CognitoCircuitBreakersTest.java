@@ -0,0 +1,73 @@
+package com.bitsar.passwordlessauth.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.amazonaws.services.cognitoidp.model.CodeMismatchException;
+import com.bitsar.passwordlessauth.enums.CognitoOperation;
+import com.bitsar.passwordlessauth.jfr.CognitoCallEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CognitoCircuitBreakersTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Method under test: {@link CognitoCircuitBreakers#execute(CognitoOperation, java.util.function.Supplier)}
+     */
+    @Test
+    void testCallsAreTimedByOperationAndOutcome() {
+        // Arrange
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CognitoCircuitBreakers circuitBreakers = new CognitoCircuitBreakers(meterRegistry, 50, 80, 3000, 50, 20, 10000, 5);
+        CodeMismatchException codeMismatch = new CodeMismatchException("Invalid code");
+        codeMismatch.setErrorCode("CodeMismatchException");
+
+        // Act
+        circuitBreakers.execute(CognitoOperation.RESPOND_TO_AUTH_CHALLENGE, () -> "result");
+        assertThrows(CodeMismatchException.class, () -> circuitBreakers.execute(CognitoOperation.RESPOND_TO_AUTH_CHALLENGE, () -> {
+            throw codeMismatch;
+        }));
+
+        // Assert
+        assertEquals(1, meterRegistry.get("auth.cognito").tag("operation", "RespondToAuthChallenge").tag("outcome", "Success").timer().count());
+        assertEquals(1, meterRegistry.get("auth.cognito").tag("operation", "RespondToAuthChallenge").tag("outcome", "CodeMismatch").timer().count());
+    }
+
+    /**
+     * Method under test: {@link CognitoCircuitBreakers#execute(CognitoOperation, java.util.function.Supplier)} while a
+     * flight recording is running
+     */
+    @Test
+    void testCallsAreRecordedAsFlightRecorderEvents() throws Exception {
+        // Arrange
+        CognitoCircuitBreakers circuitBreakers = new CognitoCircuitBreakers(new SimpleMeterRegistry(), 50, 80, 3000, 50, 20, 10000, 5);
+        Path file = directory.resolve("cognito.jfr");
+
+        // Act
+        try (Recording recording = new Recording()) {
+            recording.enable(CognitoCallEvent.NAME).withThreshold(Duration.ZERO);
+            recording.start();
+            circuitBreakers.execute(CognitoOperation.GLOBAL_SIGN_OUT, () -> "result");
+            recording.stop();
+            recording.dump(file);
+        }
+
+        // Assert
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(CognitoCallEvent.NAME))
+                .toList();
+        assertEquals(1, events.size());
+        assertEquals("GlobalSignOut", events.get(0).getString("operation"));
+        assertEquals("Success", events.get(0).getString("outcome"));
+        assertEquals(-1, events.get(0).getLong("responseBytes"));
+    }
+}
@@ -20,6 +20,8 @@ import com.amazonaws.services.cognitoidp.model.RespondToAuthChallengeResult;
 import com.amazonaws.services.cognitoidp.model.SignUpRequest;
 import com.amazonaws.services.cognitoidp.model.SignUpResult;
 import com.bitsar.passwordlessauth.exception.SecretHashGenerationException;
+import com.bitsar.passwordlessauth.phone.PhoneNumber;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
@@ -29,7 +31,7 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
-@ContextConfiguration(classes = {CognitoHelper.class})
+@ContextConfiguration(classes = {CognitoHelper.class, SecretHashGenerator.class, CognitoCircuitBreakers.class, SimpleMeterRegistry.class})
 @ExtendWith(SpringExtension.class)
 @DisabledInAotMode
 class CognitoHelperDiffblueTest {
@@ -40,7 +42,7 @@ class CognitoHelperDiffblueTest {
     private CognitoHelper cognitoHelper;
 
     /**
-     * Method under test: {@link CognitoHelper#cognitoSignUp(String, String)}
+     * Method under test: {@link CognitoHelper#cognitoSignUp(PhoneNumber)}
      */
     @Test
     void testCognitoSignUp() {
@@ -49,7 +51,7 @@ class CognitoHelperDiffblueTest {
         when(aWSCognitoIdentityProvider.signUp(Mockito.<SignUpRequest>any())).thenReturn(signUpResult);
 
         // Act
-        SignUpResult actualCognitoSignUpResult = cognitoHelper.cognitoSignUp("GB", "6625550144");
+        SignUpResult actualCognitoSignUpResult = cognitoHelper.cognitoSignUp(new PhoneNumber("+447725550144", "GB"));
 
         // Assert
         verify(aWSCognitoIdentityProvider).signUp(Mockito.<SignUpRequest>any());
@@ -57,7 +59,7 @@ class CognitoHelperDiffblueTest {
     }
 
     /**
-     * Method under test: {@link CognitoHelper#cognitoSignUp(String, String)}
+     * Method under test: {@link CognitoHelper#cognitoSignUp(PhoneNumber)}
      */
     @Test
     void testCognitoSignUp2() {
@@ -66,7 +68,7 @@ class CognitoHelperDiffblueTest {
                 .thenThrow(new SecretHashGenerationException("An error occurred", new Exception("HmacSHA256")));
 
         // Act and Assert
-        assertThrows(SecretHashGenerationException.class, () -> cognitoHelper.cognitoSignUp("GB", "6625550144"));
+        assertThrows(SecretHashGenerationException.class, () -> cognitoHelper.cognitoSignUp(new PhoneNumber("+447725550144", "GB")));
         verify(aWSCognitoIdentityProvider).signUp(Mockito.<SignUpRequest>any());
     }
 
@@ -0,0 +1,35 @@
+package com.bitsar.passwordlessauth.helper;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.bitsar.passwordlessauth.helper.RateLimitStore.BucketPolicy;
+import org.junit.jupiter.api.Test;
+
+class InMemoryRateLimitStoreTest {
+
+    /**
+     * Method under test: {@link InMemoryRateLimitStore#tryAcquire(String, BucketPolicy)}
+     */
+    @Test
+    void testTryAcquire() throws InterruptedException {
+        // Arrange
+        InMemoryRateLimitStore inMemoryRateLimitStore = new InMemoryRateLimitStore(1000, 60000);
+        BucketPolicy policy = new BucketPolicy("phone", 3, 100);
+
+        // Act and Assert
+        assertTrue(inMemoryRateLimitStore.tryAcquire("6625550144", policy));
+        assertTrue(inMemoryRateLimitStore.tryAcquire("6625550144", policy));
+        assertTrue(inMemoryRateLimitStore.tryAcquire("6625550144", policy));
+        assertFalse(inMemoryRateLimitStore.tryAcquire("6625550144", policy));
+
+        // Other keys and other policies have their own buckets
+        assertTrue(inMemoryRateLimitStore.tryAcquire("6625550145", policy));
+        assertTrue(inMemoryRateLimitStore.tryAcquire("6625550144", new BucketPolicy("ip", 3, 100)));
+
+        // One token is back after one refill period
+        Thread.sleep(150);
+        assertTrue(inMemoryRateLimitStore.tryAcquire("6625550144", policy));
+        assertFalse(inMemoryRateLimitStore.tryAcquire("6625550144", policy));
+    }
+}
@@ -0,0 +1,107 @@
+package com.bitsar.passwordlessauth.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.bitsar.passwordlessauth.exception.InvalidTokenException;
+import com.bitsar.passwordlessauth.simulator.SimulatedCognitoProperties;
+import com.bitsar.passwordlessauth.simulator.SimulatedTokenSigner;
+import com.bitsar.passwordlessauth.util.JwtUtil;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JwtVerifierTest {
+    private static final String ISSUER = "https://cognito-idp.simulated.local/local_simulated";
+
+    @TempDir
+    Path jwksDirectory;
+
+    private SimulatedTokenSigner simulatedTokenSigner;
+    private JwtVerifier jwtVerifier;
+
+    @BeforeEach
+    void setUp() {
+        SimulatedCognitoProperties properties = new SimulatedCognitoProperties();
+        properties.setIssuer(ISSUER);
+        properties.setJwksFile(jwksDirectory.resolve("jwks.json").toString());
+        simulatedTokenSigner = new SimulatedTokenSigner(properties, "client-id");
+        JwksKeyStore jwksKeyStore = new JwksKeyStore(jwksDirectory.resolve("jwks.json").toUri().toString(), 30000, 2000);
+        jwtVerifier = new JwtVerifier(jwksKeyStore, ISSUER, "client-id", 30, 3600, 100);
+    }
+
+    /**
+     * Method under test: {@link JwtVerifier#verify(String)}
+     */
+    @Test
+    void testVerify() {
+        // Arrange
+        String accessToken = simulatedTokenSigner.accessToken("sub-42");
+
+        // Act and Assert
+        assertEquals("sub-42", JwtUtil.getUsername(jwtVerifier.verify("Bearer " + accessToken)));
+        assertEquals("sub-42", JwtUtil.getUsername(jwtVerifier.verify(accessToken)));
+    }
+
+    /**
+     * Method under test: {@link JwtVerifier#verify(String)}
+     */
+    @Test
+    void testVerifyRejectsForeignAndWrongTokens() throws Exception {
+        // Arrange
+        Algorithm foreignKey = Algorithm.HMAC256("not-the-user-pool");
+        String forged = JWT.create().withKeyId(SimulatedTokenSigner.KEY_ID).withIssuer(ISSUER)
+                .withClaim("client_id", "client-id").withClaim("token_use", "access")
+                .withExpiresAt(Date.from(Instant.now().plusSeconds(60))).sign(foreignKey);
+
+        // Act and Assert
+        assertThrows(InvalidTokenException.class, () -> jwtVerifier.verify(forged));
+        assertThrows(InvalidTokenException.class, () -> jwtVerifier.verify("not-a-jwt"));
+        assertThrows(InvalidTokenException.class,
+                () -> jwtVerifier.verify(simulatedTokenSigner.idToken("sub-42", "+916625550144")));
+    }
+
+    /**
+     * Method under test: {@link JwtVerifier#verify(String)} with a token of the cache key of a verified token
+     */
+    @Test
+    void testVerifyRejectsCachedSignatureOnOtherPayload() {
+        // Arrange
+        String accessToken = simulatedTokenSigner.accessToken("sub-42");
+        jwtVerifier.verify(accessToken);
+        String[] parts = accessToken.split("\\.");
+        String payload = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)
+                        .replace("sub-42", "sub-43")
+                        .getBytes(StandardCharsets.UTF_8));
+
+        // Act and Assert
+        assertThrows(InvalidTokenException.class, () -> jwtVerifier.verify(parts[0] + "." + payload + "." + parts[2]));
+        assertEquals("sub-42", JwtUtil.getUsername(jwtVerifier.verify(accessToken)));
+    }
+
+    /**
+     * Methods under test: {@link JwtVerifier#verify(String)} and {@link JwtVerifier#verifyForRefresh(String)}
+     */
+    @Test
+    void testExpiredTokenIsOnlyAcceptedForRefresh() {
+        // Arrange
+        SimulatedCognitoProperties properties = new SimulatedCognitoProperties();
+        properties.setIssuer(ISSUER);
+        properties.setAccessTokenValiditySeconds(-120);
+        properties.setJwksFile(jwksDirectory.resolve("jwks.json").toString());
+        SimulatedTokenSigner expiredTokenSigner = new SimulatedTokenSigner(properties, "client-id");
+        String expired = expiredTokenSigner.accessToken("sub-42");
+
+        // Act and Assert
+        assertThrows(InvalidTokenException.class, () -> jwtVerifier.verify(expired));
+        assertEquals("sub-42", JwtUtil.getUsername(jwtVerifier.verifyForRefresh(expired)));
+    }
+}
@@ -0,0 +1,130 @@
+package com.bitsar.passwordlessauth.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.bitsar.passwordlessauth.entity.User;
+import com.bitsar.passwordlessauth.enums.UserStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class UserCacheTest {
+    private SimpleMeterRegistry meterRegistry;
+    private UserCache userCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userCache = new UserCache(meterRegistry, true, 1000, 60000);
+    }
+
+    /**
+     * Method under test: {@link UserCache#getByPhoneNumber(String, java.util.function.Function)}
+     */
+    @Test
+    void testLoadedUserIsServedByBothKeys() {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+        User user = user(UserStatus.NEW);
+
+        // Act
+        userCache.getByPhoneNumber("+916625550144", phoneNumber -> {
+            loads.incrementAndGet();
+            return user;
+        });
+        User byPhoneNumber = userCache.getByPhoneNumber("+916625550144", phoneNumber -> {
+            loads.incrementAndGet();
+            return user;
+        });
+        User byCognitoUserName = userCache.getByCognitoUserName("sub-1", cognitoUserName -> {
+            loads.incrementAndGet();
+            return user;
+        });
+
+        // Assert
+        assertEquals(1, loads.get());
+        assertEquals(user, byPhoneNumber);
+        assertEquals(user, byCognitoUserName);
+        assertEquals(2, meterRegistry.get("auth.user.cache").tag("result", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("auth.user.cache").tag("result", "miss").counter().count());
+    }
+
+    /**
+     * Method under test: {@link UserCache#invalidate(String)}
+     */
+    @Test
+    void testInvalidateDropsBothKeys() {
+        // Arrange
+        userCache.put(user(UserStatus.NEW));
+
+        // Act
+        userCache.invalidate("user-1");
+
+        // Assert
+        assertNull(userCache.getByPhoneNumber("+916625550144", phoneNumber -> null));
+        assertNull(userCache.getByCognitoUserName("sub-1", cognitoUserName -> null));
+    }
+
+    /**
+     * Method under test: {@link UserCache#getByCognitoUserName(String, java.util.function.Function)} when the user is
+     * changed while it is loaded
+     */
+    @Test
+    void testLoadRacingInvalidationIsNotCached() {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        User stale = userCache.getByCognitoUserName("sub-1", cognitoUserName -> {
+            loads.incrementAndGet();
+            userCache.invalidate("user-1");
+            return user(UserStatus.NEW);
+        });
+        User fresh = userCache.getByCognitoUserName("sub-1", cognitoUserName -> {
+            loads.incrementAndGet();
+            return user(UserStatus.VERIFIED);
+        });
+
+        // Assert
+        assertEquals(UserStatus.NEW, stale.getStatus());
+        assertEquals(UserStatus.VERIFIED, fresh.getStatus());
+        assertEquals(2, loads.get());
+    }
+
+    /**
+     * Method under test: {@link UserCache#getByPhoneNumber(String, java.util.function.Function)} when the user is
+     * written through while it is loaded
+     */
+    @Test
+    void testLoadRacingPutDoesNotOverwriteIt() {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act, the lookup read the user before confirm-register saved it as verified
+        User stale = userCache.getByPhoneNumber("+916625550144", phoneNumber -> {
+            loads.incrementAndGet();
+            userCache.put(user(UserStatus.VERIFIED));
+            return user(UserStatus.NEW);
+        });
+        User cached = userCache.getByCognitoUserName("sub-1", cognitoUserName -> {
+            loads.incrementAndGet();
+            return null;
+        });
+
+        // Assert
+        assertEquals(UserStatus.NEW, stale.getStatus());
+        assertEquals(UserStatus.VERIFIED, cached.getStatus());
+        assertEquals(1, loads.get());
+    }
+
+    private static User user(UserStatus status) {
+        return User.builder()
+                .id("user-1")
+                .phoneNumber("+916625550144")
+                .cognitoUserName("sub-1")
+                .status(status)
+                .build();
+    }
+}
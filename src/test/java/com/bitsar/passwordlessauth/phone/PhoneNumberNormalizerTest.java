@@ -0,0 +1,81 @@
+package com.bitsar.passwordlessauth.phone;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class PhoneNumberNormalizerTest {
+
+    private static PhoneNumberProperties properties() {
+        PhoneNumberProperties properties = new PhoneNumberProperties();
+        Map<String, PhoneNumberProperties.Region> regions = new LinkedHashMap<>();
+        regions.put("IN", PhoneNumberProperties.Region.of("91", List.of(10), null, null));
+        regions.put("GB", PhoneNumberProperties.Region.of("44", List.of(10), "7", "0"));
+        regions.put("AE", PhoneNumberProperties.Region.of("971", List.of(9), "5", "0"));
+        properties.setRegions(regions);
+        return properties;
+    }
+
+    /**
+     * Method under test: {@link PhoneNumberNormalizer#normalize(String)}
+     */
+    @Test
+    void testNormalize() {
+        // Arrange
+        PhoneNumberNormalizer phoneNumberNormalizer = new PhoneNumberNormalizer(properties());
+
+        // Act and Assert
+        // National numbers belong to the default region, international ones to the region of their calling code
+        assertEquals(new PhoneNumber("+916625550144", "IN"), phoneNumberNormalizer.normalize("6625550144"));
+        assertEquals(new PhoneNumber("+916625550144", "IN"), phoneNumberNormalizer.normalize("+91 66255 50144"));
+        assertEquals(new PhoneNumber("+447725550144", "GB"), phoneNumberNormalizer.normalize("+44 (7725) 550-144"));
+        assertEquals(new PhoneNumber("+971501234567", "AE"), phoneNumberNormalizer.normalize("+971501234567"));
+
+        // Not a valid number of a configured region
+        assertNull(phoneNumberNormalizer.normalize(null));
+        assertNull(phoneNumberNormalizer.normalize("66255501x4"));
+        assertNull(phoneNumberNormalizer.normalize("662555014"));
+        assertNull(phoneNumberNormalizer.normalize("66+25550144"));
+        assertNull(phoneNumberNormalizer.normalize("+446625550144"));
+        assertNull(phoneNumberNormalizer.normalize("+16625550144"));
+        assertNull(phoneNumberNormalizer.normalize("+91"));
+        assertNull(phoneNumberNormalizer.normalize("+9166255501446625550144"));
+    }
+
+    /**
+     * Method under test: {@link PhoneNumberNormalizer#normalize(String)} with a default region that has a trunk prefix
+     */
+    @Test
+    void testNormalizeTrunkPrefix() {
+        // Arrange
+        PhoneNumberProperties properties = properties();
+        properties.setDefaultRegion("GB");
+        PhoneNumberNormalizer phoneNumberNormalizer = new PhoneNumberNormalizer(properties);
+
+        // Act and Assert
+        assertEquals(new PhoneNumber("+447725550144", "GB"), phoneNumberNormalizer.normalize("07725 550144"));
+        assertEquals(new PhoneNumber("+447725550144", "GB"), phoneNumberNormalizer.normalize("7725550144"));
+        assertNull(phoneNumberNormalizer.normalize("06625550144"));
+    }
+
+    /**
+     * Method under test: {@link PhoneNumberNormalizer#PhoneNumberNormalizer(PhoneNumberProperties)}
+     */
+    @Test
+    void testConstructorRejectsInvalidConfiguration() {
+        // Arrange
+        PhoneNumberProperties overlapping = properties();
+        overlapping.getRegions().put("XX", PhoneNumberProperties.Region.of("9", List.of(8), null, null));
+        PhoneNumberProperties unknownDefault = properties();
+        unknownDefault.setDefaultRegion("US");
+
+        // Act and Assert
+        assertThrows(IllegalStateException.class, () -> new PhoneNumberNormalizer(overlapping));
+        assertThrows(IllegalStateException.class, () -> new PhoneNumberNormalizer(unknownDefault));
+    }
+}
@@ -0,0 +1,112 @@
+package com.bitsar.passwordlessauth.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.bitsar.passwordlessauth.dao.InMemorySessionStore;
+import com.bitsar.passwordlessauth.dao.SessionStore;
+import com.bitsar.passwordlessauth.dao.UserDao;
+import com.bitsar.passwordlessauth.entity.User;
+import com.bitsar.passwordlessauth.entity.UserSession;
+import com.bitsar.passwordlessauth.enums.UserStatus;
+import com.bitsar.passwordlessauth.helper.JwtVerifier;
+import com.bitsar.passwordlessauth.helper.SessionStateCache;
+import com.bitsar.passwordlessauth.util.JwtUtil;
+import java.util.Date;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IntrospectionServiceTest {
+    private static final String COGNITO_USER_NAME = "sub-1";
+    private static final String PHONE_NUMBER = "+916625550144";
+
+    private SessionStore sessionStore;
+    private SessionStateCache sessionStateCache;
+    private IntrospectionService introspectionService;
+
+    @BeforeEach
+    void setUp() {
+        UserDao userDao = mock(UserDao.class);
+        when(userDao.findByCognitoUserName(COGNITO_USER_NAME)).thenReturn(User.builder()
+                .cognitoUserName(COGNITO_USER_NAME)
+                .phoneNumber(PHONE_NUMBER)
+                .status(UserStatus.VERIFIED)
+                .build());
+        JwtVerifier jwtVerifier = mock(JwtVerifier.class);
+        when(jwtVerifier.verify(anyString())).thenAnswer(invocation -> JWT.decode(JwtUtil.stripBearer(invocation.getArgument(0))));
+        sessionStore = new InMemorySessionStore();
+        sessionStateCache = new SessionStateCache(userDao, sessionStore, 60000, 100);
+        introspectionService = new IntrospectionService(jwtVerifier, sessionStateCache);
+    }
+
+    /**
+     * Method under test: {@link IntrospectionService#introspect(String)}
+     */
+    @Test
+    void testIntrospectTokenOfEarlierLogin() {
+        // Arrange
+        String oldToken = login();
+        assertTrue(introspectionService.introspect("Bearer " + oldToken).isActive());
+        sessionStore.deleteByCognitoUserName(COGNITO_USER_NAME);
+        sessionStateCache.invalidate(COGNITO_USER_NAME);
+
+        // Act
+        String newToken = login();
+
+        // Assert
+        assertFalse(introspectionService.introspect(oldToken).isActive());
+        assertTrue(introspectionService.introspect(newToken).isActive());
+    }
+
+    /**
+     * Method under test: {@link IntrospectionService#introspect(String)}
+     */
+    @Test
+    void testIntrospectTokenRefreshedOnAnotherInstance() {
+        // Arrange
+        String token = login();
+        assertTrue(introspectionService.introspect(token).isActive());
+        String refreshed = accessToken();
+
+        // Act, the cached state still knows the first token only
+        UserSession userSession = sessionStore.findByPhoneNumber(PHONE_NUMBER);
+        sessionStore.updateSession(UserSession.builder()
+                .id(userSession.getId())
+                .sessionId(userSession.getSessionId())
+                .accessToken(refreshed)
+                .build());
+
+        // Assert
+        assertTrue(introspectionService.introspect(refreshed).isActive());
+        assertFalse(introspectionService.introspect(token).isActive());
+    }
+
+    private String login() {
+        UserSession userSession = sessionStore.findAndUpdateAndSaveSession(UserSession.builder()
+                .session(UUID.randomUUID().toString())
+                .phoneNumber(PHONE_NUMBER)
+                .cognitoUserName(COGNITO_USER_NAME)
+                .build());
+        String accessToken = accessToken();
+        sessionStore.updateSession(UserSession.builder()
+                .id(userSession.getId())
+                .sessionId(userSession.getSessionId())
+                .accessToken(accessToken)
+                .build());
+        return accessToken;
+    }
+
+    private static String accessToken() {
+        return JWT.create()
+                .withClaim("username", COGNITO_USER_NAME)
+                .withJWTId(UUID.randomUUID().toString())
+                .withExpiresAt(new Date(System.currentTimeMillis() + 60000))
+                .sign(Algorithm.HMAC256("secret"));
+    }
+}
@@ -0,0 +1,111 @@
+package com.bitsar.passwordlessauth.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.cognitoidp.model.CodeMismatchException;
+import com.amazonaws.services.cognitoidp.model.InitiateAuthResult;
+import com.amazonaws.services.cognitoidp.model.SignUpResult;
+import com.bitsar.passwordlessauth.dao.ReactiveUserSessionDao;
+import com.bitsar.passwordlessauth.dto.request.RegisterRequestDto;
+import com.bitsar.passwordlessauth.dto.response.RegisterResponseDto;
+import com.bitsar.passwordlessauth.entity.User;
+import com.bitsar.passwordlessauth.entity.UserSession;
+import com.bitsar.passwordlessauth.enums.UserStatus;
+import com.bitsar.passwordlessauth.exception.IncorrectOTPException;
+import com.bitsar.passwordlessauth.helper.CognitoHelper;
+import com.bitsar.passwordlessauth.helper.RefreshReusePolicy;
+import com.bitsar.passwordlessauth.helper.RequestRateLimiter;
+import com.bitsar.passwordlessauth.helper.SessionExpiryPolicy;
+import com.bitsar.passwordlessauth.helper.SessionStateCache;
+import com.bitsar.passwordlessauth.phone.PhoneNumber;
+import com.bitsar.passwordlessauth.phone.PhoneNumberNormalizer;
+import com.bitsar.passwordlessauth.phone.PhoneNumberProperties;
+import com.bitsar.passwordlessauth.repository.ReactiveUserRepository;
+import com.bitsar.passwordlessauth.repository.ReactiveUserSessionRepository;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Mono;
+
+class ReactiveAuthServiceTest {
+    private static final String PHONE_NUMBER = "6625550144";
+
+    private CognitoHelper cognitoHelper;
+    private ReactiveUserRepository userRepository;
+    private ReactiveUserSessionRepository userSessionRepository;
+    private ReactiveUserSessionDao userSessionDao;
+    private ReactiveAuthService reactiveAuthService;
+
+    @BeforeEach
+    void setUp() {
+        cognitoHelper = mock(CognitoHelper.class);
+        userRepository = mock(ReactiveUserRepository.class);
+        userSessionRepository = mock(ReactiveUserSessionRepository.class);
+        userSessionDao = mock(ReactiveUserSessionDao.class);
+        RequestRateLimiter requestRateLimiter = mock(RequestRateLimiter.class);
+        when(requestRateLimiter.checkPhoneNumberReactive(anyString())).thenReturn(Mono.empty());
+        reactiveAuthService = new ReactiveAuthService(cognitoHelper, userRepository, userSessionRepository, userSessionDao,
+                mock(SessionStateCache.class), mock(RefreshReusePolicy.class), requestRateLimiter, new SessionExpiryPolicy(3, 12, 0, 0),
+                new PhoneNumberNormalizer(new PhoneNumberProperties()));
+    }
+
+    /**
+     * Method under test: {@link ReactiveAuthService#signUp(RegisterRequestDto)}
+     */
+    @Test
+    void testSignUp() {
+        // Arrange
+        when(userRepository.findByPhoneNumber("+91" + PHONE_NUMBER)).thenReturn(Mono.empty());
+        when(cognitoHelper.cognitoSignUpAsync(new PhoneNumber("+91" + PHONE_NUMBER, "IN"))).thenReturn(CompletableFuture.completedFuture(new SignUpResult().withUserSub("sub-1")));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        // Act
+        RegisterResponseDto registerResponseDto = reactiveAuthService.signUp(RegisterRequestDto.builder()
+                .phoneNumber(PHONE_NUMBER)
+                .firstName("Jane")
+                .build()).block();
+
+        // Assert
+        assertEquals("sub-1", registerResponseDto.getSessionId());
+        ArgumentCaptor<User> savedUser = ArgumentCaptor.forClass(User.class);
+        verify(userRepository).save(savedUser.capture());
+        assertEquals(UserStatus.NEW, savedUser.getValue().getStatus());
+        assertEquals("+91" + PHONE_NUMBER, savedUser.getValue().getPhoneNumber());
+    }
+
+    /**
+     * Method under test: {@link ReactiveAuthService#confirmSignIn(String, String)} with a wrong OTP
+     */
+    @Test
+    void testConfirmSignInWithWrongOtp() {
+        // Arrange
+        when(userSessionRepository.findBySessionId("session-1")).thenReturn(Mono.just(UserSession.builder()
+                .id("user-session-1")
+                .sessionId("session-1")
+                .session("cognito-session")
+                .phoneNumber("+91" + PHONE_NUMBER)
+                .build()));
+        when(cognitoHelper.respondToMFAChallengeAsync("+91" + PHONE_NUMBER, "000000", "cognito-session"))
+                .thenReturn(CompletableFuture.failedFuture(new CodeMismatchException("Invalid code")));
+        when(userRepository.findByPhoneNumber("+91" + PHONE_NUMBER)).thenReturn(Mono.just(User.builder().status(UserStatus.VERIFIED).build()));
+        when(cognitoHelper.cognitoSignInAsync("+91" + PHONE_NUMBER)).thenReturn(CompletableFuture.completedFuture(new InitiateAuthResult().withSession("new-cognito-session")));
+        when(userSessionDao.findAndUpdateAndSaveSession(any(UserSession.class))).thenAnswer(invocation -> {
+            UserSession userSession = invocation.getArgument(0);
+            userSession.setId("user-session-1");
+            userSession.setSessionId("session-2");
+            return Mono.just(userSession);
+        });
+
+        // Act and Assert
+        IncorrectOTPException exception = assertThrows(IncorrectOTPException.class,
+                () -> reactiveAuthService.confirmSignIn("session-1", "000000").block());
+        assertEquals("Wrong OTP passed, new session created : session-2", exception.getMessage());
+    }
+}
@@ -0,0 +1,162 @@
+package com.bitsar.passwordlessauth.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.cognitoidp.model.AdminCreateUserResult;
+import com.amazonaws.services.cognitoidp.model.AttributeType;
+import com.amazonaws.services.cognitoidp.model.UserType;
+import com.bitsar.passwordlessauth.dao.UserDao;
+import com.bitsar.passwordlessauth.dto.response.UserImportJobResponseDto;
+import com.bitsar.passwordlessauth.entity.User;
+import com.bitsar.passwordlessauth.enums.ImportJobStatus;
+import com.bitsar.passwordlessauth.enums.UserStatus;
+import com.bitsar.passwordlessauth.exception.ImportQueueFullException;
+import com.bitsar.passwordlessauth.exception.ImportTooLargeException;
+import com.bitsar.passwordlessauth.exception.UnsupportedImportFormatException;
+import com.bitsar.passwordlessauth.helper.CognitoHelper;
+import com.bitsar.passwordlessauth.phone.PhoneNumberNormalizer;
+import com.bitsar.passwordlessauth.phone.PhoneNumberProperties;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+class UserImportServiceTest {
+    @TempDir
+    Path spoolDirectory;
+
+    private UserDao userDao;
+    private CognitoHelper cognitoHelper;
+    private UserImportService userImportService;
+
+    @BeforeEach
+    void setUp() {
+        userDao = mock(UserDao.class);
+        cognitoHelper = mock(CognitoHelper.class);
+        when(cognitoHelper.cognitoAdminCreateUser(anyString())).thenAnswer(invocation -> new AdminCreateUserResult()
+                .withUser(new UserType().withAttributes(new AttributeType().withName("sub").withValue("sub-" + invocation.getArgument(0)))));
+        when(userDao.findExistingPhoneNumbers(anyCollection())).thenReturn(Set.of("+916625550100"));
+        when(userDao.bulkInsert(anyList())).thenReturn(Map.of());
+        userImportService = new UserImportService(userDao, cognitoHelper, new PhoneNumberNormalizer(new PhoneNumberProperties()), spoolDirectory.toString(), 2, 100, 1024, 1, 0, 1, 1000, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userImportService.shutdown();
+    }
+
+    /**
+     * Methods under test: {@link UserImportService#submit(java.io.InputStream, String)} and
+     * {@link UserImportService#getJob(String)}
+     */
+    @Test
+    void testCsvImport() throws Exception {
+        // Arrange
+        String csv = """
+                firstName,lastName,phoneNumber
+                Jane,Doe,6625550144
+                "Doe, John",Doe,6625550145
+                Jane,Doe,6625550144
+                Old,User,6625550100
+                Bad,Number,12345
+                """;
+
+        // Act
+        UserImportJobResponseDto submitted = userImportService.submit(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "text/csv");
+        UserImportJobResponseDto job = awaitCompletion(submitted.getJobId());
+
+        // Assert
+        assertEquals(ImportJobStatus.COMPLETED, job.getStatus());
+        assertEquals(5, job.getRowsRead());
+        assertEquals(2, job.getImported());
+        assertEquals(2, job.getDuplicates());
+        assertEquals(1, job.getFailed());
+        assertEquals(6, job.getErrors().get(0).getRow());
+        verify(cognitoHelper).cognitoAdminSetUserPassword("+916625550145");
+
+        ArgumentCaptor<List<User>> users = ArgumentCaptor.captor();
+        verify(userDao, atLeastOnce()).bulkInsert(users.capture());
+        User user = users.getAllValues().stream().flatMap(List::stream)
+                .filter(candidate -> candidate.getPhoneNumber().equals("+916625550145"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("Doe, John", user.getFirstName());
+        assertEquals("sub-+916625550145", user.getCognitoUserName());
+        assertEquals(UserStatus.VERIFIED, user.getStatus());
+    }
+
+    /**
+     * Method under test: {@link UserImportService#submit(java.io.InputStream, String)}
+     */
+    @Test
+    void testNdjsonImportWithMalformedRow() throws Exception {
+        // Arrange
+        String ndjson = "{\"phoneNumber\":\"6625550144\",\"firstName\":\"Jane\"}\n{not json}\n";
+
+        // Act
+        UserImportJobResponseDto submitted = userImportService.submit(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), "application/x-ndjson");
+        UserImportJobResponseDto job = awaitCompletion(submitted.getJobId());
+
+        // Assert
+        assertEquals(1, job.getImported());
+        assertEquals("Malformed row", job.getErrors().get(0).getReason());
+        assertThrows(UnsupportedImportFormatException.class,
+                () -> userImportService.submit(new ByteArrayInputStream(new byte[0]), "application/json"));
+    }
+
+    /**
+     * Method under test: {@link UserImportService#submit(java.io.InputStream, String)}
+     */
+    @Test
+    void testSubmitRejectsOversizedBodyAndFullQueue() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        when(userDao.findExistingPhoneNumbers(anyCollection())).thenAnswer(invocation -> {
+            release.await();
+            return Set.of();
+        });
+        byte[] row = "{\"phoneNumber\":\"6625550144\"}\n".getBytes(StandardCharsets.UTF_8);
+
+        // Act and Assert
+        assertThrows(ImportTooLargeException.class,
+                () -> userImportService.submit(new ByteArrayInputStream(new byte[2048]), "application/x-ndjson"));
+        UserImportJobResponseDto running = userImportService.submit(new ByteArrayInputStream(row), "application/x-ndjson");
+        assertThrows(ImportQueueFullException.class,
+                () -> userImportService.submit(new ByteArrayInputStream(row), "application/x-ndjson"));
+        release.countDown();
+        assertEquals(ImportJobStatus.COMPLETED, awaitCompletion(running.getJobId()).getStatus());
+        // The slot is free again once the job finished
+        assertEquals(ImportJobStatus.COMPLETED, awaitCompletion(userImportService.submit(new ByteArrayInputStream(row), "application/x-ndjson").getJobId()).getStatus());
+        try (Stream<Path> spooled = Files.list(spoolDirectory)) {
+            assertTrue(spooled.findAny().isEmpty());
+        }
+    }
+
+    private UserImportJobResponseDto awaitCompletion(String jobId) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            UserImportJobResponseDto job = userImportService.getJob(jobId);
+            if (job.getStatus() == ImportJobStatus.COMPLETED || job.getStatus() == ImportJobStatus.FAILED) return job;
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Import did not complete");
+    }
+}
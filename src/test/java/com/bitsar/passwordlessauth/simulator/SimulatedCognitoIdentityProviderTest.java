@@ -0,0 +1,119 @@
+package com.bitsar.passwordlessauth.simulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.amazonaws.services.cognitoidp.model.AuthFlowType;
+import com.amazonaws.services.cognitoidp.model.ChallengeNameType;
+import com.amazonaws.services.cognitoidp.model.CodeMismatchException;
+import com.amazonaws.services.cognitoidp.model.ConfirmSignUpRequest;
+import com.amazonaws.services.cognitoidp.model.GlobalSignOutRequest;
+import com.amazonaws.services.cognitoidp.model.InitiateAuthRequest;
+import com.amazonaws.services.cognitoidp.model.InitiateAuthResult;
+import com.amazonaws.services.cognitoidp.model.NotAuthorizedException;
+import com.amazonaws.services.cognitoidp.model.RespondToAuthChallengeRequest;
+import com.amazonaws.services.cognitoidp.model.RespondToAuthChallengeResult;
+import com.amazonaws.services.cognitoidp.model.SignUpRequest;
+import com.amazonaws.services.cognitoidp.model.SignUpResult;
+import com.amazonaws.services.cognitoidp.model.UsernameExistsException;
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SimulatedCognitoIdentityProviderTest {
+    private static final String PHONE_NUMBER = "+916625550144";
+
+    private SimulatedCognitoIdentityProvider simulatedCognitoIdentityProvider;
+
+    @BeforeEach
+    void setUp() {
+        SimulatedCognitoProperties properties = new SimulatedCognitoProperties();
+        simulatedCognitoIdentityProvider = new SimulatedCognitoIdentityProvider(properties,
+                new SimulatedTokenSigner(properties, "client-id"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        simulatedCognitoIdentityProvider.shutdown();
+    }
+
+    /**
+     * Method under test: {@link SimulatedCognitoIdentityProvider#otpFor(String)}
+     */
+    @Test
+    void testOtpFor() {
+        // Arrange, Act and Assert
+        assertEquals("550144", simulatedCognitoIdentityProvider.otpFor(PHONE_NUMBER));
+        assertEquals("000042", simulatedCognitoIdentityProvider.otpFor("+42"));
+    }
+
+    /**
+     * Methods under test: the full sign up, MFA login, refresh and global sign out journey.
+     */
+    @Test
+    void testLoginJourney() {
+        // Arrange
+        SignUpResult signUpResult = simulatedCognitoIdentityProvider.signUp(new SignUpRequest().withUsername(PHONE_NUMBER));
+        simulatedCognitoIdentityProvider.confirmSignUp(new ConfirmSignUpRequest().withUsername(PHONE_NUMBER).withConfirmationCode("550144"));
+
+        // Act
+        InitiateAuthResult initiateAuthResult = simulatedCognitoIdentityProvider.initiateAuth(new InitiateAuthRequest()
+                .withAuthFlow(AuthFlowType.USER_PASSWORD_AUTH)
+                .withAuthParameters(Map.of("USERNAME", PHONE_NUMBER)));
+        RespondToAuthChallengeResult challengeResult = simulatedCognitoIdentityProvider.respondToAuthChallenge(new RespondToAuthChallengeRequest()
+                .withChallengeName(ChallengeNameType.SMS_MFA)
+                .withSession(initiateAuthResult.getSession())
+                .withChallengeResponses(Map.of("USERNAME", PHONE_NUMBER, "SMS_MFA_CODE", "550144")));
+        InitiateAuthResult refreshResult = simulatedCognitoIdentityProvider.initiateAuth(new InitiateAuthRequest()
+                .withAuthFlow(AuthFlowType.REFRESH_TOKEN_AUTH)
+                .withAuthParameters(Map.of("REFRESH_TOKEN", challengeResult.getAuthenticationResult().getRefreshToken())));
+
+        // Assert
+        assertEquals(ChallengeNameType.SMS_MFA.toString(), initiateAuthResult.getChallengeName());
+        assertEquals(200, challengeResult.getSdkHttpMetadata().getHttpStatusCode());
+        DecodedJWT accessToken = JWT.require(Algorithm.RSA256(simulatedCognitoIdentityProvider.getTokenSigner().getPublicKey(), null))
+                .withClaim("token_use", "access")
+                .withClaim("client_id", "client-id")
+                .build()
+                .verify(refreshResult.getAuthenticationResult().getAccessToken());
+        assertEquals(signUpResult.getUserSub(), accessToken.getClaim("username").asString());
+
+        // Global sign out revokes the refresh token
+        simulatedCognitoIdentityProvider.globalSignOut(new GlobalSignOutRequest()
+                .withAccessToken(challengeResult.getAuthenticationResult().getAccessToken()));
+        assertThrows(NotAuthorizedException.class, () -> simulatedCognitoIdentityProvider.initiateAuth(new InitiateAuthRequest()
+                .withAuthFlow(AuthFlowType.REFRESH_TOKEN_AUTH)
+                .withAuthParameters(Map.of("REFRESH_TOKEN", challengeResult.getAuthenticationResult().getRefreshToken()))));
+    }
+
+    /**
+     * Method under test: {@link SimulatedCognitoIdentityProvider#confirmSignUp(ConfirmSignUpRequest)}
+     */
+    @Test
+    void testConfirmSignUpWithWrongCode() {
+        // Arrange
+        simulatedCognitoIdentityProvider.signUp(new SignUpRequest().withUsername(PHONE_NUMBER));
+
+        // Act and Assert
+        assertThrows(CodeMismatchException.class, () -> simulatedCognitoIdentityProvider.confirmSignUp(
+                new ConfirmSignUpRequest().withUsername(PHONE_NUMBER).withConfirmationCode("000000")));
+        assertThrows(UsernameExistsException.class, () -> simulatedCognitoIdentityProvider.signUp(new SignUpRequest().withUsername(PHONE_NUMBER)));
+    }
+
+    /**
+     * Method under test: {@link SimulatedCognitoIdentityProvider#signUpAsync(SignUpRequest, com.amazonaws.handlers.AsyncHandler)}
+     */
+    @Test
+    void testSignUpAsync() throws Exception {
+        // Arrange, Act and Assert
+        assertNotNull(simulatedCognitoIdentityProvider.signUpAsync(new SignUpRequest().withUsername(PHONE_NUMBER), null)
+                .get(5, TimeUnit.SECONDS)
+                .getUserSub());
+    }
+}
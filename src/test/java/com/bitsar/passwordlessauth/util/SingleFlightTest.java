@@ -0,0 +1,119 @@
+package com.bitsar.passwordlessauth.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+    /**
+     * Method under test: {@link SingleFlight#execute(Object, java.util.function.Supplier)}
+     */
+    @Test
+    void testExecuteCoalescesConcurrentCalls() throws Exception {
+        // Arrange
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // Act
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> singleFlight.execute("user", () -> {
+                calls.incrementAndGet();
+                await(release);
+                return "token";
+            })));
+        }
+        while (calls.get() == 0) Thread.onSpinWait();
+        Thread.sleep(50);
+        release.countDown();
+
+        // Assert
+        for (Future<String> result : results) assertEquals("token", result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(0, singleFlight.inFlightCount());
+        executor.shutdownNow();
+    }
+
+    /**
+     * Method under test: {@link SingleFlight#execute(Object, java.util.function.Supplier)}
+     */
+    @Test
+    void testExecuteRethrowsAndForgetsFailures() {
+        // Arrange
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+        // Act and Assert
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute("user", () -> {
+            throw new IllegalStateException("Cognito failed");
+        }));
+        assertEquals("retried", singleFlight.execute("user", () -> "retried"));
+    }
+
+    /**
+     * Methods under test: {@link SingleFlight#execute(Object, java.util.function.Supplier)} and
+     * {@link SingleFlight#executeAsync(Object, java.util.function.Supplier)}
+     */
+    @Test
+    void testErrorsCompleteTheFlight() {
+        // Arrange
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+        // Act
+        assertThrows(StackOverflowError.class, () -> singleFlight.execute("user", () -> {
+            throw new StackOverflowError();
+        }));
+        CompletableFuture<String> failed = singleFlight.executeAsync("user", () -> {
+            throw new AssertionError("Cognito client missing");
+        });
+
+        // Assert
+        CompletionException exception = assertThrows(CompletionException.class, failed::join);
+        assertInstanceOf(AssertionError.class, exception.getCause());
+        assertEquals(0, singleFlight.inFlightCount());
+        assertEquals("retried", singleFlight.execute("user", () -> "retried"));
+    }
+
+    /**
+     * Method under test: {@link SingleFlight#executeAsync(Object, java.util.function.Supplier)}
+     */
+    @Test
+    void testExecuteAsyncSharesTheInFlightFuture() {
+        // Arrange
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CompletableFuture<String> cognitoCall = new CompletableFuture<>();
+
+        // Act
+        CompletableFuture<String> first = singleFlight.executeAsync("user", () -> cognitoCall);
+        CompletableFuture<String> second = singleFlight.executeAsync("user", () -> CompletableFuture.completedFuture("other"));
+        cognitoCall.complete("token");
+
+        // Assert
+        assertSame(first, second);
+        assertEquals("token", second.join());
+        assertEquals("fresh", singleFlight.executeAsync("user", () -> CompletableFuture.completedFuture("fresh")).join());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}